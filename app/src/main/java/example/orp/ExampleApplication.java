@@ -0,0 +1,19 @@
+package example.orp;
+
+import android.app.Application;
+
+import com.github.aistech.orp.ORP;
+
+/**
+ * Installs the binding index generated for this module, so the activities are bound
+ * without reflection.
+ */
+public class ExampleApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        ORP.addIndex(new ORPAppIndex());
+    }
+}
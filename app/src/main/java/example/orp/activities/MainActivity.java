@@ -8,7 +8,6 @@ import android.widget.Toast;
 import com.github.aistech.orp.ORP;
 import com.github.aistech.orp.activities.ORPActivity;
 import com.github.aistech.orp.annotations.DestinationExtraObject;
-import com.github.aistech.orp.builder.ORPBuilder;
 
 import example.orp.R;
 import example.orp.model.User;
@@ -33,9 +32,9 @@ public class MainActivity extends ORPActivity {
         fab.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                new ORPBuilder(MainActivity.this)
-                        .withDestinationActivity(Main2Activity.class)
-                        .passingObject("user", user1)
+                // The builder generated for Main2Activity is type-safe and skips the string keys
+                new Main2Activity_ORPBuilder(MainActivity.this)
+                        .withUser(user1)
                         .start();
             }
         });
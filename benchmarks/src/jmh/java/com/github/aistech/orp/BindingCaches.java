@@ -0,0 +1,28 @@
+package com.github.aistech.orp;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Resets the binding lookups of {@link ORP}, which the benchmarks need to measure the first bind
+ * of a class over and over.
+ */
+public final class BindingCaches {
+
+    private BindingCaches() {
+    }
+
+    /**
+     * @param index the only index left installed, or null to find every binding by reflection.
+     */
+    public static void reset(@Nullable ORPIndex index) {
+        ORP.INDEXES.clear();
+        if (index != null) {
+            ORP.INDEXES.add(index);
+        }
+        ORP.BINDINGS.clear();
+    }
+
+    public static void clear() {
+        ORP.BINDINGS.clear();
+    }
+}
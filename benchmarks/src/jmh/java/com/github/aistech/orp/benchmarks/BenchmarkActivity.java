@@ -0,0 +1,31 @@
+package com.github.aistech.orp.benchmarks;
+
+import android.content.Intent;
+
+import com.github.aistech.orp.activities.ORPActivity;
+import com.github.aistech.orp.annotations.DestinationExtraObject;
+
+/**
+ * The destination launched by the benchmarks, with the kind of fields a real screen has.
+ */
+public class BenchmarkActivity extends ORPActivity {
+
+    @DestinationExtraObject
+    Payload payload;
+
+    @DestinationExtraObject
+    String title;
+
+    @DestinationExtraObject
+    int position;
+
+    /**
+     * Does what the framework does for a new instance, up to ORP binding its fields.
+     *
+     * @param intent
+     */
+    void launch(Intent intent) {
+        setIntent(intent);
+        onCreate(null, this);
+    }
+}
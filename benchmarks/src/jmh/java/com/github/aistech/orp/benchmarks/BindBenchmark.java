@@ -0,0 +1,90 @@
+package com.github.aistech.orp.benchmarks;
+
+import com.github.aistech.orp.BindingCaches;
+import com.github.aistech.orp.ORP;
+import com.github.aistech.orp.Unbinder;
+import com.github.aistech.orp.builder.ORPBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ORP#bind} of a launched destination: the first bind of its class, which looks its
+ * binding up, the following ones, served from the cache, and the generated binding alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindBenchmark {
+
+    /**
+     * How bindings are found on a cache miss: by reflection, or through the generated index.
+     */
+    @Param({"reflection", "index"})
+    String lookup;
+
+    /**
+     * How the destination was launched: by its generated builder, which fills the slots, or by
+     * {@link ORPBuilder} with string keys.
+     */
+    @Param({"builder", "keys"})
+    String launch;
+
+    private BenchmarkActivity activity;
+
+    @Setup
+    public void setUp() {
+        BindingCaches.reset("index".equals(lookup) ? new BenchmarkIndex() : null);
+        activity = new BenchmarkActivity();
+        if ("keys".equals(launch)) {
+            activity.launch(new ORPBuilder(new OriginActivity())
+                    .withDestinationActivity(BenchmarkActivity.class)
+                    .passingObject("payload", Payload.create(10))
+                    .passingObject("title", "title")
+                    .passingInt("position", 3)
+                    .build());
+        } else {
+            activity.launch(new BenchmarkActivity_ORPBuilder(new OriginActivity())
+                    .withPayload(Payload.create(10))
+                    .withTitle("title")
+                    .withPosition(3)
+                    .build());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        BindingCaches.reset(null);
+    }
+
+    @Benchmark
+    public Unbinder bindCold() {
+        BindingCaches.clear();
+        return ORP.bind(activity);
+    }
+
+    @Benchmark
+    public Unbinder bindCached() {
+        return ORP.bind(activity);
+    }
+
+    @Benchmark
+    public Unbinder generatedBinding() {
+        return new BenchmarkActivity_ORPBinding(activity);
+    }
+}
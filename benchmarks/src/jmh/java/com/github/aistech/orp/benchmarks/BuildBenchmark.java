@@ -0,0 +1,68 @@
+package com.github.aistech.orp.benchmarks;
+
+import android.content.Intent;
+
+import com.github.aistech.orp.activities.ORPActivity;
+import com.github.aistech.orp.builder.ORPBuilder;
+import com.github.aistech.orp.singletons.ORPSingleton;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the launch Intent, with {@link ORPBuilder} and with the generated {@code _ORPBuilder}.
+ * Each handoff is cleared right away, as its destination would, so the store doesn't grow during
+ * the run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuildBenchmark {
+
+    private OriginActivity origin;
+    private Payload payload;
+
+    @Setup
+    public void setUp() {
+        origin = new OriginActivity();
+        payload = Payload.create(10);
+    }
+
+    @Benchmark
+    public Intent orpBuilder() {
+        return clear(new ORPBuilder(origin)
+                .withDestinationActivity(BenchmarkActivity.class)
+                .passingObject("payload", payload)
+                .passingObject("title", "title")
+                .passingInt("position", 3)
+                .build());
+    }
+
+    @Benchmark
+    public Intent generatedBuilder() {
+        return clear(new BenchmarkActivity_ORPBuilder(origin)
+                .withPayload(payload)
+                .withTitle("title")
+                .withPosition(3)
+                .build());
+    }
+
+    private static Intent clear(Intent intent) {
+        long token = intent.getLongExtra(ORPActivity.HANDOFF_TOKEN_EXTRA, ORPSingleton.NO_TOKEN);
+        ORPSingleton.getInstance().clearCurrentActivityParameters(token);
+        return intent;
+    }
+}
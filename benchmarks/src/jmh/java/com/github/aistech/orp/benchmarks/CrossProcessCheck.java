@@ -0,0 +1,160 @@
+package com.github.aistech.orp.benchmarks;
+
+import android.content.Intent;
+
+import com.github.aistech.orp.activities.ORPActivity;
+import com.github.aistech.orp.builder.ORPBuilder;
+import com.github.aistech.orp.sharedmemory.SharedMemory;
+import com.github.aistech.orp.sharedmemory.SharedPayload;
+import com.github.aistech.orp.singletons.ORPSingleton;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Hands payloads off to two destinations in another JVM through {@link SharedMemory}, the way
+ * activities of a {@code :media} process would receive them. The parent writes the payloads in a
+ * temporary directory, checks it holds nothing for destinations that can't bind it, and starts a
+ * child JVM with the Intent extras. The child binds both destinations from them, checks what they
+ * got, and finishes them: the files must survive the first one, and be deleted with the last.
+ * <p>
+ * {@code ./gradlew :benchmarks:crossProcessCheck [-PsizeMb=64]}
+ */
+public final class CrossProcessCheck {
+
+    private static final String CHILD = "--child";
+
+    private CrossProcessCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && CHILD.equals(args[0])) {
+            System.exit(runChild(Long.parseLong(args[1]), args[2], Integer.parseInt(args[3]), Long.parseLong(args[4]),
+                    Long.parseLong(args[5])));
+        }
+        int sizeMb = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        System.exit(runParent(sizeMb));
+    }
+
+    private static int runParent(int sizeMb) throws Exception {
+        File directory = File.createTempFile("orp-shared", "");
+        if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        ORPBuilder.setSharedMemory(new SharedMemory(directory));
+
+        OriginActivity origin = new OriginActivity();
+        origin.getPackageManager().declareProcess(SharedDestinationActivity.class,
+                "com.github.aistech.orp.benchmarks:media");
+
+        Random random = new Random(42);
+        ByteBuffer frames = ByteBuffer.allocateDirect(sizeMb * 1024 * 1024);
+        while (frames.hasRemaining()) {
+            frames.put((byte) random.nextInt());
+        }
+        frames.flip();
+        byte[] thumbnail = new byte[64 * 1024];
+        random.nextBytes(thumbnail);
+
+        long start = System.nanoTime();
+        Intent intent = new ORPBuilder(origin)
+                .passingObject("unreachable", new Object())
+                .passingShared("frames", frames)
+                .passingShared("thumbnail", thumbnail)
+                .buildShared(SharedDestinationActivity.class, SharedDestinationActivity.class)[0];
+        long buildNanos = System.nanoTime() - start;
+        long token = intent.getLongExtra(ORPActivity.HANDOFF_TOKEN_EXTRA, 0);
+        String payloads = intent.getStringExtra(ORPActivity.SHARED_PAYLOADS_EXTRA);
+        int consumers = intent.getIntExtra(ORPActivity.SHARED_CONSUMERS_EXTRA, 1);
+        int held = ORPSingleton.getInstance().getLiveEntryCount();
+        System.out.println("parent " + pid() + ": wrote " + sizeMb + " MB in " + buildNanos / 1000000 + " ms, "
+                + SharedPayload.decodeAll(payloads).size() + " payloads, " + payloads.length() + " chars of extras, "
+                + consumers + " consumers, " + held + " handoffs held here");
+
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(CrossProcessCheck.class.getName());
+        command.add(CHILD);
+        command.add(String.valueOf(token));
+        command.add(payloads);
+        command.add(String.valueOf(consumers));
+        command.add(String.valueOf(checksum(frames.duplicate())));
+        command.add(String.valueOf(checksum(ByteBuffer.wrap(thumbnail))));
+        Process child = new ProcessBuilder(command).redirectErrorStream(true).start();
+        BufferedReader output = new BufferedReader(new InputStreamReader(child.getInputStream(), "UTF-8"));
+        String line;
+        while ((line = output.readLine()) != null) {
+            System.out.println(line);
+        }
+        int status = child.waitFor();
+
+        String[] left = directory.list();
+        boolean cleaned = left != null && left.length == 0;
+        System.out.println("parent: child exited with " + status + ", shared files " + (cleaned ? "deleted" : "left behind"));
+        directory.delete();
+        return status == 0 && cleaned && held == 0 && consumers == 2 ? 0 : 1;
+    }
+
+    private static int runChild(long token, String payloads, int consumers, long framesChecksum,
+                                long thumbnailChecksum) {
+        List<SharedDestinationActivity> destinations = new ArrayList<>();
+        boolean bound = true;
+        for (int i = 0; i < consumers; i++) {
+            Intent intent = new Intent();
+            intent.putExtra(ORPActivity.HANDOFF_TOKEN_EXTRA, token);
+            intent.putExtra(ORPActivity.SHARED_PAYLOADS_EXTRA, payloads);
+            intent.putExtra(ORPActivity.SHARED_CONSUMERS_EXTRA, consumers);
+
+            long start = System.nanoTime();
+            SharedDestinationActivity destination = new SharedDestinationActivity();
+            destination.launch(intent);
+            long bindNanos = System.nanoTime() - start;
+            destinations.add(destination);
+
+            boolean mapped = destination.frames instanceof MappedByteBuffer;
+            boolean framesMatch = checksum(destination.frames.duplicate()) == framesChecksum;
+            boolean thumbnailMatches = checksum(ByteBuffer.wrap(destination.thumbnail)) == thumbnailChecksum;
+            System.out.println("child " + pid() + ": destination " + i + " bound in " + bindNanos / 1000 + " us, frames "
+                    + destination.frames.remaining() + " bytes, " + (mapped ? "mapped" : "copied")
+                    + ", checksums " + (framesMatch && thumbnailMatches ? "match" : "differ"));
+            bound &= mapped && framesMatch && thumbnailMatches;
+        }
+
+        // The files are only deleted once the last destination sharing them is finished.
+        boolean kept = true;
+        for (int i = 0; i < destinations.size() - 1; i++) {
+            destinations.get(i).finish();
+            for (SharedPayload payload : SharedPayload.decodeAll(payloads).values()) {
+                kept &= payload.getFile().exists();
+            }
+        }
+        destinations.get(destinations.size() - 1).finish();
+        System.out.println("child: shared files " + (kept ? "kept" : "deleted") + " until the last destination finished");
+        return bound && kept ? 0 : 1;
+    }
+
+    private static long checksum(ByteBuffer buffer) {
+        long checksum = 1;
+        while (buffer.remaining() >= 8) {
+            checksum = checksum * 31 + buffer.getLong();
+        }
+        while (buffer.hasRemaining()) {
+            checksum = checksum * 31 + buffer.get();
+        }
+        return checksum;
+    }
+
+    private static String pid() {
+        return ManagementFactory.getRuntimeMXBean().getName();
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.aistech.orp.benchmarks;
+
+import android.content.Intent;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import com.github.aistech.orp.singletons.ORPSingleton;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole launch, from building the Intent to the destination holding its payload, with ORP and
+ * with the payload as a Parcelable or Serializable extra. The framework marshals the extras
+ * when the Intent goes through the system, so the extras benchmarks do it too.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtrasBenchmark {
+
+    /**
+     * How many strings the payload carries.
+     */
+    @Param({"1", "100", "10000"})
+    int tagCount;
+
+    private OriginActivity origin;
+    private Payload payload;
+
+    @Setup
+    public void setUp() {
+        origin = new OriginActivity();
+        payload = Payload.create(tagCount);
+    }
+
+    @Benchmark
+    public Payload orp() {
+        BenchmarkActivity destination = new BenchmarkActivity();
+        destination.launch(new BenchmarkActivity_ORPBuilder(origin)
+                .withPayload(payload)
+                .withTitle("title")
+                .withPosition(3)
+                .build());
+        ORPSingleton.getInstance().clearCurrentActivityParameters(destination.getHandoffToken());
+        return destination.payload;
+    }
+
+    @Benchmark
+    public Payload parcelableExtra() {
+        Intent intent = new Intent(origin, BenchmarkActivity.class).putExtra("payload", (Parcelable) payload);
+        Parcel parcel = Parcel.obtain();
+        parcel.writeParcelable(intent.<Payload>getParcelableExtra("payload"), 0);
+        byte[] marshalled = parcel.marshall();
+        parcel.recycle();
+
+        parcel = Parcel.obtain();
+        parcel.unmarshall(marshalled, 0, marshalled.length);
+        parcel.setDataPosition(0);
+        Payload received = parcel.readParcelable(Payload.class.getClassLoader());
+        parcel.recycle();
+        return received;
+    }
+
+    @Benchmark
+    public Payload serializableExtra() throws IOException, ClassNotFoundException {
+        Intent intent = new Intent(origin, BenchmarkActivity.class).putExtra("payload", (Serializable) payload);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream output = new ObjectOutputStream(bytes);
+        output.writeObject(intent.getSerializableExtra("payload"));
+        output.close();
+
+        ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        return (Payload) input.readObject();
+    }
+}
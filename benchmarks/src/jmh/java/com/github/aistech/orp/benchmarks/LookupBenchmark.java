@@ -0,0 +1,90 @@
+package com.github.aistech.orp.benchmarks;
+
+import com.github.aistech.orp.singletons.ORPSingleton;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ORPSingleton#getParameter} with a growing number of live handoffs in the store, and a
+ * growing number of threads reading it at once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Store {
+
+        /**
+         * How many handoffs are live while looking them up.
+         */
+        @Param({"10", "1000", "100000"})
+        int storeSize;
+
+        long[] tokens;
+
+        @Setup
+        public void setUp() {
+            ORPSingleton singleton = ORPSingleton.getInstance();
+            Payload payload = Payload.create(10);
+            tokens = new long[storeSize];
+            for (int i = 0; i < storeSize; i++) {
+                Map<String, Object> parameters = new HashMap<>();
+                parameters.put("payload", payload);
+                parameters.put("title", "title " + i);
+                tokens[i] = singleton.register(parameters);
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            ORPSingleton singleton = ORPSingleton.getInstance();
+            for (long token : tokens) {
+                singleton.clearCurrentActivityParameters(token);
+            }
+        }
+
+        Object lookup() {
+            long token = tokens[ThreadLocalRandom.current().nextInt(tokens.length)];
+            return ORPSingleton.getInstance().getParameter(token, "payload");
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object lookup1Thread(Store store) {
+        return store.lookup();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object lookup4Threads(Store store) {
+        return store.lookup();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object lookup16Threads(Store store) {
+        return store.lookup();
+    }
+}
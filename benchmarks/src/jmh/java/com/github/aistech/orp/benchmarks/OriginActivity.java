@@ -0,0 +1,9 @@
+package com.github.aistech.orp.benchmarks;
+
+import com.github.aistech.orp.activities.ORPActivity;
+
+/**
+ * The activity the launches start from.
+ */
+public class OriginActivity extends ORPActivity {
+}
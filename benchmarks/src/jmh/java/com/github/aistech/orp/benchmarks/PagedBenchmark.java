@@ -0,0 +1,101 @@
+package com.github.aistech.orp.benchmarks;
+
+import android.content.Intent;
+
+import com.github.aistech.orp.PageCursor;
+import com.github.aistech.orp.PageSource;
+import com.github.aistech.orp.activities.ORPActivity;
+import com.github.aistech.orp.builder.ORPBuilder;
+import com.github.aistech.orp.singletons.ORPSingleton;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long a list-to-detail destination waits for the first screen of items: with the whole list
+ * loaded by the origin and passed as an object, or passed as pages loaded in the background.
+ * Loading an item costs {@code itemCost} tokens of CPU, like reading a row would.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PagedBenchmark {
+
+    @Param({"5000"})
+    int items;
+
+    @Param({"100"})
+    int itemCost;
+
+    private OriginActivity origin;
+    private PageSource<Integer> source;
+
+    @Setup
+    public void setUp() {
+        origin = new OriginActivity();
+        source = new PageSource<Integer>() {
+            @Override
+            public List<Integer> loadPage(int offset, int count) {
+                int end = Math.min(offset + count, items);
+                List<Integer> page = new ArrayList<>(Math.max(end - offset, 0));
+                for (int i = offset; i < end; i++) {
+                    page.add(load(i));
+                }
+                return page;
+            }
+        };
+    }
+
+    private Integer load(int index) {
+        Blackhole.consumeCPU(itemCost);
+        return index;
+    }
+
+    @Benchmark
+    public Object wholeList() {
+        List<Integer> list = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            list.add(load(i));
+        }
+        Intent intent = new ORPBuilder(origin)
+                .withDestinationActivity(BenchmarkActivity.class)
+                .passingObject("items", list)
+                .build();
+        List<?> bound = (List<?>) bind(intent);
+        return bound.get(0);
+    }
+
+    @Benchmark
+    public Object pages() {
+        Intent intent = new ORPBuilder(origin)
+                .withDestinationActivity(BenchmarkActivity.class)
+                .passingPages("items", source)
+                .build();
+        PageCursor<?> bound = (PageCursor<?>) bind(intent);
+        Object first = bound.takePage().get(0);
+        bound.close();
+        return first;
+    }
+
+    private static Object bind(Intent intent) {
+        long token = intent.getLongExtra(ORPActivity.HANDOFF_TOKEN_EXTRA, ORPSingleton.NO_TOKEN);
+        return ORPSingleton.getInstance().consume(token).getParameter("items");
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.aistech.orp.benchmarks;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A typical screen model, passed by reference with ORP and marshalled with the Intent extras.
+ */
+public class Payload implements Parcelable, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final Creator<Payload> CREATOR = new Creator<Payload>() {
+        @Override
+        public Payload createFromParcel(Parcel source) {
+            return new Payload(source);
+        }
+
+        @Override
+        public Payload[] newArray(int size) {
+            return new Payload[size];
+        }
+    };
+
+    final long id;
+    final String name;
+    final double score;
+    final List<String> tags;
+
+    Payload(long id, String name, double score, List<String> tags) {
+        this.id = id;
+        this.name = name;
+        this.score = score;
+        this.tags = tags;
+    }
+
+    private Payload(Parcel source) {
+        this.id = source.readLong();
+        this.name = source.readString();
+        this.score = source.readDouble();
+        int size = source.readInt();
+        this.tags = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            this.tags.add(source.readString());
+        }
+    }
+
+    /**
+     * @param tagCount how many strings the payload carries, which drives its marshalling cost.
+     */
+    static Payload create(int tagCount) {
+        List<String> tags = new ArrayList<>(tagCount);
+        for (int i = 0; i < tagCount; i++) {
+            tags.add("tag-" + i);
+        }
+        return new Payload(42, "Payload with " + tagCount + " tags", 0.5, tags);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeLong(id);
+        dest.writeString(name);
+        dest.writeDouble(score);
+        dest.writeInt(tags.size());
+        for (String tag : tags) {
+            dest.writeString(tag);
+        }
+    }
+}
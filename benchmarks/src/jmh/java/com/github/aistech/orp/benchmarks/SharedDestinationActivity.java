@@ -0,0 +1,35 @@
+package com.github.aistech.orp.benchmarks;
+
+import android.content.Intent;
+
+import com.github.aistech.orp.activities.ORPActivity;
+import com.github.aistech.orp.annotations.DestinationExtraObject;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A destination receiving its payloads through shared memory, as one running in another process would.
+ */
+public class SharedDestinationActivity extends ORPActivity {
+
+    @DestinationExtraObject
+    ByteBuffer frames;
+
+    @DestinationExtraObject
+    byte[] thumbnail;
+
+    /**
+     * @param intent
+     */
+    void launch(Intent intent) {
+        setIntent(intent);
+        onCreate(null, this);
+    }
+
+    /**
+     * Does what the framework does once the destination is finished.
+     */
+    void finish() {
+        onDestroy();
+    }
+}
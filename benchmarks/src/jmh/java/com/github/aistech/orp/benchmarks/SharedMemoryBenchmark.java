@@ -0,0 +1,88 @@
+package com.github.aistech.orp.benchmarks;
+
+import android.os.Parcel;
+
+import com.github.aistech.orp.sharedmemory.SharedMemory;
+import com.github.aistech.orp.sharedmemory.SharedPayload;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A byte buffer handed off to another process: marshalled in a Parcel, as Binder would, or written
+ * once in {@link SharedMemory} and mapped by the destination. See {@link CrossProcessCheck} for
+ * the same handoff across two actual processes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SharedMemoryBenchmark {
+
+    @Param({"64", "1024", "16384"})
+    int sizeKb;
+
+    private File directory;
+    private SharedMemory sharedMemory;
+    private byte[] bytes;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = File.createTempFile("orp-shared", "");
+        if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        sharedMemory = new SharedMemory(directory);
+        bytes = new byte[sizeKb * 1024];
+        new Random(42).nextBytes(bytes);
+        buffer = ByteBuffer.wrap(bytes);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sharedMemory.deleteStale(0, TimeUnit.MILLISECONDS);
+        directory.delete();
+    }
+
+    @Benchmark
+    public byte[] parcel() {
+        Parcel parcel = Parcel.obtain();
+        parcel.writeByteArray(bytes);
+        byte[] marshalled = parcel.marshall();
+        parcel.recycle();
+
+        parcel = Parcel.obtain();
+        parcel.unmarshall(marshalled, 0, marshalled.length);
+        parcel.setDataPosition(0);
+        byte[] received = parcel.createByteArray();
+        parcel.recycle();
+        return received;
+    }
+
+    @Benchmark
+    public ByteBuffer sharedMemory() throws IOException {
+        SharedPayload payload = sharedMemory.write(buffer);
+        ByteBuffer received = payload.map();
+        payload.delete();
+        return received;
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.aistech.orp.benchmarks;
+
+import com.github.aistech.orp.singletons.ConcurrentHandoffStore;
+import com.github.aistech.orp.singletons.Handoff;
+import com.github.aistech.orp.singletons.ORPSingleton;
+import com.github.aistech.orp.singletons.ORPStore;
+import com.github.aistech.orp.singletons.OpenAddressingHandoffStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The built-in {@link ORPStore}s, holding {@code live} handoffs: looking one up, as every binding
+ * does, from one thread and from four, and registering then removing one, as every launch does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StoreBenchmark {
+
+    @Param({"concurrent", "openAddressing"})
+    String store;
+
+    @Param({"16", "4096"})
+    int live;
+
+    private ORPStore handoffs;
+    private long[] tokens;
+    private Handoff[] churn;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setUp() {
+        handoffs = "concurrent".equals(store) ? new ConcurrentHandoffStore() : new OpenAddressingHandoffStore();
+        tokens = new long[live];
+        for (int i = 0; i < live; i++) {
+            Handoff handoff = newHandoff();
+            handoffs.register(handoff);
+            tokens[i] = handoff.getToken();
+        }
+        churn = new Handoff[1024];
+        for (int i = 0; i < churn.length; i++) {
+            churn[i] = newHandoff();
+        }
+    }
+
+    /**
+     * The handoffs are registered in the singleton, for a real token, then taken back out of it.
+     */
+    private static Handoff newHandoff() {
+        ORPSingleton singleton = ORPSingleton.getInstance();
+        return singleton.consume(singleton.register(Collections.<String, Object>singletonMap("key", "value")));
+    }
+
+    @Benchmark
+    public Handoff lookup(Cursor cursor) {
+        return handoffs.lookup(tokens[cursor.next++ & (live - 1)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Handoff lookupContended(Cursor cursor) {
+        return handoffs.lookup(tokens[cursor.next++ & (live - 1)]);
+    }
+
+    @Benchmark
+    public boolean registerAndRemove(Cursor cursor) {
+        Handoff handoff = churn[cursor.next++ & (churn.length - 1)];
+        handoffs.register(handoff);
+        return handoffs.remove(handoff);
+    }
+}
@@ -0,0 +1,10 @@
+package android.annotation;
+
+import java.lang.annotation.Retention;
+
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+@Retention(CLASS)
+public @interface TargetApi {
+    int value();
+}
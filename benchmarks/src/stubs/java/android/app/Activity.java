@@ -0,0 +1,46 @@
+package android.app;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.Intent;
+import android.content.res.Configuration;
+import android.os.Bundle;
+
+public class Activity extends Context implements ComponentCallbacks2 {
+
+    private Intent intent;
+
+    protected void onCreate(Bundle savedInstanceState) {
+    }
+
+    protected void onDestroy() {
+    }
+
+    public Intent getIntent() {
+        return intent;
+    }
+
+    public void setIntent(Intent newIntent) {
+        intent = newIntent;
+    }
+
+    public boolean isFinishing() {
+        return true;
+    }
+
+    public boolean isChangingConfigurations() {
+        return false;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+    }
+
+    @Override
+    public void onLowMemory() {
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+}
@@ -0,0 +1,14 @@
+package android.content;
+
+public final class ComponentName {
+
+    private final String className;
+
+    public ComponentName(Context packageContext, Class<?> cls) {
+        this.className = cls.getName();
+    }
+
+    public String getClassName() {
+        return className;
+    }
+}
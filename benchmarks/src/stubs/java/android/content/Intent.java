@@ -0,0 +1,80 @@
+package android.content;
+
+import android.os.Bundle;
+import android.os.Parcelable;
+
+import java.io.Serializable;
+
+/**
+ * Keeps the extras in a {@link Bundle}, as the framework does until the intent crosses a process
+ * boundary, which is when they get marshalled.
+ */
+public class Intent {
+
+    private Bundle extras;
+
+    public Intent() {
+    }
+
+    public Intent(Context packageContext, Class<?> cls) {
+    }
+
+    public Intent putExtra(String name, int value) {
+        extras().putInt(name, value);
+        return this;
+    }
+
+    public Intent putExtra(String name, long value) {
+        extras().putLong(name, value);
+        return this;
+    }
+
+    public Intent putExtra(String name, String value) {
+        extras().putString(name, value);
+        return this;
+    }
+
+    public Intent putExtra(String name, Parcelable value) {
+        extras().putParcelable(name, value);
+        return this;
+    }
+
+    public Intent putExtra(String name, Serializable value) {
+        extras().putSerializable(name, value);
+        return this;
+    }
+
+    public int getIntExtra(String name, int defaultValue) {
+        Object value = extras != null ? extras.get(name) : null;
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+
+    public long getLongExtra(String name, long defaultValue) {
+        Object value = extras != null ? extras.get(name) : null;
+        return value instanceof Long ? (Long) value : defaultValue;
+    }
+
+    public String getStringExtra(String name) {
+        return extras != null ? (String) extras.get(name) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Parcelable> T getParcelableExtra(String name) {
+        return extras != null ? (T) extras.get(name) : null;
+    }
+
+    public Serializable getSerializableExtra(String name) {
+        return extras != null ? (Serializable) extras.get(name) : null;
+    }
+
+    public Bundle getExtras() {
+        return extras != null ? new Bundle(extras) : null;
+    }
+
+    private Bundle extras() {
+        if (extras == null) {
+            extras = new Bundle();
+        }
+        return extras;
+    }
+}
@@ -0,0 +1,33 @@
+package android.content.pm;
+
+import android.content.ComponentName;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stands in for the manifest: every activity runs in the main process, unless declared otherwise
+ * with {@link #declareProcess}.
+ */
+public class PackageManager {
+
+    public static final PackageManager INSTANCE = new PackageManager();
+
+    private static final String MAIN_PROCESS = "com.github.aistech.orp.benchmarks";
+
+    private final Map<String, String> processNames = new ConcurrentHashMap<>();
+
+    public void declareProcess(Class<?> activity, String processName) {
+        processNames.put(activity.getName(), processName);
+    }
+
+    public ActivityInfo getActivityInfo(ComponentName component, int flags) throws NameNotFoundException {
+        ActivityInfo info = new ActivityInfo();
+        String processName = processNames.get(component.getClassName());
+        info.processName = processName != null ? processName : MAIN_PROCESS;
+        return info;
+    }
+
+    public static class NameNotFoundException extends Exception {
+    }
+}
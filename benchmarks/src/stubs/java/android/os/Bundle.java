@@ -0,0 +1,46 @@
+package android.os;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class Bundle {
+
+    private final Map<String, Object> map;
+
+    public Bundle() {
+        map = new HashMap<>();
+    }
+
+    public Bundle(Bundle bundle) {
+        map = new HashMap<>(bundle.map);
+    }
+
+    public boolean containsKey(String key) {
+        return map.containsKey(key);
+    }
+
+    public Object get(String key) {
+        return map.get(key);
+    }
+
+    public void putInt(String key, int value) {
+        map.put(key, value);
+    }
+
+    public void putLong(String key, long value) {
+        map.put(key, value);
+    }
+
+    public void putString(String key, String value) {
+        map.put(key, value);
+    }
+
+    public void putParcelable(String key, Parcelable value) {
+        map.put(key, value);
+    }
+
+    public void putSerializable(String key, Serializable value) {
+        map.put(key, value);
+    }
+}
@@ -0,0 +1,15 @@
+package android.os;
+
+/**
+ * Runs the posted messages right away, there's no main loop on the JVM.
+ */
+public class Handler {
+
+    public Handler(Looper looper) {
+    }
+
+    public final boolean post(Runnable runnable) {
+        runnable.run();
+        return true;
+    }
+}
@@ -0,0 +1,161 @@
+package android.os;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A heap-backed Parcel writing the same 4-byte aligned layout as the native one, so marshalling
+ * a {@link Parcelable} costs about the same amount of copying it does on a device.
+ */
+public final class Parcel {
+
+    private static final Map<String, Parcelable.Creator<?>> CREATORS = new ConcurrentHashMap<>();
+
+    private ByteBuffer buffer = newBuffer(256);
+
+    private Parcel() {
+    }
+
+    public static Parcel obtain() {
+        return new Parcel();
+    }
+
+    public void recycle() {
+        buffer.clear();
+    }
+
+    public void setDataPosition(int position) {
+        buffer.position(position);
+    }
+
+    public byte[] marshall() {
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    public void unmarshall(byte[] data, int offset, int length) {
+        buffer = newBuffer(length);
+        buffer.put(data, offset, length);
+        buffer.flip();
+    }
+
+    public void writeInt(int value) {
+        ensureCapacity(4);
+        buffer.putInt(value);
+    }
+
+    public int readInt() {
+        return buffer.getInt();
+    }
+
+    public void writeByteArray(byte[] value) {
+        writeInt(value.length);
+        ensureCapacity(value.length + 3);
+        buffer.put(value);
+        // Padded to 4 bytes, like the native Parcel.
+        buffer.position((buffer.position() + 3) & ~3);
+    }
+
+    public byte[] createByteArray() {
+        byte[] value = new byte[readInt()];
+        buffer.get(value);
+        buffer.position((buffer.position() + 3) & ~3);
+        return value;
+    }
+
+    public void writeLong(long value) {
+        ensureCapacity(8);
+        buffer.putLong(value);
+    }
+
+    public long readLong() {
+        return buffer.getLong();
+    }
+
+    public void writeDouble(double value) {
+        ensureCapacity(8);
+        buffer.putDouble(value);
+    }
+
+    public double readDouble() {
+        return buffer.getDouble();
+    }
+
+    public void writeString(String value) {
+        if (value == null) {
+            writeInt(-1);
+            return;
+        }
+        int length = value.length();
+        writeInt(length);
+        // UTF-16 chars plus a null terminator, padded to 4 bytes like the native parcel.
+        int size = (length + 1) * 2 + 3 & ~3;
+        ensureCapacity(size);
+        int end = buffer.position() + size;
+        for (int i = 0; i < length; i++) {
+            buffer.putChar(value.charAt(i));
+        }
+        while (buffer.position() < end) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    public String readString() {
+        int length = readInt();
+        if (length < 0) {
+            return null;
+        }
+        int end = buffer.position() + ((length + 1) * 2 + 3 & ~3);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = buffer.getChar();
+        }
+        buffer.position(end);
+        return new String(chars);
+    }
+
+    public void writeParcelable(Parcelable value, int flags) {
+        if (value == null) {
+            writeString(null);
+            return;
+        }
+        writeString(value.getClass().getName());
+        value.writeToParcel(this, flags);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Parcelable> T readParcelable(ClassLoader loader) {
+        String name = readString();
+        if (name == null) {
+            return null;
+        }
+        // The framework caches the creators too.
+        Parcelable.Creator<?> creator = CREATORS.get(name);
+        if (creator == null) {
+            try {
+                Field field = Class.forName(name, true, loader).getField("CREATOR");
+                creator = (Parcelable.Creator<?>) field.get(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Unable to read " + name, e);
+            }
+            CREATORS.put(name, creator);
+        }
+        return (T) creator.createFromParcel(this);
+    }
+
+    private void ensureCapacity(int size) {
+        if (buffer.remaining() < size) {
+            ByteBuffer grown = newBuffer(Math.max(buffer.capacity() * 2, buffer.position() + size));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.nativeOrder());
+    }
+}
@@ -0,0 +1,9 @@
+package android.support.annotation;
+
+import java.lang.annotation.Retention;
+
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+@Retention(CLASS)
+public @interface CheckResult {
+}
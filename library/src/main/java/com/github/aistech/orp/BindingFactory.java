@@ -0,0 +1,22 @@
+package com.github.aistech.orp;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.UiThread;
+
+/**
+ * Creates the {@code _ORPBinding} of a single target class. The ORP compiler generates one of
+ * these for every binding listed in an {@link ORPIndex}, so the binding can be created with a
+ * plain {@code new} instead of a reflective constructor call.
+ */
+public interface BindingFactory {
+
+    /**
+     * @param target the activity whose {@link com.github.aistech.orp.annotations.DestinationExtraObject}
+     *               fields must be bound. It is always an instance of the class this factory was
+     *               registered for.
+     * @return the binding created for the target.
+     */
+    @NonNull
+    @UiThread
+    Unbinder create(@NonNull Object target);
+}
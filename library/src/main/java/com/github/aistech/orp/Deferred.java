@@ -0,0 +1,47 @@
+package com.github.aistech.orp;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.UiThread;
+
+import com.github.aistech.orp.exceptions.ORPExceptions;
+
+/**
+ * A {@code @DestinationExtraObject} field declared as {@code Deferred<T>} is bound to a handle on
+ * a parameter that may still be computed in the background, when it was passed through
+ * {@link com.github.aistech.orp.builder.ORPBuilder#passingDeferred}. Binding never waits for it:
+ * <pre>{@code
+ * @DestinationExtraObject("report")
+ * Deferred<Report> report;
+ * ...
+ * report.whenReady(new Deferred.Callback<Report>() {
+ *     public void onReady(Report report) { showReport(report); }
+ *     public void onFailed(ORPExceptions error) { showError(); }
+ * });
+ * }</pre>
+ * Parameters passed as plain objects are ready right away.
+ *
+ * @param <T> the type of the parameter.
+ */
+public interface Deferred<T> extends Lazy<T> {
+
+    /**
+     * @return true if {@link #get()} won't wait.
+     */
+    boolean isReady();
+
+    /**
+     * Calls back on the main thread once the parameter is ready, or right away if it already is
+     * and this is called from the main thread.
+     *
+     * @param callback
+     */
+    void whenReady(@NonNull Callback<T> callback);
+
+    interface Callback<T> {
+        @UiThread
+        void onReady(T value);
+
+        @UiThread
+        void onFailed(@NonNull ORPExceptions error);
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.aistech.orp;
+
+/**
+ * A {@code @DestinationExtraObject} field declared as {@code Lazy<T>} is bound to a handle
+ * instead of the parameter itself. The parameter is only looked up, and cast, on the first
+ * {@link #get()}, so heavy or rarely used parameters cost nothing while binding, and a missing
+ * one doesn't fail the whole bind:
+ * <pre>{@code
+ * @DestinationExtraObject("report")
+ * Lazy<Report> report;
+ * ...
+ * showReport(report.get());
+ * }</pre>
+ *
+ * @param <T> the type of the parameter.
+ */
+public interface Lazy<T> {
+
+    /**
+     * Resolves the parameter the first time, then returns the same value on every call.
+     *
+     * @return the parameter, possibly null.
+     * @throws com.github.aistech.orp.exceptions.ORPExceptions if the parameter wasn't passed, or
+     * its handoff was already cleared.
+     */
+    T get();
+}
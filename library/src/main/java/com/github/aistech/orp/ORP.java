@@ -5,15 +5,19 @@ import android.support.annotation.CheckResult;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.UiThread;
+import android.support.annotation.WorkerThread;
 import android.util.Log;
-import android.view.View;
 
 import com.github.aistech.orp.exceptions.ORPExceptions;
+import com.github.aistech.orp.metrics.ORPMetrics;
+import com.github.aistech.orp.tracing.ORPTracing;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Created by Bernardo on 29/12/2016.
@@ -21,7 +25,57 @@ import java.util.Map;
 public class ORP {
 
     private static final String TAG = "ORP";
-    static final Map<Class<?>, Constructor<? extends Unbinder>> BINDINGS = new LinkedHashMap<>();
+    static final ConcurrentMap<Class<?>, BindingFactory> BINDINGS = new ConcurrentHashMap<>();
+    static final List<ORPIndex> INDEXES = new CopyOnWriteArrayList<>();
+    private static boolean debug = false;
+
+    /**
+     * Cached in {@link #BINDINGS} for the classes that have no binding at all, so the superclass
+     * walk and its {@link ClassNotFoundException}s only happen once per class.
+     */
+    private static final BindingFactory NO_BINDING = new BindingFactory() {
+        @NonNull
+        @Override
+        public Unbinder create(@NonNull Object target) {
+            return Unbinder.EMPTY;
+        }
+    };
+
+    /**
+     * Control whether debug logging is enabled. While disabled, none of the log messages
+     * are even built.
+     *
+     * @param debug
+     */
+    public static void setDebug(boolean debug) {
+        ORP.debug = debug;
+    }
+
+    /**
+     * Installs a binding index generated by the ORP compiler. Bindings found in the index are
+     * created directly, without any reflection. See {@link ORPIndex} on how to generate one.
+     *
+     * @param index
+     */
+    public static void addIndex(@NonNull ORPIndex index) {
+        INDEXES.add(index);
+        // Classes resolved before this index was installed may have a better answer now.
+        BINDINGS.clear();
+    }
+
+    /**
+     * Resolves and caches the bindings of the given classes ahead of time, so the first
+     * {@link #bind} of each one is a single map lookup. It's safe, and recommended, to call this
+     * from a background thread started on {@code Application#onCreate}.
+     *
+     * @param targetClasses
+     */
+    @WorkerThread
+    public static void preload(@NonNull Class<?>... targetClasses) {
+        for (Class<?> targetClass : targetClasses) {
+            findBindingFactoryForClass(targetClass);
+        }
+    }
 
     @NonNull
     @UiThread
@@ -29,6 +83,10 @@ public class ORP {
         try {
             return bind(target);
         } catch (ORPExceptions e) {
+            ORPMetrics metrics = ORPMetrics.get();
+            if (metrics != null) {
+                metrics.onBindFailure();
+            }
             Log.e(TAG, e.getMessage(), e);
         }
         return Unbinder.EMPTY;
@@ -37,63 +95,116 @@ public class ORP {
     @NonNull
     @UiThread
     public static Unbinder bind(@NonNull Activity target) {
-        return createBinding(target);
+        ORPMetrics metrics = ORPMetrics.get();
+        long start = metrics != null ? System.nanoTime() : 0;
+        ORPTracing.beginSection(ORPTracing.SECTION_BIND);
+        try {
+            return createBinding(target);
+        } finally {
+            ORPTracing.endSection(ORPTracing.SECTION_BIND);
+            if (metrics != null) {
+                metrics.onBind(System.nanoTime() - start);
+            }
+        }
     }
 
     private static Unbinder createBinding(@NonNull Object target) {
         Class<?> targetClass = target.getClass();
-        Log.d(TAG, "Looking up binding for " + targetClass.getName());
-        Constructor<? extends Unbinder> constructor = findBindingConstructorForClass(targetClass);
+        if (debug) Log.d(TAG, "Looking up binding for " + targetClass.getName());
+        BindingFactory factory = findBindingFactoryForClass(targetClass);
 
-        if (constructor == null) {
+        if (factory == null) {
             return Unbinder.EMPTY;
         }
-
-        //noinspection TryWithIdenticalCatches Resolves to API 19+ only type.
-        try {
-            return constructor.newInstance(target);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException("Unable to invoke " + constructor, e);
-        } catch (InstantiationException e) {
-            throw new RuntimeException("Unable to invoke " + constructor, e);
-        } catch (InvocationTargetException e) {
-            Throwable cause = e.getCause();
-            if (cause instanceof RuntimeException) {
-                throw (RuntimeException) cause;
-            }
-            if (cause instanceof Error) {
-                throw (Error) cause;
-            }
-            throw new RuntimeException("Unable to create binding instance.", cause);
-        }
+        return factory.create(target);
     }
 
     @Nullable
     @CheckResult
-    @UiThread
-    private static Constructor<? extends Unbinder> findBindingConstructorForClass(Class<?> cls) {
-        Constructor<? extends Unbinder> bindingCtor = BINDINGS.get(cls);
-        if (bindingCtor != null) {
-            Log.d(TAG, "HIT: Cached in binding map.");
-            return bindingCtor;
+    private static BindingFactory findBindingFactoryForClass(Class<?> cls) {
+        ORPMetrics metrics = ORPMetrics.get();
+        BindingFactory bindingFactory = BINDINGS.get(cls);
+        if (bindingFactory != null) {
+            if (metrics != null) {
+                metrics.onBindingCacheHit();
+            }
+            if (debug) Log.d(TAG, "HIT: Cached in binding map.");
+            return bindingFactory != NO_BINDING ? bindingFactory : null;
         }
         String clsName = cls.getName();
         if (clsName.startsWith("android.") || clsName.startsWith("java.")) {
-            Log.d(TAG, "MISS: Reached framework class. Abandoning search.");
+            if (debug) Log.d(TAG, "MISS: Reached framework class. Abandoning search.");
             return null;
         }
-        try {
-            Class<?> bindingClass = Class.forName(clsName + "_ORPBinding");
-            //noinspection unchecked
-            bindingCtor = (Constructor) bindingClass.getConstructor(cls);
-            Log.d(TAG, "HIT: Loaded binding class and constructor.");
-        } catch (ClassNotFoundException e) {
-            Log.d(TAG, "Not found. Trying superclass " + cls.getSuperclass().getName());
-            bindingCtor = findBindingConstructorForClass(cls.getSuperclass());
-        } catch (NoSuchMethodException e) {
-            throw new RuntimeException("Unable to find binding constructor for " + clsName, e);
+        if (metrics != null) {
+            metrics.onBindingCacheMiss();
+        }
+        bindingFactory = findIndexedBindingFactory(cls);
+        if (bindingFactory != null) {
+            if (debug) Log.d(TAG, "HIT: Found in binding index.");
+        } else {
+            try {
+                Class<?> bindingClass = Class.forName(clsName + "_ORPBinding");
+                //noinspection unchecked
+                bindingFactory = new ReflectiveBindingFactory((Constructor) bindingClass.getConstructor(cls));
+                if (debug) Log.d(TAG, "HIT: Loaded binding class and constructor.");
+            } catch (ClassNotFoundException e) {
+                if (debug) Log.d(TAG, "Not found. Trying superclass " + cls.getSuperclass().getName());
+                bindingFactory = findBindingFactoryForClass(cls.getSuperclass());
+            } catch (NoSuchMethodException e) {
+                throw new RuntimeException("Unable to find binding constructor for " + clsName, e);
+            }
+        }
+        // Concurrent lookups of the same class resolve to equivalent factories, keep the first one.
+        BindingFactory cached = BINDINGS.putIfAbsent(cls, bindingFactory != null ? bindingFactory : NO_BINDING);
+        if (cached != null) {
+            return cached != NO_BINDING ? cached : null;
+        }
+        return bindingFactory;
+    }
+
+    @Nullable
+    private static BindingFactory findIndexedBindingFactory(Class<?> cls) {
+        for (int i = 0, count = INDEXES.size(); i < count; i++) {
+            BindingFactory bindingFactory = INDEXES.get(i).getBindingFactory(cls);
+            if (bindingFactory != null) {
+                return bindingFactory;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fallback used for the bindings that aren't listed in any installed {@link ORPIndex}.
+     */
+    private static final class ReflectiveBindingFactory implements BindingFactory {
+
+        private final Constructor<? extends Unbinder> constructor;
+
+        ReflectiveBindingFactory(Constructor<? extends Unbinder> constructor) {
+            this.constructor = constructor;
+        }
+
+        @NonNull
+        @Override
+        public Unbinder create(@NonNull Object target) {
+            //noinspection TryWithIdenticalCatches Resolves to API 19+ only type.
+            try {
+                return constructor.newInstance(target);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Unable to invoke " + constructor, e);
+            } catch (InstantiationException e) {
+                throw new RuntimeException("Unable to invoke " + constructor, e);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException("Unable to create binding instance.", cause);
+            }
         }
-        BINDINGS.put(cls, bindingCtor);
-        return bindingCtor;
     }
 }
@@ -0,0 +1,34 @@
+package com.github.aistech.orp;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Index of the bindings generated for a module, so {@link ORP#bind} can find them with a map
+ * lookup instead of {@code Class.forName}.
+ * <p>
+ * The index is only generated when the annotation processor receives the fully qualified name
+ * of the class to create, e.g. in your module's {@code build.gradle}:
+ * <pre>{@code
+ * javaCompileOptions {
+ *     annotationProcessorOptions {
+ *         arguments = ['com.github.aistech.orp.index': 'com.example.MyORPIndex']
+ *     }
+ * }
+ * }</pre>
+ * and then installed once, preferably on {@code Application#onCreate}:
+ * <pre>{@code
+ * ORP.addIndex(new MyORPIndex());
+ * }</pre>
+ * Classes not covered by any installed index keep being resolved through reflection.
+ */
+public interface ORPIndex {
+
+    /**
+     * @param targetClass the exact class of the activity being bound.
+     * @return the factory of the binding generated for this class, or null if this index doesn't
+     * know the class.
+     */
+    @Nullable
+    BindingFactory getBindingFactory(@NonNull Class<?> targetClass);
+}
@@ -0,0 +1,73 @@
+package com.github.aistech.orp;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.UiThread;
+import android.support.annotation.WorkerThread;
+
+import com.github.aistech.orp.exceptions.ORPExceptions;
+
+import java.util.List;
+
+/**
+ * A {@code @DestinationExtraObject} field declared as {@code PageCursor<T>} is bound to the pages
+ * of a {@link PageSource} passed through
+ * {@link com.github.aistech.orp.builder.ORPBuilder#passingPages}. Binding never waits for them:
+ * <pre>{@code
+ * @DestinationExtraObject("items")
+ * PageCursor<Item> items;
+ * ...
+ * items.nextPage(new PageCursor.Callback<Item>() {
+ *     public void onPage(List<Item> page) { adapter.addAll(page); }
+ *     public void onEnd() { adapter.hideSpinner(); }
+ *     public void onFailed(ORPExceptions error) { showError(); }
+ * });
+ * }</pre>
+ * The pages are loaded ahead of time, but only a few of them: once as many pages as the prefetch
+ * window allows are waiting to be taken, loading stops until the destination takes one.
+ *
+ * @param <T> the type of the items.
+ */
+public interface PageCursor<T> {
+
+    /**
+     * Calls back on the main thread with the next page once it's loaded, or right away if it
+     * already is and this is called from the main thread. Every call takes a page of its own.
+     *
+     * @param callback
+     */
+    void nextPage(@NonNull Callback<T> callback);
+
+    /**
+     * Waits for the next page.
+     *
+     * @return the next page, empty once they were all taken.
+     * @throws ORPExceptions if the page couldn't be loaded, or the cursor was closed.
+     */
+    @WorkerThread
+    @NonNull
+    List<T> takePage() throws ORPExceptions;
+
+    /**
+     * @return true once all the pages were taken.
+     */
+    boolean isExhausted();
+
+    /**
+     * Stops loading pages, the ones left aren't needed anymore.
+     */
+    void close();
+
+    interface Callback<T> {
+        @UiThread
+        void onPage(@NonNull List<T> page);
+
+        /**
+         * Called instead of {@link #onPage} once all the pages were taken.
+         */
+        @UiThread
+        void onEnd();
+
+        @UiThread
+        void onFailed(@NonNull ORPExceptions error);
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.aistech.orp;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import java.util.List;
+
+/**
+ * Loads a big dataset a page at a time, for a destination to show the first items before the
+ * rest is loaded. Passed through {@link com.github.aistech.orp.builder.ORPBuilder#passingPages},
+ * the destination binds it as a {@link PageCursor}.
+ * <p>
+ * Pages are loaded one after the other, never concurrently, so a source doesn't need to be
+ * thread-safe.
+ *
+ * @param <T> the type of the items.
+ */
+public interface PageSource<T> {
+
+    /**
+     * @param offset index of the first item of the page.
+     * @param count  how many items the page holds, at most.
+     * @return the items of the page, fewer than {@code count} once the end is reached.
+     * @throws Exception if the page can't be loaded, failing the cursor.
+     */
+    @WorkerThread
+    @NonNull
+    List<T> loadPage(int offset, int count) throws Exception;
+}
@@ -5,6 +5,7 @@ import android.support.annotation.Nullable;
 import android.support.v7.app.AppCompatActivity;
 
 import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -13,6 +14,10 @@ import com.github.aistech.orp.ORP;
 import com.github.aistech.orp.Unbinder;
 import com.github.aistech.orp.annotations.DestinationExtraObject;
 import com.github.aistech.orp.exceptions.ORPExceptions;
+import com.github.aistech.orp.leaks.HandoffLeakDetector;
+import com.github.aistech.orp.sharedmemory.SharedMemory;
+import com.github.aistech.orp.sharedmemory.SharedParameter;
+import com.github.aistech.orp.sharedmemory.SharedPayload;
 import com.github.aistech.orp.singletons.ORPSingleton;
 
 /**
@@ -23,35 +28,72 @@ import com.github.aistech.orp.singletons.ORPSingleton;
 public class ORPActivity extends AppCompatActivity {
 
     /**
-     * This constant is used recover the Caller (or if you want, origin) activity's hashCode who started
-     * the current activity. This code is used to recover the extra parameters sent to the current activity.
+     * This constant is used to recover the handoff token generated when the current activity was
+     * built by {@link com.github.aistech.orp.builder.ORPBuilder}. The token identifies the extra
+     * parameters sent to this launch of the current activity, and no other.
      */
-    public static final String HASH_CODE_EXTRA = ORPActivity.class.getName().concat("originActivityHashCode");
+    public static final String HANDOFF_TOKEN_EXTRA = ORPActivity.class.getName().concat("handoffToken");
 
-    private Integer activityCallerHashCode;
+    /**
+     * The handles of the parameters passed through {@link SharedMemory}, which can be recovered
+     * from another process than the one that built the Intent.
+     */
+    public static final String SHARED_PAYLOADS_EXTRA = ORPActivity.class.getName().concat("sharedPayloads");
+
+    /**
+     * How many destinations of this process share the payloads of {@link #SHARED_PAYLOADS_EXTRA},
+     * when there are more than one, so the files are only deleted once the last of them finished.
+     */
+    public static final String SHARED_CONSUMERS_EXTRA = ORPActivity.class.getName().concat("sharedConsumers");
+
+    private long handoffToken = ORPSingleton.NO_TOKEN;
     private Unbinder unbinder;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
-        recoverOriginHashCode();
+        recoverHandoffToken();
     }
 
     protected void onCreate(@Nullable Bundle savedInstanceState, ORPActivity thisActivity) {
         super.onCreate(savedInstanceState);
 
-        recoverOriginHashCode();
+        recoverHandoffToken();
         parseParameters(thisActivity);
     }
 
-    private void recoverOriginHashCode() {
+    private void recoverHandoffToken() {
         // God damn it Android, why don't you at least initialize the extras ¬¬
-        if (getIntent().getExtras() != null && getIntent().getExtras().containsKey(HASH_CODE_EXTRA)) {
-            this.activityCallerHashCode = getIntent().getIntExtra(HASH_CODE_EXTRA, 0);
+        if (getIntent().getExtras() != null && getIntent().getExtras().containsKey(HANDOFF_TOKEN_EXTRA)) {
+            this.handoffToken = getIntent().getLongExtra(HANDOFF_TOKEN_EXTRA, ORPSingleton.NO_TOKEN);
+
+            adoptSharedPayloads();
+
+            HandoffLeakDetector leakDetector = HandoffLeakDetector.get();
+            if (leakDetector != null) {
+                leakDetector.onDestinationCreated(this.handoffToken, this);
+            }
         }
     }
 
+    /**
+     * Launched from another process, the handoff of this launch isn't in this one, so it's made
+     * of the parameters passed through shared memory, the only ones able to cross.
+     */
+    private void adoptSharedPayloads() {
+        String sharedPayloads = getIntent().getStringExtra(SHARED_PAYLOADS_EXTRA);
+        if (sharedPayloads == null) {
+            return;
+        }
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        for (Map.Entry<String, SharedPayload> payload : SharedPayload.decodeAll(sharedPayloads).entrySet()) {
+            parameters.put(payload.getKey(), new SharedParameter(payload.getValue()));
+        }
+        ORPSingleton.getInstance().adopt(this.handoffToken, parameters,
+                getIntent().getIntExtra(SHARED_CONSUMERS_EXTRA, 1));
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -61,10 +103,15 @@ public class ORPActivity extends AppCompatActivity {
         }
 
         /*
-            As soon as this activity is destroyed, we remove the extras parameters from the singleton
-            that was sent to this one, because it won't need anymore.
+            As soon as this activity is finished, we remove the extras parameters from the singleton
+            that was sent to this one, because it won't need anymore. When it's only being recreated,
+            e.g. on rotation, the new instance is started with the same Intent, so we keep them
+            for it to bind the very same references again.
         */
-        ORPSingleton.getInstance().clearCurrentActivityParameters(this.activityCallerHashCode);
+        if (isFinishing() && !isChangingConfigurations()
+                && ORPSingleton.getInstance().clearCurrentActivityParameters(this.handoffToken)) {
+            SharedMemory.delete(getIntent().getStringExtra(SHARED_PAYLOADS_EXTRA));
+        }
     }
 
     /* Utils */
@@ -85,7 +132,7 @@ public class ORPActivity extends AppCompatActivity {
 
     /* getters and Setters */
 
-    public Integer getActivityCallerHashCode() {
-        return activityCallerHashCode;
+    public long getHandoffToken() {
+        return handoffToken;
     }
 }
@@ -8,6 +8,8 @@ import java.lang.annotation.Target;
 /**
  * This annotation should be used if you want to recover the object reference
  * sent by the caller activity.
+ * Declare the field as {@code com.github.aistech.orp.Lazy<T>} to only look the object up
+ * the first time it's used.
  * Created by Jonathan Nobre Ferreira on 07/12/16.
  */
 
@@ -16,4 +18,10 @@ import java.lang.annotation.Target;
 public @interface DestinationExtraObject {
 
     String value() default "";
+
+    /**
+     * Whether the object must be passed. When it's missing, an optional field, or one annotated
+     * with {@code @Nullable}, is just left null, and the other fields are still bound.
+     */
+    boolean required() default true;
 }
@@ -1,12 +1,44 @@
 package com.github.aistech.orp.builder;
 
+import android.app.Activity;
+import android.content.ComponentName;
+import android.content.Context;
 import android.content.Intent;
+import android.content.pm.PackageManager;
 
+import android.support.annotation.NonNull;
+
+import com.github.aistech.orp.PageSource;
 import com.github.aistech.orp.activities.ORPActivity;
+import com.github.aistech.orp.exceptions.ORPExceptions;
+import com.github.aistech.orp.metrics.ORPMetrics;
+import com.github.aistech.orp.sharedmemory.SharedMemory;
+import com.github.aistech.orp.sharedmemory.SharedParameter;
+import com.github.aistech.orp.sharedmemory.SharedPayload;
+import com.github.aistech.orp.singletons.DeferredParameter;
 import com.github.aistech.orp.singletons.ORPSingleton;
+import com.github.aistech.orp.singletons.PagedParameter;
+import com.github.aistech.orp.singletons.PrimitiveParameters;
+import com.github.aistech.orp.singletons.ReferenceStrength;
+import com.github.aistech.orp.tracing.ORPTracing;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Builder used to create all the resources needed to start a new activity
@@ -16,10 +48,37 @@ import java.util.Map;
 
 public class ORPBuilder {
 
+    /**
+     * How long a destination binding a deferred parameter waits for it, unless told otherwise.
+     * Keep it well below the 5 seconds after which Android reports the app as not responding.
+     */
+    public static final long DEFAULT_DEFERRED_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * How many items a page passed through {@link #passingPages} holds, unless told otherwise.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    /**
+     * How many pages are loaded ahead of the destination, unless told otherwise.
+     */
+    public static final int DEFAULT_PREFETCH_PAGES = 2;
+
+    private static volatile Executor deferredExecutor;
+    private static volatile SharedMemory sharedMemory;
+    /**
+     * The processes the activities run in, by class, which never change while the app runs.
+     */
+    private static final ConcurrentMap<Class<?>, String> PROCESS_NAMES = new ConcurrentHashMap<>();
+
     private ORPActivity originActivity;
     private Class<? extends ORPActivity> destinationActivity;
 
     private Map<String, Object> parameters;
+    private Map<String, ReferenceStrength> strengths;
+    private PrimitiveParameters primitives;
+    private Map<String, Object> sharedParameters;
+    private Map<String, PerBuildParameter> perBuildParameters;
 
     /**
      * You shall init this builder passing the origin activity, a.k.a the source Activity.
@@ -29,6 +88,7 @@ public class ORPBuilder {
     public ORPBuilder(ORPActivity originActivity) {
         this.originActivity = originActivity;
         this.parameters = new LinkedHashMap<>();
+        this.strengths = new LinkedHashMap<>();
     }
 
     /**
@@ -53,21 +113,573 @@ public class ORPBuilder {
      * @return
      */
     public ORPBuilder passingObject(String key, Object object) {
+        return passingObject(key, object, ReferenceStrength.STRONG);
+    }
+
+    /**
+     * Same as {@link #passingObject(String, Object)}, but lets the object be released before the
+     * destination binds it if memory runs low. Good for big objects you can recreate, like bitmaps.
+     *
+     * @param key
+     * @param object
+     * @param strength how strongly the object is held until the destination binds it.
+     * @return
+     */
+    public ORPBuilder passingObject(String key, Object object, ReferenceStrength strength) {
+        if (this.primitives != null) {
+            this.primitives.remove(key);
+        }
+        if (this.sharedParameters != null) {
+            this.sharedParameters.remove(key);
+        }
+        if (this.perBuildParameters != null) {
+            this.perBuildParameters.remove(key);
+        }
         this.parameters.put(key, object);
+        if (strength == ReferenceStrength.STRONG) {
+            this.strengths.remove(key);
+        } else {
+            this.strengths.put(key, strength);
+        }
+        return this;
+    }
+
+    /**
+     * Passes an int without boxing it. The destination can bind it to an {@code int} field, or
+     * any narrower primitive.
+     *
+     * @param key
+     * @param value
+     * @return
+     */
+    public ORPBuilder passingInt(String key, int value) {
+        getPrimitives(key).putInt(key, value);
+        return this;
+    }
+
+    /**
+     * Passes a long without boxing it.
+     *
+     * @param key
+     * @param value
+     * @return
+     */
+    public ORPBuilder passingLong(String key, long value) {
+        getPrimitives(key).putLong(key, value);
+        return this;
+    }
+
+    /**
+     * Passes a double without boxing it. The destination can bind it to a {@code float} field too.
+     *
+     * @param key
+     * @param value
+     * @return
+     */
+    public ORPBuilder passingDouble(String key, double value) {
+        getPrimitives(key).putDouble(key, value);
+        return this;
+    }
+
+    /**
+     * Passes a boolean without boxing it.
+     *
+     * @param key
+     * @param value
+     * @return
+     */
+    public ORPBuilder passingBoolean(String key, boolean value) {
+        getPrimitives(key).putBoolean(key, value);
+        return this;
+    }
+
+    private PrimitiveParameters getPrimitives(String key) {
+        this.parameters.remove(key);
+        this.strengths.remove(key);
+        if (this.sharedParameters != null) {
+            this.sharedParameters.remove(key);
+        }
+        if (this.perBuildParameters != null) {
+            this.perBuildParameters.remove(key);
+        }
+        if (this.primitives == null) {
+            this.primitives = new PrimitiveParameters();
+        }
+        return this.primitives;
+    }
+
+    /**
+     * Passes the object through the {@link #setSharedMemory shared memory}, so a destination running
+     * in another process of the app can bind it too. It's written in a shared file by each
+     * {@link #build()}, once per process of the destinations for a {@link #buildShared}, and
+     * mapped by the destination when bound: declare the field as a {@link java.nio.ByteBuffer} to
+     * bind the mapping itself, without any copy.
+     * <p>
+     * Only the parameters passed this way reach a destination in another process, nothing else
+     * is held for it in this one. The destinations' processes are read from the manifest.
+     *
+     * @param key
+     * @param object a {@code byte[]}, a {@link java.nio.ByteBuffer}, or an object whose type has
+     *               a generated codec.
+     * @return
+     * @throws IllegalArgumentException if the object can't be shared.
+     * @throws IllegalStateException    if no shared memory was set.
+     */
+    public ORPBuilder passingShared(String key, Object object) {
+        if (sharedMemory == null) {
+            throw new IllegalStateException("Set the shared memory with ORPBuilder.setSharedMemory() first");
+        }
+        if (!SharedMemory.canShare(object)) {
+            throw new IllegalArgumentException("The parameter '" + key + "' can't be shared, it isn't a byte[] or a "
+                    + "ByteBuffer, and has no codec");
+        }
+        this.parameters.remove(key);
+        this.strengths.remove(key);
+        if (this.primitives != null) {
+            this.primitives.remove(key);
+        }
+        if (this.perBuildParameters != null) {
+            this.perBuildParameters.remove(key);
+        }
+        if (this.sharedParameters == null) {
+            this.sharedParameters = new LinkedHashMap<>();
+        }
+        this.sharedParameters.put(key, object);
+        return this;
+    }
+
+    /**
+     * Sets where the objects passed with {@link #passingShared} are written.
+     *
+     * @param memory
+     */
+    public static void setSharedMemory(@NonNull SharedMemory memory) {
+        sharedMemory = memory;
+    }
+
+    /**
+     * Writes the shared parameters, if any.
+     *
+     * @param payloads where their handles are put, by key.
+     * @return the parameters to register, with the shared ones, so a destination in this process
+     * maps them as well.
+     */
+    private Map<String, Object> writeSharedParameters(Map<String, SharedPayload> payloads) {
+        if (this.sharedParameters == null || this.sharedParameters.isEmpty()) {
+            return this.parameters;
+        }
+        Map<String, Object> parameters = new LinkedHashMap<>(this.parameters);
+        boolean written = false;
+        try {
+            for (Map.Entry<String, Object> shared : this.sharedParameters.entrySet()) {
+                SharedPayload payload;
+                try {
+                    payload = sharedMemory.write(shared.getValue());
+                } catch (IOException e) {
+                    throw new ORPExceptions("Unable to share the parameter '" + shared.getKey() + "'", e);
+                }
+                payloads.put(shared.getKey(), payload);
+                parameters.put(shared.getKey(), new SharedParameter(payload));
+            }
+            written = true;
+        } finally {
+            if (!written) {
+                // Whatever failed, a codec or the disk, no destination will get the ones written.
+                deletePayloads(payloads);
+            }
+        }
+        return parameters;
+    }
+
+    private static void deletePayloads(Map<String, SharedPayload> payloads) {
+        for (SharedPayload payload : payloads.values()) {
+            payload.delete();
+        }
+    }
+
+    /**
+     * @return the name of the process the activity runs in, as declared in the manifest.
+     */
+    private static String getProcessName(Context context, Class<? extends Activity> activity) {
+        String processName = PROCESS_NAMES.get(activity);
+        if (processName == null) {
+            try {
+                processName = context.getPackageManager()
+                        .getActivityInfo(new ComponentName(context, activity), 0).processName;
+            } catch (PackageManager.NameNotFoundException e) {
+                throw new ORPExceptions(activity.getName() + " isn't declared in the manifest", e);
+            }
+            PROCESS_NAMES.put(activity, processName);
+        }
+        return processName;
+    }
+
+    /**
+     * Groups the destinations by the process they run in, the one of the origin under null.
+     * Only the shared parameters can reach the other processes, so without them every destination
+     * is taken as running in the origin's one, without asking the package manager.
+     *
+     * @param destinations
+     * @return the indexes of the destinations, by process.
+     */
+    private Map<String, List<Integer>> groupByProcess(List<Class<? extends ORPActivity>> destinations) {
+        Map<String, List<Integer>> processes = new LinkedHashMap<>();
+        processes.put(null, new ArrayList<Integer>(destinations.size()));
+        boolean sharing = this.sharedParameters != null && !this.sharedParameters.isEmpty();
+        String originProcess = sharing ? getProcessName(this.originActivity, this.originActivity.getClass()) : null;
+        for (int i = 0; i < destinations.size(); i++) {
+            String process = sharing ? getProcessName(this.originActivity, destinations.get(i)) : null;
+            if (process != null && process.equals(originProcess)) {
+                process = null;
+            }
+            List<Integer> group = processes.get(process);
+            if (group == null) {
+                group = new ArrayList<>();
+                processes.put(process, group);
+            }
+            group.add(i);
+        }
+        if (processes.get(null).isEmpty()) {
+            processes.remove(null);
+        }
+        return processes;
+    }
+
+    /**
+     * Passes a dataset a page at a time instead of all at once, for big lists the origin would
+     * otherwise load entirely before starting the destination. Each {@link #build()} starts
+     * loading the first pages, on the {@link #setDeferredExecutor deferred executor}, and the
+     * destination binds a {@link com.github.aistech.orp.PageCursor} taking them as it needs them,
+     * showing the first one without waiting for the others.
+     * <p>
+     * Pages can't be persisted, a destination recreated after its process died won't find them.
+     * The destinations of a {@link #buildShared} share the cursor, each page goes to the first of
+     * them taking it.
+     *
+     * @param key
+     * @param source
+     * @return
+     */
+    public ORPBuilder passingPages(String key, PageSource<?> source) {
+        return passingPages(key, source, DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH_PAGES);
+    }
+
+    /**
+     * Same as {@link #passingPages(String, PageSource)}, with the size of the pages and how many
+     * of them are loaded ahead of the destination, at most.
+     *
+     * @param key
+     * @param source
+     * @param pageSize
+     * @param prefetchPages
+     * @return
+     */
+    public ORPBuilder passingPages(String key, PageSource<?> source, int pageSize, int prefetchPages) {
+        return passingPages(key, new PagedSpec(source, null, pageSize, prefetchPages));
+    }
+
+    /**
+     * Same as {@link #passingPages(String, PageSource, int, int)}, paging the items of an
+     * iterator. Each {@link #build()} asks the supplier for a new iterator, in the background.
+     *
+     * @param key
+     * @param iteratorSupplier
+     * @param pageSize
+     * @param prefetchPages
+     * @return
+     */
+    public ORPBuilder passingPages(String key, Callable<? extends Iterator<?>> iteratorSupplier, int pageSize,
+                                   int prefetchPages) {
+        return passingPages(key, new PagedSpec(null, iteratorSupplier, pageSize, prefetchPages));
+    }
+
+    private ORPBuilder passingPages(String key, PagedSpec spec) {
+        if (spec.pageSize < 1 || spec.prefetchPages < 1) {
+            throw new IllegalArgumentException("The page size and the number of pages loaded ahead must be positive");
+        }
+        return passingPerBuild(key, spec);
+    }
+
+    private ORPBuilder passingPerBuild(String key, PerBuildParameter parameter) {
+        this.parameters.remove(key);
+        this.strengths.remove(key);
+        if (this.primitives != null) {
+            this.primitives.remove(key);
+        }
+        if (this.sharedParameters != null) {
+            this.sharedParameters.remove(key);
+        }
+        if (this.perBuildParameters == null) {
+            this.perBuildParameters = new LinkedHashMap<>();
+        }
+        this.perBuildParameters.put(key, parameter);
         return this;
     }
 
+    /**
+     * Starts the paged and deferred parameters, if any, for a new build.
+     *
+     * @param parameters the parameters to register.
+     * @return the parameters to register, with the ones started.
+     */
+    private Map<String, Object> startPerBuildParameters(Map<String, Object> parameters) {
+        if (this.perBuildParameters == null || this.perBuildParameters.isEmpty()) {
+            return parameters;
+        }
+        if (parameters == this.parameters) {
+            parameters = new LinkedHashMap<>(this.parameters);
+        }
+        Executor executor = getDeferredExecutor();
+        for (Map.Entry<String, PerBuildParameter> parameter : this.perBuildParameters.entrySet()) {
+            parameters.put(parameter.getKey(), parameter.getValue().start(executor));
+        }
+        return parameters;
+    }
+
+    /**
+     * A parameter started again by every build, since each handoff releases, or cancels, its own
+     * once its destinations are done with it.
+     */
+    private interface PerBuildParameter {
+        Object start(Executor executor);
+    }
+
+    private static final class PagedSpec implements PerBuildParameter {
+        final PageSource<?> source;
+        final Callable<? extends Iterator<?>> iteratorSupplier;
+        final int pageSize;
+        final int prefetchPages;
+
+        PagedSpec(PageSource<?> source, Callable<? extends Iterator<?>> iteratorSupplier, int pageSize,
+                  int prefetchPages) {
+            this.source = source;
+            this.iteratorSupplier = iteratorSupplier;
+            this.pageSize = pageSize;
+            this.prefetchPages = prefetchPages;
+        }
+
+        @Override
+        public Object start(Executor executor) {
+            // An iterator can only be walked once, so each build pages a source of its own.
+            PageSource<?> pages = source != null ? source : PagedParameter.fromIterator(iteratorSupplier);
+            return PagedParameter.start(pages, pageSize, prefetchPages, executor);
+        }
+    }
+
+    private static final class DeferredSpec implements PerBuildParameter {
+        final Callable<?> callable;
+        final long timeoutMillis;
+
+        DeferredSpec(Callable<?> callable, long timeoutMillis) {
+            this.callable = callable;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        @Override
+        public Object start(Executor executor) {
+            return DeferredParameter.submit(callable, executor, timeoutMillis);
+        }
+    }
+
+    /**
+     * Starts computing the object on the {@link #setDeferredExecutor deferred executor} as soon as
+     * {@link #build()} is called, so the work overlaps with the launch of the destination instead
+     * of delaying it. Every build calls the callable again, for its own destination. A plain
+     * field waits for it when bound, up to {@link #DEFAULT_DEFERRED_TIMEOUT_MILLIS}; declare the
+     * field as {@link com.github.aistech.orp.Lazy} or {@link com.github.aistech.orp.Deferred}
+     * to wait later, or be called back, instead.
+     *
+     * @param key
+     * @param callable
+     * @return
+     */
+    public ORPBuilder passingDeferred(String key, Callable<?> callable) {
+        return passingDeferred(key, callable, DEFAULT_DEFERRED_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Same as {@link #passingDeferred(String, Callable)}, with the longest the destination may
+     * wait for the object when binding it.
+     *
+     * @param key
+     * @param callable
+     * @param timeout
+     * @param timeUnit
+     * @return
+     */
+    public ORPBuilder passingDeferred(String key, Callable<?> callable, long timeout, TimeUnit timeUnit) {
+        return passingPerBuild(key, new DeferredSpec(callable, timeUnit.toMillis(timeout)));
+    }
+
+    /**
+     * Same as {@link #passingDeferred(String, Callable)} for an object already being computed.
+     * A thread of the deferred executor waits for the future, so the destination can be called
+     * back when it's done. The future itself is never cancelled, every build waits for it.
+     *
+     * @param key
+     * @param future
+     * @return
+     */
+    public ORPBuilder passingFuture(String key, final Future<?> future) {
+        return passingDeferred(key, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return future.get();
+            }
+        });
+    }
+
+    /**
+     * Sets where the deferred objects are computed. By default, an unbounded pool of background threads.
+     *
+     * @param executor
+     */
+    public static void setDeferredExecutor(@NonNull Executor executor) {
+        deferredExecutor = executor;
+    }
+
+    /**
+     * Used by the generated {@code _ORPBuilder}s, you shouldn't need to call this yourself.
+     *
+     * @param callable
+     * @return what to store in the slot, submitted again by each {@link #buildWithSlots}.
+     */
+    public static Object defer(Callable<?> callable) {
+        return new DeferredSpec(callable, DEFAULT_DEFERRED_TIMEOUT_MILLIS);
+    }
+
+    private static Executor getDeferredExecutor() {
+        Executor executor = deferredExecutor;
+        return executor != null ? executor : DefaultExecutor.EXECUTOR;
+    }
+
+    /**
+     * Only created if no executor was set before the first deferred object.
+     */
+    private static final class DefaultExecutor {
+        static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, "ORP-deferred-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
     /**
      * In case you need the Intent already configured to use in other situations, I'll gonna be
      * good with you, you can get the all set Intent using this method.
+     * <p>
+     * Every call registers a new, independent handoff, so the same builder can be used to
+     * launch several destinations without them sharing or clearing each other's parameters.
      *
      * @return
      */
     public Intent build() {
-        ORPSingleton.getInstance().addOriginActivity(this.originActivity, this.parameters);
-        Intent intent = new Intent(this.originActivity, this.destinationActivity);
-        intent.putExtra(ORPActivity.HASH_CODE_EXTRA, this.originActivity.hashCode());
-        return intent;
+        return buildIntents(Collections.<Class<? extends ORPActivity>>singletonList(this.destinationActivity))[0];
+    }
+
+    /**
+     * Registers the parameters once for several destinations, instead of once per {@link #build()}.
+     * They all bind the very same objects, nothing is copied per destination, and the parameters
+     * are held until the last of them is finished.
+     * <pre>{@code
+     * Intent[] intents = new ORPBuilder(this)
+     *         .passingObject("dataset", dataset)
+     *         .buildShared(DetailPagerActivity.class, ShareActivity.class);
+     * }</pre>
+     * Every destination given must be started, or the parameters are held until evicted.
+     *
+     * @param destinationActivities
+     * @return an Intent per destination, in the same order.
+     */
+    @SafeVarargs
+    public final Intent[] buildShared(Class<? extends ORPActivity>... destinationActivities) {
+        // Only the elements are read, the array itself doesn't escape.
+        List<Class<? extends ORPActivity>> destinations = new ArrayList<>(destinationActivities.length);
+        for (Class<? extends ORPActivity> destinationActivity : destinationActivities) {
+            destinations.add(destinationActivity);
+        }
+        return buildIntents(destinations);
+    }
+
+    /**
+     * Registers the parameters for the destinations running in this process. The ones running in
+     * another process can only get the shared parameters, which are written again for each such
+     * process, and nothing is registered here for them: they adopt their payloads there, and the
+     * last of them to finish deletes the files.
+     *
+     * @param destinations
+     * @return an Intent per destination, in the same order.
+     */
+    private Intent[] buildIntents(List<Class<? extends ORPActivity>> destinations) {
+        ORPTracing.beginSection(ORPTracing.SECTION_BUILD);
+        try {
+            Map<String, List<Integer>> processes = groupByProcess(destinations);
+            // Everything is written before anything is registered, so a failure leaves nothing behind.
+            List<Map<String, SharedPayload>> payloads = new ArrayList<>(processes.size());
+            Map<String, Object> parameters = null;
+            boolean written = false;
+            try {
+                for (String process : processes.keySet()) {
+                    Map<String, SharedPayload> processPayloads = new LinkedHashMap<>();
+                    payloads.add(processPayloads);
+                    Map<String, Object> processParameters = writeSharedParameters(processPayloads);
+                    if (process == null) {
+                        parameters = processParameters;
+                    }
+                }
+                written = true;
+            } finally {
+                if (!written) {
+                    for (Map<String, SharedPayload> processPayloads : payloads) {
+                        deletePayloads(processPayloads);
+                    }
+                }
+            }
+
+            Intent[] intents = new Intent[destinations.size()];
+            int processIndex = 0;
+            for (Map.Entry<String, List<Integer>> process : processes.entrySet()) {
+                List<Integer> group = process.getValue();
+                Map<String, SharedPayload> processPayloads = payloads.get(processIndex++);
+                long token;
+                if (process.getKey() == null) {
+                    token = register(parameters, group.size());
+                } else {
+                    token = ORPSingleton.getInstance().issueToken();
+                }
+                String encodedPayloads = processPayloads.isEmpty() ? null : SharedPayload.encodeAll(processPayloads);
+                for (int i : group) {
+                    Intent intent = new Intent(this.originActivity, destinations.get(i));
+                    intent.putExtra(ORPActivity.HANDOFF_TOKEN_EXTRA, token);
+                    if (encodedPayloads != null) {
+                        intent.putExtra(ORPActivity.SHARED_PAYLOADS_EXTRA, encodedPayloads);
+                    }
+                    if (process.getKey() != null && group.size() > 1) {
+                        intent.putExtra(ORPActivity.SHARED_CONSUMERS_EXTRA, group.size());
+                    }
+                    intents[i] = intent;
+                }
+            }
+            return intents;
+        } finally {
+            ORPTracing.endSection(ORPTracing.SECTION_BUILD);
+        }
+    }
+
+    private long register(Map<String, Object> parameters, int consumers) {
+        parameters = startPerBuildParameters(parameters);
+        long token = ORPSingleton.getInstance().registerShared(parameters, this.strengths, this.primitives, consumers);
+        ORPMetrics metrics = ORPMetrics.get();
+        if (metrics != null) {
+            metrics.onParametersRegistered(parameters.size()
+                    + (this.primitives != null ? this.primitives.size() : 0));
+        }
+        return token;
     }
 
     /**
@@ -77,4 +689,54 @@ public class ORPBuilder {
     public void start() {
         this.originActivity.startActivity(build());
     }
+
+    /**
+     * Used by the generated {@code _ORPBuilder}s, you shouldn't need to call this yourself.
+     * Registers the slots filled by the generated builder and creates the Intent carrying their token.
+     *
+     * @param originActivity
+     * @param destinationActivity
+     * @param slots           a copy of the builder's, where its {@link #defer deferred} slots are
+     *                        submitted for this build.
+     * @return
+     */
+    public static Intent buildWithSlots(Activity originActivity, Class<? extends ORPActivity> destinationActivity,
+                                        Object[] slots) {
+        return buildWithSlots(originActivity, destinationActivity, slots, null);
+    }
+
+    /**
+     * Same as {@link #buildWithSlots(Activity, Class, Object[])}, for destinations with primitive fields.
+     *
+     * @param originActivity
+     * @param destinationActivity
+     * @param slots
+     * @param primitiveSlots
+     * @return
+     */
+    public static Intent buildWithSlots(Activity originActivity, Class<? extends ORPActivity> destinationActivity,
+                                        Object[] slots, long[] primitiveSlots) {
+        ORPTracing.beginSection(ORPTracing.SECTION_BUILD);
+        try {
+            Executor executor = null;
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i] instanceof PerBuildParameter) {
+                    if (executor == null) {
+                        executor = getDeferredExecutor();
+                    }
+                    slots[i] = ((PerBuildParameter) slots[i]).start(executor);
+                }
+            }
+            long token = ORPSingleton.getInstance().registerSlots(slots, primitiveSlots);
+            ORPMetrics metrics = ORPMetrics.get();
+            if (metrics != null) {
+                metrics.onParametersRegistered(slots.length + (primitiveSlots != null ? primitiveSlots.length : 0));
+            }
+            Intent intent = new Intent(originActivity, destinationActivity);
+            intent.putExtra(ORPActivity.HANDOFF_TOKEN_EXTRA, token);
+            return intent;
+        } finally {
+            ORPTracing.endSection(ORPTracing.SECTION_BUILD);
+        }
+    }
 }
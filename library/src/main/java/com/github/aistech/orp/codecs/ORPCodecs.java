@@ -0,0 +1,242 @@
+package com.github.aistech.orp.codecs;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.github.aistech.orp.exceptions.ORPExceptions;
+
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the {@link ParameterCodec}s, plus the helpers used by the generated ones.
+ * <p>
+ * Codecs are only generated when the annotation processor receives the
+ * {@code com.github.aistech.orp.codecs} option:
+ * <pre>{@code
+ * javaCompileOptions {
+ *     annotationProcessorOptions {
+ *         arguments = ['com.github.aistech.orp.codecs': 'true']
+ *     }
+ * }
+ * }</pre>
+ * A type gets a codec when each of its fields is a primitive, a boxed primitive, a
+ * {@link String}, an enum or another type with a codec, and the codec can both read the field
+ * (directly or through its getter) and write it back (directly, through its setter or through a
+ * constructor parameter of the same name). Generated codecs are registered by the
+ * {@link com.github.aistech.orp.ORPIndex} of the module, if there is one, or found through
+ * reflection the first time they are needed.
+ */
+public final class ORPCodecs {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**
+     * The codec of each type looked up, or {@link #NO_CODEC}.
+     */
+    private static final ConcurrentMap<Class<?>, Object> CODECS = new ConcurrentHashMap<>();
+
+    /**
+     * Cached in {@link #CODECS} for the types without codec, so the reflective lookup only
+     * happens once per type. It's not a codec, so it can't be used as one by mistake.
+     */
+    private static final Object NO_CODEC = new Object();
+
+    private ORPCodecs() {
+    }
+
+    /**
+     * @param type
+     * @param codec
+     * @param <T>
+     */
+    public static <T> void register(@NonNull Class<T> type, @NonNull ParameterCodec<T> codec) {
+        CODECS.put(type, codec);
+    }
+
+    /**
+     * @param type the exact class of the value to encode.
+     * @param <T>
+     * @return the codec of this type, or null if it has none.
+     */
+    @Nullable
+    public static <T> ParameterCodec<T> getCodec(@NonNull Class<T> type) {
+        Object codec = CODECS.get(type);
+        if (codec == null) {
+            codec = findGeneratedCodec(type);
+            Object cached = CODECS.putIfAbsent(type, codec != null ? codec : NO_CODEC);
+            if (cached != null) {
+                codec = cached;
+            }
+        }
+        if (codec == NO_CODEC) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        ParameterCodec<T> typedCodec = (ParameterCodec<T>) codec;
+        return typedCodec;
+    }
+
+    @Nullable
+    private static ParameterCodec<?> findGeneratedCodec(Class<?> type) {
+        String name = type.getName();
+        if (name.startsWith("android.") || name.startsWith("java.") || type.getClassLoader() == null) {
+            return null;
+        }
+        try {
+            Class<?> codecClass = Class.forName(name + "_ORPCodec", true, type.getClassLoader());
+            Constructor<?> constructor = codecClass.getDeclaredConstructor();
+            // Codecs of package private types are package private too.
+            constructor.setAccessible(true);
+            return (ParameterCodec<?>) constructor.newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (Exception e) {
+            throw new ORPExceptions("Unable to create the codec of " + name, e);
+        }
+    }
+
+    /**
+     * @param value
+     * @return the value encoded by its codec, or null if its type has none.
+     */
+    @Nullable
+    public static byte[] toBytes(@NonNull Object value) {
+        @SuppressWarnings("unchecked")
+        ParameterCodec<Object> codec = (ParameterCodec<Object>) getCodec(value.getClass());
+        if (codec == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(codec.sizeOf(value));
+        codec.encode(value, buffer);
+        return buffer.array();
+    }
+
+    /**
+     * @param type
+     * @param bytes encoded by {@link #toBytes}.
+     * @param <T>
+     * @return
+     * @throws IllegalArgumentException if the type has no codec.
+     */
+    @NonNull
+    public static <T> T fromBytes(@NonNull Class<T> type, @NonNull byte[] bytes) {
+        ParameterCodec<T> codec = getCodec(type);
+        if (codec == null) {
+            throw new IllegalArgumentException(type.getName() + " has no codec");
+        }
+        return codec.decode(ByteBuffer.wrap(bytes));
+    }
+
+    /* Helpers for the generated codecs */
+
+    public static int sizeOfString(@Nullable String value) {
+        return value != null ? 4 + utf8Length(value) : 4;
+    }
+
+    /**
+     * Writes the UTF-8 length of the string, or -1 if null, followed by its UTF-8 bytes. Encodes
+     * straight into the buffer, without going through an intermediate array.
+     *
+     * @param buffer
+     * @param value
+     */
+    public static void writeString(@NonNull ByteBuffer buffer, @Nullable String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(utf8Length(value));
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            } else if (!isSurrogate(c)) {
+                buffer.put((byte) (0xE0 | c >> 12));
+                buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            } else if (isSurrogatePair(value, i)) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18));
+                buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint & 0x3F));
+            } else {
+                // Same replacement as String#getBytes for a lone surrogate.
+                buffer.put((byte) '?');
+            }
+        }
+    }
+
+    @Nullable
+    public static String readString(@NonNull ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, UTF_8);
+        }
+        return value;
+    }
+
+    public static <T> int sizeOfNullable(@NonNull ParameterCodec<T> codec, @Nullable T value) {
+        return value != null ? 1 + codec.sizeOf(value) : 1;
+    }
+
+    public static <T> void writeNullable(@NonNull ByteBuffer buffer, @NonNull ParameterCodec<T> codec,
+                                         @Nullable T value) {
+        if (value == null) {
+            buffer.put((byte) 0);
+        } else {
+            buffer.put((byte) 1);
+            codec.encode(value, buffer);
+        }
+    }
+
+    @Nullable
+    public static <T> T readNullable(@NonNull ByteBuffer buffer, @NonNull ParameterCodec<T> codec) {
+        return buffer.get() != 0 ? codec.decode(buffer) : null;
+    }
+
+    private static int utf8Length(String value) {
+        int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (!isSurrogate(c)) {
+                bytes += 2;
+            } else if (isSurrogatePair(value, i)) {
+                // 4 bytes for the 2 chars.
+                bytes += 2;
+                i++;
+            }
+        }
+        return bytes;
+    }
+
+    private static boolean isSurrogate(char c) {
+        return c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE;
+    }
+
+    private static boolean isSurrogatePair(String value, int index) {
+        return Character.isHighSurrogate(value.charAt(index)) && index + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(index + 1));
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.aistech.orp.codecs;
+
+import android.support.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reflection free binary encoding of a parameter type, generated by the ORP compiler as
+ * {@code <Type>_ORPCodec} for the types of the {@code @DestinationExtraObject} fields, see
+ * {@link ORPCodecs}.
+ * <p>
+ * Used where the object itself can't be handed off, e.g. when a handoff is persisted, instead
+ * of {@link java.io.Serializable}.
+ *
+ * @param <T> the encoded type.
+ */
+public interface ParameterCodec<T> {
+
+    /**
+     * @param value
+     * @return the exact number of bytes {@link #encode} writes for this value.
+     */
+    int sizeOf(@NonNull T value);
+
+    /**
+     * Writes the value at the current position of the buffer, which must have at least
+     * {@link #sizeOf} bytes remaining.
+     *
+     * @param value
+     * @param buffer
+     */
+    void encode(@NonNull T value, @NonNull ByteBuffer buffer);
+
+    /**
+     * Reads a value written by {@link #encode}, starting at the current position of the buffer.
+     *
+     * @param buffer
+     * @return
+     */
+    @NonNull
+    T decode(@NonNull ByteBuffer buffer);
+}
@@ -0,0 +1,31 @@
+package com.github.aistech.orp.exceptions;
+
+/**
+ * Thrown when a required parameter wasn't passed to the destination, or its handoff was already
+ * cleared.
+ * <p>
+ * It doesn't capture any stack trace, which would only point at the generated binding anyway,
+ * and its message is only built if asked for, so it's cheap enough to be thrown on the main thread.
+ */
+public class MissingParameterException extends ORPExceptions {
+
+    private final String parameterKey;
+
+    public MissingParameterException(String parameterKey) {
+        this.parameterKey = parameterKey;
+    }
+
+    public String getParameterKey() {
+        return parameterKey;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Parameter with key '" + parameterKey + "' not found";
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.aistech.orp.exceptions;
+
+/**
+ * Thrown when a parameter passed with a {@link com.github.aistech.orp.singletons.ReferenceStrength#SOFT}
+ * or {@link com.github.aistech.orp.singletons.ReferenceStrength#WEAK} reference was released
+ * before the destination could bind it, so it has to be recreated.
+ * <p>
+ * Like {@link MissingParameterException}, it doesn't capture any stack trace.
+ */
+public class ParameterReclaimedException extends ORPExceptions {
+
+    private final String parameterKey;
+
+    public ParameterReclaimedException(String parameterKey) {
+        this.parameterKey = parameterKey;
+    }
+
+    public String getParameterKey() {
+        return parameterKey;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Parameter with key '" + parameterKey + "' was reclaimed to free memory";
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
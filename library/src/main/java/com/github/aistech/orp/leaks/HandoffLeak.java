@@ -0,0 +1,83 @@
+package com.github.aistech.orp.leaks;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * A handoff reported by {@link HandoffLeakDetector#findLeaks()}.
+ */
+public final class HandoffLeak {
+
+    public enum Kind {
+        /**
+         * No destination was created for the handoff in time.
+         */
+        NEVER_CONSUMED,
+        /**
+         * Every destination created for the handoff was garbage collected, but the handoff is still
+         * held. Destinations finishing clear their handoff, so something else destroyed it.
+         */
+        OUTLIVED_DESTINATION
+    }
+
+    private static final String ORP_PACKAGE = "com.github.aistech.orp.";
+    private static final String BUILDER_SUFFIX = "_ORPBuilder";
+
+    private final long token;
+    private final Kind kind;
+    private final long ageMillis;
+    private final Throwable registrationSite;
+
+    HandoffLeak(long token, Kind kind, long ageMillis, Throwable registrationSite) {
+        this.token = token;
+        this.kind = kind;
+        this.ageMillis = ageMillis;
+        this.registrationSite = registrationSite;
+    }
+
+    public long getToken() {
+        return token;
+    }
+
+    @NonNull
+    public Kind getKind() {
+        return kind;
+    }
+
+    public long getAgeMillis() {
+        return ageMillis;
+    }
+
+    /**
+     * @return where the handoff was registered, or null if that registration wasn't sampled.
+     */
+    @Nullable
+    public Throwable getRegistrationSite() {
+        return registrationSite;
+    }
+
+    /**
+     * @param site
+     * @return the first frame of the site outside of ORP and of the generated builders, or null.
+     */
+    @Nullable
+    static StackTraceElement findCaller(@Nullable Throwable site) {
+        if (site == null) {
+            return null;
+        }
+        for (StackTraceElement frame : site.getStackTrace()) {
+            String className = frame.getClassName();
+            if (!className.startsWith(ORP_PACKAGE) && !className.endsWith(BUILDER_SUFFIX)) {
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        StackTraceElement caller = findCaller(registrationSite);
+        return "HandoffLeak{token=" + token + ", kind=" + kind + ", ageMillis=" + ageMillis
+                + (caller != null ? ", registeredAt=" + caller : "") + '}';
+    }
+}
@@ -0,0 +1,252 @@
+package com.github.aistech.orp.leaks;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.github.aistech.orp.singletons.Handoff;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in debug tool finding the handoffs that stay in {@link com.github.aistech.orp.singletons.ORPSingleton}
+ * for nothing. Nothing is tracked until {@link #enable()} is called; from then on each handoff
+ * registered is followed until it's removed:
+ * <ul>
+ * <li>{@link HandoffLeak.Kind#NEVER_CONSUMED}: no destination was created for it after a while,
+ * the launch was probably never made, or failed.</li>
+ * <li>{@link HandoffLeak.Kind#OUTLIVED_DESTINATION}: its destinations, held through weak references,
+ * were all garbage collected while the handoff is still held.</li>
+ * </ul>
+ * Where a handoff was registered is captured for one registration out of {@code sampleRate}, since
+ * capturing a stack trace is what costs the most here.
+ * <pre>{@code
+ * HandoffLeakDetector detector = HandoffLeakDetector.enable();
+ * ...
+ * for (HandoffLeak leak : detector.findLeaks()) {
+ *     Log.w("ORP", leak.toString(), leak.getRegistrationSite());
+ * }
+ * ORPSingleton.getInstance().dump(new File(getCacheDir(), "orp-handoffs.txt"));
+ * }</pre>
+ */
+public final class HandoffLeakDetector {
+
+    public static final int DEFAULT_SAMPLE_RATE = 16;
+    public static final long DEFAULT_UNCONSUMED_MILLIS = 30000;
+
+    private static volatile HandoffLeakDetector current;
+
+    private final int sampleRate;
+    private final long unconsumedMillis;
+    private final AtomicLong registrations = new AtomicLong();
+    private final ConcurrentMap<Long, Tracked> tracked = new ConcurrentHashMap<>();
+
+    private HandoffLeakDetector(int sampleRate, long unconsumedMillis) {
+        this.sampleRate = sampleRate;
+        this.unconsumedMillis = unconsumedMillis;
+    }
+
+    /**
+     * Same as {@link #enable(int, long)}, with the default sample rate and delay.
+     */
+    @NonNull
+    public static HandoffLeakDetector enable() {
+        return enable(DEFAULT_SAMPLE_RATE, DEFAULT_UNCONSUMED_MILLIS);
+    }
+
+    /**
+     * Starts tracking the handoffs registered from now on. Calling it again returns the instance
+     * already tracking, whatever the arguments.
+     *
+     * @param sampleRate       one registration site is captured every {@code sampleRate} handoffs,
+     *                         1 captures them all.
+     * @param unconsumedMillis how long a handoff may wait for its destination before it's reported.
+     * @return the detector tracking from now on.
+     */
+    @NonNull
+    public static synchronized HandoffLeakDetector enable(int sampleRate, long unconsumedMillis) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("sampleRate < 1: " + sampleRate);
+        }
+        if (current == null) {
+            current = new HandoffLeakDetector(sampleRate, unconsumedMillis);
+        }
+        return current;
+    }
+
+    /**
+     * Stops tracking. What was tracked until then can still be read from the previous instance.
+     */
+    public static synchronized void disable() {
+        current = null;
+    }
+
+    /**
+     * @return the detector tracking the handoffs, or null when it's disabled. ORP checks this
+     * before tracking anything, so a disabled detector costs a single volatile read.
+     */
+    @Nullable
+    public static HandoffLeakDetector get() {
+        return current;
+    }
+
+    /* Tracking, called by ORP itself */
+
+    public void onRegistered(@NonNull Handoff handoff) {
+        long token = handoff.getToken();
+        Throwable site = null;
+        if (registrations.getAndIncrement() % sampleRate == 0) {
+            site = new Throwable("Handoff " + token + " registered here");
+        }
+        tracked.put(token, new Tracked(token, handoff.getCreatedAt(), site));
+    }
+
+    /**
+     * Called each time a destination is created for a handoff, which happens again when it's
+     * recreated, after a rotation for instance, and once for each destination sharing it.
+     *
+     * @param token
+     * @param destination
+     */
+    public void onDestinationCreated(long token, @NonNull Activity destination) {
+        Tracked tracked = this.tracked.get(token);
+        if (tracked != null) {
+            tracked.addDestination(destination);
+        }
+    }
+
+    public void onRemoved(long token) {
+        tracked.remove(token);
+    }
+
+    /* Reports */
+
+    /**
+     * @param token
+     * @return what's known of the handoff registered with this token, or null if it isn't tracked,
+     * because it was registered before the detector was enabled, or restored after a process restart.
+     */
+    @Nullable
+    public Tracked getTracked(long token) {
+        return tracked.get(token);
+    }
+
+    /**
+     * Looks at every handoff tracked. Call it after a garbage collection to find the destinations
+     * already gone.
+     *
+     * @return the handoffs leaking, oldest first.
+     */
+    @NonNull
+    public List<HandoffLeak> findLeaks() {
+        long now = SystemClock.elapsedRealtime();
+        List<HandoffLeak> leaks = new ArrayList<>();
+        for (Tracked tracked : this.tracked.values()) {
+            HandoffLeak.Kind kind = tracked.getLeak(now);
+            if (kind != null) {
+                leaks.add(new HandoffLeak(tracked.token, kind, now - tracked.registeredAt, tracked.site));
+            }
+        }
+        // Tokens are monotonic, sorting by them sorts by age.
+        Collections.sort(leaks, new Comparator<HandoffLeak>() {
+            @Override
+            public int compare(HandoffLeak first, HandoffLeak second) {
+                return first.getToken() < second.getToken() ? -1 : first.getToken() == second.getToken() ? 0 : 1;
+            }
+        });
+        return leaks;
+    }
+
+    public int getTrackedCount() {
+        return tracked.size();
+    }
+
+    /**
+     * A handoff followed by the detector.
+     */
+    public final class Tracked {
+        private final long token;
+        private final long registeredAt;
+        private final Throwable site;
+        /**
+         * Every destination created for the handoff and not collected yet, guarded by itself.
+         */
+        private final List<WeakReference<Activity>> destinations = new ArrayList<>(1);
+        private volatile boolean consumed;
+
+        Tracked(long token, long registeredAt, Throwable site) {
+            this.token = token;
+            this.registeredAt = registeredAt;
+            this.site = site;
+        }
+
+        public long getToken() {
+            return token;
+        }
+
+        /**
+         * @return true once a destination was created for this handoff.
+         */
+        public boolean isConsumed() {
+            return consumed;
+        }
+
+        void addDestination(Activity destination) {
+            synchronized (destinations) {
+                // The ones collected since, a recreated destination for instance, are forgotten.
+                for (Iterator<WeakReference<Activity>> iterator = destinations.iterator(); iterator.hasNext(); ) {
+                    if (iterator.next().get() == null) {
+                        iterator.remove();
+                    }
+                }
+                destinations.add(new WeakReference<>(destination));
+            }
+            consumed = true;
+        }
+
+        /**
+         * @return where the handoff was registered, or null if that registration wasn't sampled.
+         */
+        @Nullable
+        public Throwable getRegistrationSite() {
+            return site;
+        }
+
+        /**
+         * @return the first frame of the registration site outside of ORP and the generated
+         * builders, which is the call that launched the destination, or null if it wasn't sampled.
+         */
+        @Nullable
+        public StackTraceElement getRegistrationFrame() {
+            return HandoffLeak.findCaller(site);
+        }
+
+        /**
+         * @param now in {@link SystemClock#elapsedRealtime()} milliseconds.
+         * @return the kind of leak this handoff is, or null if it isn't one, as far as is known.
+         */
+        @Nullable
+        public HandoffLeak.Kind getLeak(long now) {
+            if (!consumed) {
+                return now - registeredAt > unconsumedMillis ? HandoffLeak.Kind.NEVER_CONSUMED : null;
+            }
+            synchronized (destinations) {
+                for (WeakReference<Activity> destination : destinations) {
+                    if (destination.get() != null) {
+                        return null;
+                    }
+                }
+            }
+            return HandoffLeak.Kind.OUTLIVED_DESTINATION;
+        }
+    }
+}
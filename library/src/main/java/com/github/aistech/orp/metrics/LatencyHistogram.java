@@ -0,0 +1,135 @@
+package com.github.aistech.orp.metrics;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations in nanoseconds, using power of two buckets: bucket
+ * {@code i} counts the values in {@code [2^(i-1), 2^i)}, bucket 0 counts zeros. Recording
+ * a value is a handful of atomic increments and never allocates.
+ */
+public final class LatencyHistogram {
+
+    static final int BUCKET_COUNT = 65;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    LatencyHistogram() {
+    }
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        long currentMax;
+        while (nanos > (currentMax = max.get())) {
+            if (max.compareAndSet(currentMax, nanos)) {
+                break;
+            }
+        }
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    @NonNull
+    Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new Snapshot(counts, count.get(), sum.get(), max.get());
+    }
+
+    /**
+     * The values of a {@link LatencyHistogram} at the time {@link ORPMetrics#snapshot()} was
+     * called. Values recorded concurrently with the snapshot may be only partially reflected.
+     */
+    public static final class Snapshot {
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] buckets, long count, long sum, long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSumNanos() {
+            return sum;
+        }
+
+        public long getMaxNanos() {
+            return max;
+        }
+
+        public long getMeanNanos() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        /**
+         * @param percentile between 0 and 100.
+         * @return the upper bound, in nanoseconds, of the bucket holding the given percentile.
+         */
+        public long getPercentileNanos(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100, but was " + percentile);
+            }
+            long total = 0;
+            for (long bucket : buckets) {
+                total += bucket;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * percentile / 100d);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank && buckets[i] > 0) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * @return a copy of the bucket counts, see {@link LatencyHistogram} for their bounds.
+         */
+        @NonNull
+        public long[] getBuckets() {
+            return buckets.clone();
+        }
+
+        private static long upperBound(int bucket) {
+            return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + ", mean=" + getMeanNanos() + "ns, p50=" + getPercentileNanos(50)
+                    + "ns, p99=" + getPercentileNanos(99) + "ns, max=" + max + "ns";
+        }
+    }
+}
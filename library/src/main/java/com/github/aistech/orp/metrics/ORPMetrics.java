@@ -0,0 +1,274 @@
+package com.github.aistech.orp.metrics;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.github.aistech.orp.singletons.ORPSingleton;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in runtime metrics of ORP. Nothing is recorded until {@link #enable()} is called; from
+ * then on the counters and histograms are updated with atomic operations only, without any
+ * allocation, and can be exported at any time through {@link #snapshot()}.
+ * <pre>{@code
+ * ORPMetrics metrics = ORPMetrics.enable();
+ * ...
+ * ORPMetrics.Snapshot snapshot = metrics.snapshot();
+ * telemetry.report("orp.bind.p99", snapshot.getBindLatency().getPercentileNanos(99));
+ * }</pre>
+ */
+public final class ORPMetrics {
+
+    private static volatile ORPMetrics current;
+
+    private final AtomicLong bindingCacheHits = new AtomicLong();
+    private final AtomicLong bindingCacheMisses = new AtomicLong();
+    private final AtomicLong bindFailures = new AtomicLong();
+    private final AtomicLong parametersRegistered = new AtomicLong();
+    private final AtomicLong parametersCleared = new AtomicLong();
+    private final AtomicLong missingKeys = new AtomicLong();
+    private final AtomicLong reclaimedParameters = new AtomicLong();
+    private final AtomicLong evictedHandoffs = new AtomicLong();
+    private final AtomicLong evictedParameters = new AtomicLong();
+    private final LatencyHistogram bindLatency = new LatencyHistogram();
+
+    private ORPMetrics() {
+    }
+
+    /**
+     * Starts recording metrics. Calling it again returns the instance already recording.
+     *
+     * @return the metrics recorded from now on.
+     */
+    @NonNull
+    public static synchronized ORPMetrics enable() {
+        if (current == null) {
+            current = new ORPMetrics();
+        }
+        return current;
+    }
+
+    /**
+     * Stops recording metrics. Snapshots can still be taken from the previously enabled instance.
+     */
+    public static synchronized void disable() {
+        current = null;
+    }
+
+    /**
+     * @return the metrics being recorded, or null when they are disabled. ORP checks this before
+     * recording anything, so disabled metrics cost a single volatile read.
+     */
+    @Nullable
+    public static ORPMetrics get() {
+        return current;
+    }
+
+    /* Recording, called by ORP itself */
+
+    public void onBindingCacheHit() {
+        bindingCacheHits.incrementAndGet();
+    }
+
+    public void onBindingCacheMiss() {
+        bindingCacheMisses.incrementAndGet();
+    }
+
+    public void onBind(long nanos) {
+        bindLatency.record(nanos);
+    }
+
+    public void onBindFailure() {
+        bindFailures.incrementAndGet();
+    }
+
+    public void onParametersRegistered(int count) {
+        parametersRegistered.addAndGet(count);
+    }
+
+    public void onParametersCleared(int count) {
+        parametersCleared.addAndGet(count);
+    }
+
+    public void onMissingKey() {
+        missingKeys.incrementAndGet();
+    }
+
+    public void onReclaimed() {
+        reclaimedParameters.incrementAndGet();
+    }
+
+    public void onEvicted(int parameterCount) {
+        evictedHandoffs.incrementAndGet();
+        evictedParameters.addAndGet(parameterCount);
+    }
+
+    /* Export */
+
+    /**
+     * Zeroes every counter and histogram.
+     */
+    public void reset() {
+        bindingCacheHits.set(0);
+        bindingCacheMisses.set(0);
+        bindFailures.set(0);
+        parametersRegistered.set(0);
+        parametersCleared.set(0);
+        missingKeys.set(0);
+        reclaimedParameters.set(0);
+        evictedHandoffs.set(0);
+        evictedParameters.set(0);
+        bindLatency.reset();
+    }
+
+    /**
+     * @return a copy of the current values, safe to keep and to export from any thread.
+     */
+    @NonNull
+    public Snapshot snapshot() {
+        ORPSingleton singleton = ORPSingleton.getInstance();
+        return new Snapshot(bindingCacheHits.get(), bindingCacheMisses.get(), bindFailures.get(),
+                parametersRegistered.get(), parametersCleared.get(), missingKeys.get(),
+                reclaimedParameters.get(), evictedHandoffs.get(), evictedParameters.get(), singleton.getLiveEntryCount(),
+                singleton.getLiveParameterCount(), singleton.getLiveBytes(), bindLatency.snapshot());
+    }
+
+    public static final class Snapshot {
+        private final long bindingCacheHits;
+        private final long bindingCacheMisses;
+        private final long bindFailures;
+        private final long parametersRegistered;
+        private final long parametersCleared;
+        private final long missingKeys;
+        private final long reclaimedParameters;
+        private final long evictedHandoffs;
+        private final long evictedParameters;
+        private final int liveEntries;
+        private final int liveParameters;
+        private final long liveBytes;
+        private final LatencyHistogram.Snapshot bindLatency;
+
+        Snapshot(long bindingCacheHits, long bindingCacheMisses, long bindFailures,
+                 long parametersRegistered, long parametersCleared, long missingKeys,
+                 long reclaimedParameters, long evictedHandoffs, long evictedParameters, int liveEntries, int liveParameters,
+                 long liveBytes, LatencyHistogram.Snapshot bindLatency) {
+            this.bindingCacheHits = bindingCacheHits;
+            this.bindingCacheMisses = bindingCacheMisses;
+            this.bindFailures = bindFailures;
+            this.parametersRegistered = parametersRegistered;
+            this.parametersCleared = parametersCleared;
+            this.missingKeys = missingKeys;
+            this.reclaimedParameters = reclaimedParameters;
+            this.evictedHandoffs = evictedHandoffs;
+            this.evictedParameters = evictedParameters;
+            this.liveEntries = liveEntries;
+            this.liveParameters = liveParameters;
+            this.liveBytes = liveBytes;
+            this.bindLatency = bindLatency;
+        }
+
+        /**
+         * @return how many binding lookups were answered by the binding cache.
+         */
+        public long getBindingCacheHits() {
+            return bindingCacheHits;
+        }
+
+        /**
+         * @return how many classes had to be resolved through an index or reflection.
+         */
+        public long getBindingCacheMisses() {
+            return bindingCacheMisses;
+        }
+
+        /**
+         * @return how many binds were abandoned by {@link com.github.aistech.orp.ORP#tryToBind}.
+         */
+        public long getBindFailures() {
+            return bindFailures;
+        }
+
+        public long getParametersRegistered() {
+            return parametersRegistered;
+        }
+
+        public long getParametersCleared() {
+            return parametersCleared;
+        }
+
+        /**
+         * @return how many lookups asked for a parameter that wasn't in the store.
+         */
+        public long getMissingKeys() {
+            return missingKeys;
+        }
+
+        /**
+         * @return how many lookups found a soft or weak parameter already reclaimed.
+         */
+        public long getReclaimedParameters() {
+            return reclaimedParameters;
+        }
+
+        /**
+         * @return how many handoffs were evicted by the {@link com.github.aistech.orp.singletons.StorePolicy}.
+         */
+        public long getEvictedHandoffs() {
+            return evictedHandoffs;
+        }
+
+        /**
+         * @return how many parameters the evicted handoffs held.
+         */
+        public long getEvictedParameters() {
+            return evictedParameters;
+        }
+
+        /**
+         * @return how many handoffs the {@link ORPSingleton} held when the snapshot was taken.
+         */
+        public int getLiveEntries() {
+            return liveEntries;
+        }
+
+        /**
+         * @return how many parameters, across all handoffs, the {@link ORPSingleton} held when the
+         * snapshot was taken.
+         */
+        public int getLiveParameters() {
+            return liveParameters;
+        }
+
+        /**
+         * @return the estimated size of the parameters held, only known when the store has a byte budget.
+         */
+        public long getLiveBytes() {
+            return liveBytes;
+        }
+
+        @NonNull
+        public LatencyHistogram.Snapshot getBindLatency() {
+            return bindLatency;
+        }
+
+        @Override
+        public String toString() {
+            return "ORPMetrics{" +
+                    "bindingCacheHits=" + bindingCacheHits +
+                    ", bindingCacheMisses=" + bindingCacheMisses +
+                    ", bindFailures=" + bindFailures +
+                    ", parametersRegistered=" + parametersRegistered +
+                    ", parametersCleared=" + parametersCleared +
+                    ", missingKeys=" + missingKeys +
+                    ", reclaimedParameters=" + reclaimedParameters +
+                    ", evictedHandoffs=" + evictedHandoffs +
+                    ", evictedParameters=" + evictedParameters +
+                    ", liveEntries=" + liveEntries +
+                    ", liveParameters=" + liveParameters +
+                    ", liveBytes=" + liveBytes +
+                    ", bindLatency={" + bindLatency + '}' +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,526 @@
+package com.github.aistech.orp.persistence;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.github.aistech.orp.exceptions.ORPExceptions;
+import com.github.aistech.orp.singletons.Handoff;
+import com.github.aistech.orp.singletons.HandoffPersistence;
+import com.github.aistech.orp.singletons.LazyParameter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link HandoffPersistence} writing the handoffs to an append-only, memory-mapped file, so
+ * they survive process death without going through Intent extras.
+ * <p>
+ * Only parameters with a generated {@link com.github.aistech.orp.codecs.ParameterCodec}, or
+ * that are {@link android.os.Parcelable} or {@link java.io.Serializable}, are persisted, the
+ * others are missing once restored. Registrations are written asynchronously on a single
+ * background thread, which also compacts the file once most of it is made of removed handoffs.
+ * A restored handoff is read from the file the first time a destination asks for it, and each of
+ * its parameters is only decoded when bound.
+ * <p>
+ * Since the writes are asynchronous, a persisted parameter reflects the object as it was shortly
+ * after {@link com.github.aistech.orp.builder.ORPBuilder#build()}, not the changes made to it
+ * afterwards by the destination.
+ * <pre>{@code
+ * ORPSingleton.getInstance().setPersistence(
+ *         new HandoffJournal(new File(getFilesDir(), "orp.journal")));
+ * }</pre>
+ */
+public final class HandoffJournal implements HandoffPersistence {
+
+    private static final String TAG = "ORP";
+
+    private static final int MAGIC = 0x4F525031; // ORP1
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+    private static final int INITIAL_SIZE = 64 * 1024;
+    private static final int MIN_COMPACTION_BYTES = 64 * 1024;
+    private static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_REMOVE = 2;
+    private static final byte KEY_NAMED = 0;
+    private static final byte KEY_SLOT = 1;
+
+    /*
+     * Record layout, preceded by its int length, which is written last so a torn write reads as
+     * the end of the journal:
+     *
+     * PUT:    byte type, long token, long writtenAt, int slotCount (-1 when keyed), int entryCount,
+     *         then per entry: byte keyKind, UTF key or int slot, byte format, int length, bytes,
+     *         then, for slots, int primitiveSlotCount and a long per primitive slot, and for
+     *         keys, int consumerCount.
+     * REMOVE: byte type, long token.
+     */
+
+    private final File file;
+    private final long maxAgeMillis;
+    private final ClassLoader classLoader;
+    private final ExecutorService executor;
+
+    // Only touched from the executor thread.
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+    private final Map<Long, Integer> offsets = new HashMap<>();
+    private long liveBytes;
+    private long deadBytes;
+
+    public HandoffJournal(@NonNull File file) {
+        this(file, DEFAULT_MAX_AGE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param file     where the handoffs are written. It's created if needed.
+     * @param maxAge   handoffs older than this are dropped instead of restored, so a destination
+     *                 never gets the parameters of a launch from a long gone session.
+     * @param timeUnit
+     */
+    public HandoffJournal(@NonNull File file, long maxAge, @NonNull TimeUnit timeUnit) {
+        this.file = file;
+        this.maxAgeMillis = timeUnit.toMillis(maxAge);
+        this.classLoader = HandoffJournal.class.getClassLoader();
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, "ORP-journal");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @Override
+    public void onRegistered(@NonNull final Handoff handoff) {
+        final long token = handoff.getToken();
+        final int consumers = handoff.getConsumerCount();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // The handoff never changes once registered, so its lazy, shared and deferred
+                    // parameters are only resolved here, off the thread launching the destination.
+                    Object[] slots = handoff.getSlots();
+                    Map<String, Object> parameters = slots == null ? handoff.toMap() : null;
+                    ensureOpen();
+                    append(encodePut(token, slots, handoff.getPrimitiveSlots(), parameters, consumers));
+                } catch (IOException e) {
+                    Log.w(TAG, "Unable to persist handoff " + token, e);
+                } catch (RuntimeException e) {
+                    // A codec failing, or a parameter changed while it's encoded: only this
+                    // handoff is missing once restored.
+                    Log.w(TAG, "Unable to persist handoff " + token, e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onRemoved(final long token) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ensureOpen();
+                    Integer offset = offsets.get(token);
+                    if (offset == null) {
+                        return;
+                    }
+                    append(encodeRemove(token));
+                    compactIfNeeded();
+                } catch (IOException e) {
+                    Log.w(TAG, "Unable to remove persisted handoff " + token, e);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Unable to remove persisted handoff " + token, e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onReleased(final long token) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ensureOpen();
+                    Integer offset = offsets.get(token);
+                    if (offset == null) {
+                        return;
+                    }
+                    // Keyed records, with a slot count of -1, end with their consumer count, which
+                    // is updated in place rather than appending the whole record again.
+                    int consumersPosition = offset + buffer.getInt(offset);
+                    int consumers = buffer.getInt(offset + 21) < 0 ? buffer.getInt(consumersPosition) : 1;
+                    if (consumers > 1) {
+                        buffer.putInt(consumersPosition, consumers - 1);
+                        return;
+                    }
+                    append(encodeRemove(token));
+                    compactIfNeeded();
+                } catch (IOException e) {
+                    Log.w(TAG, "Unable to release persisted handoff " + token, e);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Unable to release persisted handoff " + token, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Blocks until the journal thread, which may still be writing earlier registrations, reads the
+     * handoff. It only happens for tokens not found in memory, typically once per destination
+     * recreated after process death.
+     */
+    @Nullable
+    @Override
+    public Handoff restore(final long token) {
+        byte[] record;
+        try {
+            record = executor.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws IOException {
+                    ensureOpen();
+                    Integer offset = offsets.get(token);
+                    if (offset == null) {
+                        return null;
+                    }
+                    byte[] record = new byte[buffer.getInt(offset)];
+                    ByteBuffer source = buffer.duplicate();
+                    source.position(offset + 4);
+                    source.get(record);
+                    return record;
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Unable to restore handoff " + token, e.getCause());
+            return null;
+        }
+        return record != null ? decodePut(record) : null;
+    }
+
+    /**
+     * Stops the journal thread once the pending writes are done, and releases the file.
+     */
+    public void close() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                closeChannel();
+            }
+        });
+        executor.shutdown();
+    }
+
+    /* Journal thread */
+
+    private void ensureOpen() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        long size = channel.size();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, INITIAL_SIZE));
+        if (size < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            // Records of another version can't be read back, start over.
+            int i = 0;
+            for (; i + 8 <= buffer.capacity(); i += 8) {
+                buffer.putLong(i, 0);
+            }
+            // The file may have been truncated to any size.
+            for (; i < buffer.capacity(); i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            writePosition = HEADER_SIZE;
+            return;
+        }
+        scan();
+    }
+
+    /**
+     * Rebuilds the index of live handoffs from the records written by previous processes.
+     */
+    private void scan() {
+        long oldest = System.currentTimeMillis() - maxAgeMillis;
+        int position = HEADER_SIZE;
+        while (position + 4 <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + 4 + length > buffer.capacity()) {
+                break;
+            }
+            byte type = buffer.get(position + 4);
+            long token = buffer.getLong(position + 5);
+            Integer previous = offsets.remove(token);
+            if (previous != null) {
+                liveBytes -= recordSize(previous);
+                deadBytes += recordSize(previous);
+            }
+            if (type == RECORD_PUT && buffer.getLong(position + 13) >= oldest) {
+                offsets.put(token, position);
+                liveBytes += 4 + length;
+            } else {
+                deadBytes += 4 + length;
+            }
+            position += 4 + length;
+        }
+        writePosition = position;
+    }
+
+    private void append(byte[] record) throws IOException {
+        ensureCapacity(writePosition + 4 + record.length + 4);
+        ByteBuffer target = buffer.duplicate();
+        target.position(writePosition + 4);
+        target.put(record);
+        buffer.putInt(writePosition, record.length);
+
+        long token = buffer.getLong(writePosition + 5);
+        Integer previous = offsets.remove(token);
+        if (previous != null) {
+            liveBytes -= recordSize(previous);
+            deadBytes += recordSize(previous);
+        }
+        if (record[0] == RECORD_PUT) {
+            offsets.put(token, writePosition);
+            liveBytes += 4 + record.length;
+        } else {
+            deadBytes += 4 + record.length;
+        }
+        writePosition += 4 + record.length;
+    }
+
+    private void ensureCapacity(int size) throws IOException {
+        if (size <= buffer.capacity()) {
+            return;
+        }
+        long newSize = Math.max((long) buffer.capacity() * 2, size);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+    }
+
+    private int recordSize(Integer offset) {
+        return offset != null ? 4 + buffer.getInt(offset) : 0;
+    }
+
+    /**
+     * Rewrites the live records to a new file once the removed ones are the majority, then
+     * replaces the journal with it.
+     */
+    private void compactIfNeeded() throws IOException {
+        if (deadBytes < MIN_COMPACTION_BYTES || deadBytes < liveBytes) {
+            return;
+        }
+        File compacted = new File(file.getPath() + ".compact");
+        FileChannel newChannel = new RandomAccessFile(compacted, "rw").getChannel();
+        newChannel.truncate(0);
+        MappedByteBuffer newBuffer = newChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.max(INITIAL_SIZE, HEADER_SIZE + liveBytes * 2));
+        newBuffer.putInt(0, MAGIC);
+        newBuffer.putInt(4, VERSION);
+
+        List<Integer> liveOffsets = new ArrayList<>(offsets.values());
+        Collections.sort(liveOffsets);
+        Map<Long, Integer> newOffsets = new HashMap<>(offsets.size() * 2);
+        int position = HEADER_SIZE;
+        for (Integer offset : liveOffsets) {
+            int size = recordSize(offset);
+            ByteBuffer record = buffer.duplicate();
+            record.position(offset);
+            record.limit(offset + size);
+            ByteBuffer target = newBuffer.duplicate();
+            target.position(position);
+            target.put(record);
+            newOffsets.put(buffer.getLong(offset + 5), position);
+            position += size;
+        }
+        newBuffer.force();
+
+        if (!compacted.renameTo(file)) {
+            newChannel.close();
+            throw new IOException("Unable to replace " + file + " with its compacted copy");
+        }
+        closeChannel();
+        channel = newChannel;
+        buffer = newBuffer;
+        writePosition = position;
+        offsets.clear();
+        offsets.putAll(newOffsets);
+        deadBytes = 0;
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to close " + file, e);
+        }
+        channel = null;
+        buffer = null;
+    }
+
+    /* Encoding */
+
+    private static byte[] encodeRemove(long token) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(9);
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(RECORD_REMOVE);
+        output.writeLong(token);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodePut(long token, Object[] slots, long[] primitiveSlots, Map<String, Object> parameters,
+                                    int consumers) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(RECORD_PUT);
+        output.writeLong(token);
+        output.writeLong(System.currentTimeMillis());
+
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        DataOutputStream entriesOutput = new DataOutputStream(entries);
+        int count = 0;
+        if (slots != null) {
+            output.writeInt(slots.length);
+            for (int slot = 0; slot < slots.length; slot++) {
+                byte format = PayloadEncoding.formatOf(slots[slot]);
+                if (format != PayloadEncoding.FORMAT_NONE) {
+                    entriesOutput.writeByte(KEY_SLOT);
+                    entriesOutput.writeInt(slot);
+                    writeValue(entriesOutput, format, slots[slot]);
+                    count++;
+                }
+            }
+        } else {
+            output.writeInt(-1);
+            for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+                byte format = PayloadEncoding.formatOf(parameter.getValue());
+                if (format != PayloadEncoding.FORMAT_NONE) {
+                    entriesOutput.writeByte(KEY_NAMED);
+                    entriesOutput.writeUTF(parameter.getKey());
+                    writeValue(entriesOutput, format, parameter.getValue());
+                    count++;
+                }
+            }
+        }
+        output.writeInt(count);
+        entriesOutput.flush();
+        entries.writeTo(output);
+        if (slots != null) {
+            output.writeInt(primitiveSlots.length);
+            for (long primitiveSlot : primitiveSlots) {
+                output.writeLong(primitiveSlot);
+            }
+        } else {
+            // Decremented by onReleased() as the destinations sharing it release it.
+            output.writeInt(consumers);
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeValue(DataOutputStream output, byte format, Object value) throws IOException {
+        byte[] encoded = PayloadEncoding.encode(format, value);
+        output.writeByte(format);
+        output.writeInt(encoded.length);
+        output.write(encoded);
+    }
+
+    private Handoff decodePut(byte[] record) {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+        try {
+            input.readByte(); // RECORD_PUT
+            long token = input.readLong();
+            input.readLong(); // writtenAt
+            int slotCount = input.readInt();
+            int count = input.readInt();
+
+            if (slotCount >= 0) {
+                Object[] slots = new Object[slotCount];
+                for (int i = 0; i < count; i++) {
+                    input.readByte(); // KEY_SLOT
+                    int slot = input.readInt();
+                    // The generated bindings read every slot right away, no point in deferring them.
+                    slots[slot] = readValue(input).resolve();
+                }
+                long[] primitiveSlots = new long[input.readInt()];
+                for (int i = 0; i < primitiveSlots.length; i++) {
+                    primitiveSlots[i] = input.readLong();
+                }
+                return Handoff.restoreSlots(token, slots, primitiveSlots);
+            }
+
+            Map<String, Object> parameters = new LinkedHashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                input.readByte(); // KEY_NAMED
+                String key = input.readUTF();
+                parameters.put(key, readValue(input));
+            }
+            return Handoff.restore(token, parameters, input.readInt());
+        } catch (IOException e) {
+            throw new ORPExceptions("Corrupted handoff in " + file, e);
+        }
+    }
+
+    private PersistedValue readValue(DataInputStream input) throws IOException {
+        byte format = input.readByte();
+        byte[] encoded = new byte[input.readInt()];
+        input.readFully(encoded);
+        return new PersistedValue(format, encoded, classLoader);
+    }
+
+    /**
+     * A persisted parameter, decoded the first time it's bound.
+     */
+    private static final class PersistedValue implements LazyParameter {
+        private final byte format;
+        private final ClassLoader classLoader;
+        private byte[] encoded;
+        private Object value;
+
+        PersistedValue(byte format, byte[] encoded, ClassLoader classLoader) {
+            this.format = format;
+            this.encoded = encoded;
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        public synchronized Object resolve() throws ORPExceptions {
+            if (encoded != null) {
+                value = PayloadEncoding.decode(format, encoded, classLoader);
+                encoded = null;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.github.aistech.orp.persistence;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import com.github.aistech.orp.codecs.ORPCodecs;
+import com.github.aistech.orp.codecs.ParameterCodec;
+import com.github.aistech.orp.exceptions.ORPExceptions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * Turns the handed-off objects into bytes and back. Types with a generated {@link ParameterCodec}
+ * use it, the others fall back to {@link Parcelable} and then {@link Serializable}.
+ */
+final class PayloadEncoding {
+
+    static final byte FORMAT_NONE = 0;
+    static final byte FORMAT_NULL = 1;
+    static final byte FORMAT_PARCELABLE = 2;
+    static final byte FORMAT_SERIALIZABLE = 3;
+    static final byte FORMAT_CODEC = 4;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private PayloadEncoding() {
+    }
+
+    /**
+     * @return the format used to encode this value, or {@link #FORMAT_NONE} if it can't be encoded.
+     */
+    static byte formatOf(Object value) {
+        if (value == null) {
+            return FORMAT_NULL;
+        }
+        if (ORPCodecs.getCodec(value.getClass()) != null) {
+            return FORMAT_CODEC;
+        }
+        // Parcelable first, it's much cheaper than Java serialization on Android.
+        if (value instanceof Parcelable) {
+            return FORMAT_PARCELABLE;
+        }
+        if (value instanceof Serializable) {
+            return FORMAT_SERIALIZABLE;
+        }
+        return FORMAT_NONE;
+    }
+
+    static byte[] encode(byte format, Object value) throws IOException {
+        switch (format) {
+            case FORMAT_NULL:
+                return EMPTY;
+            case FORMAT_PARCELABLE:
+                Parcel parcel = Parcel.obtain();
+                try {
+                    parcel.writeParcelable((Parcelable) value, 0);
+                    return parcel.marshall();
+                } finally {
+                    parcel.recycle();
+                }
+            case FORMAT_SERIALIZABLE:
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                ObjectOutputStream output = new ObjectOutputStream(bytes);
+                try {
+                    output.writeObject(value);
+                } finally {
+                    output.close();
+                }
+                return bytes.toByteArray();
+            case FORMAT_CODEC:
+                return encodeWithCodec(value);
+            default:
+                throw new IllegalArgumentException("Unknown format " + format);
+        }
+    }
+
+    static Object decode(byte format, byte[] bytes, ClassLoader classLoader) throws ORPExceptions {
+        switch (format) {
+            case FORMAT_NULL:
+                return null;
+            case FORMAT_PARCELABLE:
+                Parcel parcel = Parcel.obtain();
+                try {
+                    parcel.unmarshall(bytes, 0, bytes.length);
+                    parcel.setDataPosition(0);
+                    return parcel.readParcelable(classLoader);
+                } finally {
+                    parcel.recycle();
+                }
+            case FORMAT_SERIALIZABLE:
+                try {
+                    ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes));
+                    try {
+                        return input.readObject();
+                    } finally {
+                        input.close();
+                    }
+                } catch (IOException e) {
+                    throw new ORPExceptions("Unable to restore a Serializable parameter", e);
+                } catch (ClassNotFoundException e) {
+                    throw new ORPExceptions("Unable to restore a Serializable parameter", e);
+                }
+            case FORMAT_CODEC:
+                return decodeWithCodec(bytes, classLoader);
+            default:
+                throw new ORPExceptions("Unknown persisted format " + format);
+        }
+    }
+
+    /**
+     * The class name, then the value as written by its codec.
+     */
+    private static byte[] encodeWithCodec(Object value) {
+        @SuppressWarnings("unchecked")
+        ParameterCodec<Object> codec = (ParameterCodec<Object>) ORPCodecs.getCodec(value.getClass());
+        String typeName = value.getClass().getName();
+        ByteBuffer buffer = ByteBuffer.allocate(ORPCodecs.sizeOfString(typeName) + codec.sizeOf(value));
+        ORPCodecs.writeString(buffer, typeName);
+        codec.encode(value, buffer);
+        return buffer.array();
+    }
+
+    private static Object decodeWithCodec(byte[] bytes, ClassLoader classLoader) throws ORPExceptions {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        String typeName = ORPCodecs.readString(buffer);
+        ParameterCodec<?> codec;
+        try {
+            codec = ORPCodecs.getCodec(Class.forName(typeName, true, classLoader));
+        } catch (ClassNotFoundException e) {
+            throw new ORPExceptions("Unable to restore a parameter of type " + typeName, e);
+        }
+        if (codec == null) {
+            throw new ORPExceptions("Unable to restore a parameter of type " + typeName + ", it has no codec anymore");
+        }
+        try {
+            return codec.decode(buffer);
+        } catch (RuntimeException e) {
+            throw new ORPExceptions("Unable to restore a parameter of type " + typeName, e);
+        }
+    }
+}
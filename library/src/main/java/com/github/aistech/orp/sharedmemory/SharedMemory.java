@@ -0,0 +1,236 @@
+package com.github.aistech.orp.sharedmemory;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.github.aistech.orp.codecs.ORPCodecs;
+import com.github.aistech.orp.codecs.ParameterCodec;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands payloads off to destinations running in another process of the app, e.g. a {@code :media}
+ * one, where {@link com.github.aistech.orp.singletons.ORPSingleton} is another instance. Instead
+ * of being marshalled through Binder, the bytes are written once in a memory-mapped file of a
+ * directory both processes can read, and only its handle travels in the Intent. The destination
+ * maps the same file: a {@link ByteBuffer} field is bound to the mapping itself, without copying
+ * anything, a {@code byte[]} one to a single copy of it, and the types with a generated
+ * {@link ParameterCodec} are decoded straight from it.
+ * <pre>{@code
+ * ORPBuilder.setSharedMemory(new SharedMemory(new File(getCacheDir(), "orp-shared")));
+ * ...
+ * new ORPBuilder(this)
+ *         .withDestinationActivity(PlayerActivity.class)
+ *         .passingShared("frames", frames)
+ *         .start();
+ * }</pre>
+ * Android can't send the file descriptor of an ashmem region with the Intent starting an
+ * activity, so regular files are used; on Android the cache directory is usually backed by flash,
+ * but the pages written stay in the page cache, which both processes map. Creating and mapping a
+ * file has a fixed cost though, so it only pays off for payloads of a megabyte or so and more.
+ * <p>
+ * The file is deleted once the destination is finished, the handoff holding it released.
+ * Files left behind by a process killed before that are deleted by {@link #deleteStale}.
+ */
+public final class SharedMemory {
+
+    static final String FILE_PREFIX = "orp-";
+    static final String FILE_SUFFIX = ".shm";
+    private static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final File directory;
+
+    /**
+     * @param directory where the payloads are written. It's created if needed, and should be
+     *                  private to the app, since anything able to read it can read them.
+     */
+    public SharedMemory(@NonNull File directory) {
+        this.directory = directory;
+    }
+
+    @NonNull
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @param value a {@code byte[]}, a {@link ByteBuffer}, or an object whose type has a
+     *              {@link ParameterCodec}.
+     * @return whether this value can be written in shared memory.
+     */
+    public static boolean canShare(@Nullable Object value) {
+        return value instanceof byte[] || value instanceof ByteBuffer
+                || value != null && ORPCodecs.getCodec(value.getClass()) != null;
+    }
+
+    /**
+     * Writes a value in a new shared file.
+     *
+     * @param value a {@code byte[]}, a {@link ByteBuffer}, whose remaining bytes are written without
+     *              changing its position, or an object whose type has a {@link ParameterCodec},
+     *              which is encoded straight into the mapping.
+     * @return the handle of the payload, to send to the destination.
+     * @throws IOException              if the file can't be written.
+     * @throws IllegalArgumentException if the value can't be shared.
+     */
+    @NonNull
+    public SharedPayload write(@NonNull Object value) throws IOException {
+        char format;
+        int length;
+        String typeName = null;
+        ParameterCodec<Object> codec = null;
+        if (value instanceof byte[]) {
+            format = SharedPayload.FORMAT_BYTES;
+            length = ((byte[]) value).length;
+        } else if (value instanceof ByteBuffer) {
+            format = SharedPayload.FORMAT_BUFFER;
+            length = ((ByteBuffer) value).remaining();
+        } else {
+            @SuppressWarnings("unchecked")
+            ParameterCodec<Object> valueCodec = (ParameterCodec<Object>) ORPCodecs.getCodec(value.getClass());
+            codec = valueCodec;
+            if (codec == null) {
+                throw new IllegalArgumentException(value.getClass().getName()
+                        + " can't be shared, it isn't a byte[] or a ByteBuffer, and has no codec");
+            }
+            format = SharedPayload.FORMAT_CODEC;
+            length = codec.sizeOf(value);
+            typeName = value.getClass().getName();
+        }
+
+        MappedFile file = create(length);
+        boolean written = false;
+        try {
+            if (codec != null) {
+                codec.encode(value, file.buffer);
+            } else if (value instanceof byte[]) {
+                file.buffer.put((byte[]) value);
+            } else {
+                file.buffer.put(((ByteBuffer) value).duplicate());
+            }
+            file.close();
+            written = true;
+        } finally {
+            if (!written) {
+                // Whatever failed, the destination will never get the file.
+                file.discard();
+            }
+        }
+        return new SharedPayload(format, length, typeName, file.file);
+    }
+
+    /**
+     * Same as {@link #deleteStale(long, TimeUnit)}, for the files older than a day.
+     */
+    public int deleteStale() {
+        return deleteStale(DEFAULT_MAX_AGE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Deletes the payloads left behind by processes killed before their destination finished.
+     * Touches the disk, so better called off the main thread.
+     *
+     * @param maxAge   payloads written before this are deleted, whether they're still used or not.
+     * @param timeUnit
+     * @return how many files were deleted.
+     */
+    public int deleteStale(long maxAge, @NonNull TimeUnit timeUnit) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long oldest = System.currentTimeMillis() - timeUnit.toMillis(maxAge);
+        int deleted = 0;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX) && file.lastModified() < oldest
+                    && file.delete()) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Deletes the files of the payloads sent with an Intent, once its destination is done with them.
+     * The mappings already made stay valid until they're garbage collected.
+     *
+     * @param payloads as sent in the Intent, may be null.
+     */
+    public static void delete(@Nullable String payloads) {
+        if (payloads == null) {
+            return;
+        }
+        for (Map.Entry<String, SharedPayload> payload : SharedPayload.decodeAll(payloads).entrySet()) {
+            payload.getValue().delete();
+        }
+    }
+
+    private MappedFile create(int length) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        File file = File.createTempFile(FILE_PREFIX, FILE_SUFFIX, directory);
+        RandomAccessFile randomAccessFile = null;
+        boolean mapped = false;
+        try {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            randomAccessFile.setLength(length);
+            FileChannel channel = randomAccessFile.getChannel();
+            MappedFile mappedFile = new MappedFile(file, randomAccessFile,
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0, length));
+            mapped = true;
+            return mappedFile;
+        } finally {
+            if (!mapped) {
+                closeQuietly(randomAccessFile);
+                file.delete();
+            }
+        }
+    }
+
+    private static void closeQuietly(@Nullable RandomAccessFile randomAccessFile) {
+        if (randomAccessFile == null) {
+            return;
+        }
+        try {
+            randomAccessFile.close();
+        } catch (IOException ignored) {
+            // Already failing, the file is deleted anyway.
+        }
+    }
+
+    /**
+     * A new file, mapped to be written. The mapping stays valid once the file is closed.
+     */
+    private static final class MappedFile {
+        final File file;
+        final RandomAccessFile randomAccessFile;
+        final MappedByteBuffer buffer;
+
+        MappedFile(File file, RandomAccessFile randomAccessFile, MappedByteBuffer buffer) {
+            this.file = file;
+            this.randomAccessFile = randomAccessFile;
+            this.buffer = buffer;
+        }
+
+        void close() throws IOException {
+            randomAccessFile.close();
+        }
+
+        /**
+         * Closes and deletes the file, which failed to be written.
+         */
+        void discard() {
+            closeQuietly(randomAccessFile);
+            file.delete();
+        }
+    }
+}
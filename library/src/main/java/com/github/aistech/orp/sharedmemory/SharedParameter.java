@@ -0,0 +1,35 @@
+package com.github.aistech.orp.sharedmemory;
+
+import com.github.aistech.orp.exceptions.ORPExceptions;
+import com.github.aistech.orp.singletons.LazyParameter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A parameter mapped from its {@link SharedPayload} the first time it's bound.
+ */
+public final class SharedParameter implements LazyParameter {
+
+    private final SharedPayload payload;
+    private volatile Object value;
+
+    public SharedParameter(SharedPayload payload) {
+        this.payload = payload;
+    }
+
+    @Override
+    public Object resolve() throws ORPExceptions {
+        Object value = this.value;
+        if (value == null) {
+            synchronized (this) {
+                value = this.value;
+                if (value == null) {
+                    value = payload.read(SharedParameter.class.getClassLoader());
+                    this.value = value;
+                }
+            }
+        }
+        // Every destination gets its own position and limit over the same mapping.
+        return payload.isBuffer() ? ((ByteBuffer) value).duplicate() : value;
+    }
+}
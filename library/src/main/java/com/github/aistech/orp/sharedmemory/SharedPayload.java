@@ -0,0 +1,172 @@
+package com.github.aistech.orp.sharedmemory;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.github.aistech.orp.codecs.ORPCodecs;
+import com.github.aistech.orp.codecs.ParameterCodec;
+import com.github.aistech.orp.exceptions.ORPExceptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The handle of a payload written by {@link SharedMemory}: everything the destination needs to
+ * map it, whatever its process.
+ */
+public final class SharedPayload {
+
+    static final char FORMAT_BYTES = 'b';
+    static final char FORMAT_BUFFER = 'B';
+    static final char FORMAT_CODEC = 'c';
+
+    private static final char FIELD_SEPARATOR = '\t';
+    private static final char ENTRY_SEPARATOR = '\n';
+
+    private final char format;
+    private final int length;
+    private final String typeName;
+    private final File file;
+
+    SharedPayload(char format, int length, String typeName, File file) {
+        this.format = format;
+        this.length = length;
+        this.typeName = typeName;
+        this.file = file;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    @NonNull
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Maps the payload, read only. Mapping it again maps the same pages, nothing is copied.
+     *
+     * @return
+     * @throws IOException if the file is gone, or can't be read.
+     */
+    @NonNull
+    public ByteBuffer map() throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * @param classLoader used to find the type of a payload encoded by its codec.
+     * @return the value written: a {@link ByteBuffer} of the mapping itself, a {@code byte[]}
+     * copied from it, or the object decoded from it by its codec.
+     * @throws ORPExceptions if the payload can't be mapped, or decoded.
+     */
+    @NonNull
+    public Object read(@Nullable ClassLoader classLoader) throws ORPExceptions {
+        ByteBuffer buffer;
+        try {
+            buffer = map();
+        } catch (IOException e) {
+            throw new ORPExceptions("Unable to map the shared payload " + file, e);
+        }
+        switch (format) {
+            case FORMAT_BUFFER:
+                return buffer;
+            case FORMAT_BYTES:
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                return bytes;
+            default:
+                ParameterCodec<?> codec;
+                try {
+                    codec = ORPCodecs.getCodec(Class.forName(typeName, true, classLoader));
+                } catch (ClassNotFoundException e) {
+                    throw new ORPExceptions("Unable to read a shared payload of type " + typeName, e);
+                }
+                if (codec == null) {
+                    throw new ORPExceptions("Unable to read a shared payload of type " + typeName + ", it has no codec");
+                }
+                return codec.decode(buffer);
+        }
+    }
+
+    /**
+     * @return true if this is a {@link ByteBuffer} payload, which can be bound without copying it.
+     */
+    boolean isBuffer() {
+        return format == FORMAT_BUFFER;
+    }
+
+    public boolean delete() {
+        return file.delete();
+    }
+
+    /* Intent extra */
+
+    /**
+     * @param payloads by parameter key.
+     * @return the payloads encoded in a single string extra.
+     */
+    @NonNull
+    public static String encodeAll(@NonNull Map<String, SharedPayload> payloads) {
+        StringBuilder encoded = new StringBuilder();
+        for (Map.Entry<String, SharedPayload> entry : payloads.entrySet()) {
+            String key = entry.getKey();
+            SharedPayload payload = entry.getValue();
+            if (key.indexOf(FIELD_SEPARATOR) >= 0 || key.indexOf(ENTRY_SEPARATOR) >= 0) {
+                throw new IllegalArgumentException("Shared parameter keys can't contain tabs or line breaks: " + key);
+            }
+            if (encoded.length() > 0) {
+                encoded.append(ENTRY_SEPARATOR);
+            }
+            encoded.append(key).append(FIELD_SEPARATOR)
+                    .append(payload.format).append(FIELD_SEPARATOR)
+                    .append(payload.length).append(FIELD_SEPARATOR)
+                    .append(payload.typeName != null ? payload.typeName : "").append(FIELD_SEPARATOR)
+                    .append(payload.file.getPath());
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * @param encoded by {@link #encodeAll}.
+     * @return the payloads by parameter key.
+     * @throws ORPExceptions if it's malformed.
+     */
+    @NonNull
+    public static Map<String, SharedPayload> decodeAll(@NonNull String encoded) throws ORPExceptions {
+        Map<String, SharedPayload> payloads = new LinkedHashMap<>();
+        if (encoded.isEmpty()) {
+            return payloads;
+        }
+        for (String entry : encoded.split(String.valueOf(ENTRY_SEPARATOR))) {
+            // The path is last, and may contain anything but line breaks.
+            String[] fields = entry.split(String.valueOf(FIELD_SEPARATOR), 5);
+            if (fields.length != 5 || fields[1].length() != 1) {
+                throw new ORPExceptions("Malformed shared payload: " + entry);
+            }
+            try {
+                payloads.put(fields[0], new SharedPayload(fields[1].charAt(0), Integer.parseInt(fields[2]),
+                        fields[3].isEmpty() ? null : fields[3], new File(fields[4])));
+            } catch (NumberFormatException e) {
+                throw new ORPExceptions("Malformed shared payload: " + entry, e);
+            }
+        }
+        return payloads;
+    }
+
+    @Override
+    public String toString() {
+        return "SharedPayload{" + file + ", " + length + " bytes}";
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.aistech.orp.singletons;
+
+import android.support.annotation.NonNull;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The default {@link ORPStore}, built on a {@link ConcurrentHashMap}: registering from a
+ * background thread doesn't block the UI thread reading, and every operation is atomic.
+ */
+public final class ConcurrentHandoffStore implements ORPStore {
+
+    private final ConcurrentMap<Long, Handoff> handoffs = new ConcurrentHashMap<>();
+
+    @Override
+    public void register(@NonNull Handoff handoff) {
+        this.handoffs.put(handoff.getToken(), handoff);
+    }
+
+    @Override
+    public Handoff registerIfAbsent(@NonNull Handoff handoff) {
+        return this.handoffs.putIfAbsent(handoff.getToken(), handoff);
+    }
+
+    @Override
+    public Handoff lookup(long token) {
+        return this.handoffs.get(token);
+    }
+
+    @Override
+    public boolean remove(@NonNull Handoff handoff) {
+        return this.handoffs.remove(handoff.getToken(), handoff);
+    }
+
+    @Override
+    public int size() {
+        return this.handoffs.size();
+    }
+
+    @NonNull
+    @Override
+    public Collection<Handoff> handoffs() {
+        return this.handoffs.values();
+    }
+}
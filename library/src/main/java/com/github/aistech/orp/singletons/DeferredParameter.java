@@ -0,0 +1,124 @@
+package com.github.aistech.orp.singletons;
+
+import android.support.annotation.NonNull;
+
+import com.github.aistech.orp.exceptions.ORPExceptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A parameter still being computed in the background while its destination launches, passed
+ * through {@link com.github.aistech.orp.builder.ORPBuilder#passingDeferred}.
+ * <p>
+ * Plain fields wait for it when bound, up to its timeout. {@link com.github.aistech.orp.Lazy}
+ * fields wait on their first {@code get()} instead, and {@link com.github.aistech.orp.Deferred}
+ * fields never wait, they are called back once it's done.
+ */
+public final class DeferredParameter implements LazyParameter {
+
+    private final Task task;
+    private final long timeoutMillis;
+
+    private DeferredParameter(Callable<?> callable, long timeoutMillis) {
+        this.task = new Task(callable);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Starts computing the parameter right away.
+     *
+     * @param callable
+     * @param executor      where the callable runs.
+     * @param timeoutMillis how long {@link #resolve()} waits for it.
+     * @return
+     */
+    @NonNull
+    public static DeferredParameter submit(@NonNull Callable<?> callable, @NonNull Executor executor,
+                                           long timeoutMillis) {
+        DeferredParameter parameter = new DeferredParameter(callable, timeoutMillis);
+        executor.execute(parameter.task);
+        return parameter;
+    }
+
+    /**
+     * Waits for the parameter, up to the timeout it was submitted with.
+     *
+     * @return
+     * @throws ORPExceptions if it failed, was cancelled, or isn't ready in time.
+     */
+    @Override
+    public Object resolve() throws ORPExceptions {
+        try {
+            return task.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new ORPExceptions("Deferred parameter failed", e.getCause());
+        } catch (CancellationException e) {
+            throw new ORPExceptions("Deferred parameter was cancelled", e);
+        } catch (TimeoutException e) {
+            throw new ORPExceptions("Deferred parameter not ready after " + timeoutMillis + "ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ORPExceptions("Interrupted while waiting for a deferred parameter", e);
+        }
+    }
+
+    public boolean isDone() {
+        return task.isDone();
+    }
+
+    /**
+     * Runs the listener on the thread completing the parameter, or right away if it's already done.
+     *
+     * @param listener
+     */
+    public void addListener(@NonNull Runnable listener) {
+        task.addListener(listener);
+    }
+
+    /**
+     * Stops computing the parameter, which nobody is going to bind anymore.
+     */
+    void cancel() {
+        task.cancel(true);
+    }
+
+    private static final class Task extends FutureTask<Object> {
+
+        private List<Runnable> listeners = new ArrayList<>(1);
+
+        @SuppressWarnings("unchecked")
+        Task(Callable<?> callable) {
+            super((Callable<Object>) callable);
+        }
+
+        void addListener(Runnable listener) {
+            synchronized (this) {
+                if (listeners != null) {
+                    listeners.add(listener);
+                    return;
+                }
+            }
+            listener.run();
+        }
+
+        @Override
+        protected void done() {
+            List<Runnable> listeners;
+            synchronized (this) {
+                listeners = this.listeners;
+                this.listeners = null;
+            }
+            for (Runnable listener : listeners) {
+                listener.run();
+            }
+        }
+    }
+}
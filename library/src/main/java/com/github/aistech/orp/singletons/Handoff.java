@@ -0,0 +1,533 @@
+package com.github.aistech.orp.singletons;
+
+import android.os.SystemClock;
+
+import com.github.aistech.orp.exceptions.MissingParameterException;
+import com.github.aistech.orp.exceptions.ORPExceptions;
+import com.github.aistech.orp.exceptions.ParameterReclaimedException;
+import com.github.aistech.orp.metrics.ORPMetrics;
+
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * The parameters of a single launch, registered by {@link com.github.aistech.orp.builder.ORPBuilder#build()}
+ * and identified by the token sent to the destination in the Intent. Each launch has its own
+ * handoff, so destinations started from the same origin never see each other's parameters.
+ * <p>
+ * Handoffs built by the generated {@code _ORPBuilder}s carry their parameters in a fixed size
+ * array instead, whose indexes were assigned to each field at compile time, so the generated
+ * bindings read them without any key or hashing.
+ * <p>
+ * Primitive parameters are kept apart, unboxed, in {@link PrimitiveParameters} or in a
+ * {@code long[]} of primitive slots.
+ * <p>
+ * A handoff registered by {@link com.github.aistech.orp.builder.ORPBuilder#buildShared} is
+ * shared by several destinations, and counts the ones that didn't release it yet.
+ * <p>
+ * Parameters passed with a {@link ReferenceStrength#SOFT} or {@link ReferenceStrength#WEAK}
+ * strength are held through a {@link ParameterReference}, and reported as reclaimed once it's cleared.
+ * <p>
+ * A handoff is never modified after it's registered, so it can be read from any thread.
+ * <p>
+ * Created by Jonathan Nobre Ferreira on 07/12/16.
+ */
+public final class Handoff {
+
+    /**
+     * Stored in place of null parameters, so a lookup is a single {@link Map#get(Object)}.
+     */
+    private static final Object NULL = new Object();
+    private static final long[] NO_PRIMITIVE_SLOTS = new long[0];
+    private static final PrimitiveParameters NO_PRIMITIVES = new PrimitiveParameters(0);
+
+    /**
+     * Stands for a handoff that doesn't exist: every required parameter is missing from it.
+     */
+    static final Handoff EMPTY = new Handoff(ORPSingleton.NO_TOKEN, Collections.<String, Object>emptyMap());
+
+    private final long token;
+    private final Map<String, Object> parameters;
+    private final Object[] slots;
+    private final PrimitiveParameters primitives;
+    private final long[] primitiveSlots;
+    private final long createdAt = SystemClock.elapsedRealtime();
+    private final boolean hasReferences;
+
+    private static final AtomicIntegerFieldUpdater<Handoff> REFERENCES =
+            AtomicIntegerFieldUpdater.newUpdater(Handoff.class, "references");
+
+    /**
+     * Set by {@link ORPSingleton} before the handoff is published, when a byte budget is used.
+     */
+    long estimatedSize;
+
+    /**
+     * How many destinations didn't release this handoff yet. Set by {@link ORPSingleton} before
+     * the handoff is published when it's shared, and only updated through {@link #REFERENCES}.
+     */
+    volatile int references = 1;
+
+    Handoff(long token, Object[] slots) {
+        this(token, slots, NO_PRIMITIVE_SLOTS);
+    }
+
+    Handoff(long token, Object[] slots, long[] primitiveSlots) {
+        this.token = token;
+        this.parameters = Collections.emptyMap();
+        this.slots = slots;
+        this.primitives = NO_PRIMITIVES;
+        this.primitiveSlots = primitiveSlots != null ? primitiveSlots : NO_PRIMITIVE_SLOTS;
+        this.hasReferences = false;
+    }
+
+    Handoff(long token, Map<String, Object> parameters) {
+        this(token, parameters, Collections.<String, ReferenceStrength>emptyMap(), null, null);
+    }
+
+    /**
+     * @param strengths the strength of the parameters not held strongly.
+     * @param queue      where the references of those parameters are enqueued when cleared.
+     * @param primitives the primitive parameters, already copied, or null.
+     */
+    Handoff(long token, Map<String, Object> parameters, Map<String, ReferenceStrength> strengths,
+            ReferenceQueue<Object> queue, PrimitiveParameters primitives) {
+        this.token = token;
+        this.slots = null;
+        this.primitiveSlots = null;
+        this.primitives = primitives != null ? primitives : NO_PRIMITIVES;
+        this.parameters = new HashMap<>(Math.max(4, parameters.size() * 2));
+        boolean hasReferences = false;
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            String key = parameter.getKey();
+            Object value = parameter.getValue();
+            ReferenceStrength strength = strengths.get(key);
+            if (value == null) {
+                value = NULL;
+            } else if (strength == ReferenceStrength.SOFT) {
+                value = new ParameterReference.Soft(token, value, queue);
+                hasReferences = true;
+            } else if (strength == ReferenceStrength.WEAK) {
+                value = new ParameterReference.Weak(token, value, queue);
+                hasReferences = true;
+            }
+            this.parameters.put(key, value);
+        }
+        this.hasReferences = hasReferences;
+    }
+
+    /**
+     * Creates a handoff restored by a {@link HandoffPersistence}. The values may be {@link LazyParameter}s.
+     *
+     * @param token
+     * @param parameters
+     * @return
+     */
+    public static Handoff restore(long token, Map<String, Object> parameters) {
+        return new Handoff(token, parameters);
+    }
+
+    /**
+     * Same as {@link #restore(long, Map)}, for a handoff shared by several destinations.
+     *
+     * @param token
+     * @param parameters
+     * @param consumers  how many destinations share it.
+     * @return
+     */
+    public static Handoff restore(long token, Map<String, Object> parameters, int consumers) {
+        Handoff handoff = new Handoff(token, parameters);
+        handoff.references = consumers;
+        return handoff;
+    }
+
+    /**
+     * Creates a handoff restored by a {@link HandoffPersistence}, for the slots of a generated builder.
+     *
+     * @param token
+     * @param slots
+     * @return
+     */
+    public static Handoff restoreSlots(long token, Object[] slots) {
+        return new Handoff(token, slots);
+    }
+
+    /**
+     * Same as {@link #restoreSlots(long, Object[])}, with the primitive slots too.
+     *
+     * @param token
+     * @param slots
+     * @param primitiveSlots
+     * @return
+     */
+    public static Handoff restoreSlots(long token, Object[] slots, long[] primitiveSlots) {
+        return new Handoff(token, slots, primitiveSlots);
+    }
+
+    public long getToken() {
+        return token;
+    }
+
+    /**
+     * @return the slots of a handoff registered by a generated {@code _ORPBuilder}, or null if it
+     * was registered by {@link com.github.aistech.orp.builder.ORPBuilder} with string keys.
+     * The array is shared, not copied, so it must never be modified.
+     */
+    public Object[] getSlots() {
+        return slots;
+    }
+
+    /**
+     * @return the primitive slots of a handoff registered by a generated {@code _ORPBuilder}, or
+     * null if it was registered by {@link com.github.aistech.orp.builder.ORPBuilder}. Shared too.
+     */
+    public long[] getPrimitiveSlots() {
+        return primitiveSlots;
+    }
+
+    /**
+     * @return when this handoff was registered, in {@link SystemClock#elapsedRealtime()} milliseconds.
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * @return how many destinations sharing this handoff didn't release it yet, 1 for a handoff
+     * that isn't shared and wasn't released.
+     */
+    public int getConsumerCount() {
+        return references;
+    }
+
+    /**
+     * Releases the reference of one destination.
+     *
+     * @return true if it was the last one, so the handoff must be removed.
+     */
+    boolean release() {
+        while (true) {
+            int references = this.references;
+            if (references <= 0) {
+                // Released by as many destinations as it was shared with already.
+                return false;
+            }
+            if (REFERENCES.compareAndSet(this, references, references - 1)) {
+                return references == 1;
+            }
+        }
+    }
+
+    public boolean containsParameter(String parameterKey) {
+        return this.parameters.containsKey(parameterKey) || this.primitives.containsKey(parameterKey);
+    }
+
+    /**
+     * @param parameterKey
+     * @return the object passed with this key, which may be null if null was passed.
+     * @throws ORPExceptions a {@link MissingParameterException} if nothing was passed with this key,
+     *                       or a {@link ParameterReclaimedException} if it was released to free memory.
+     */
+    public Object getParameter(String parameterKey) throws ORPExceptions {
+        Object value = this.parameters.get(parameterKey);
+        if (value == null) {
+            throw missingParameter(parameterKey);
+        }
+        if (value instanceof ParameterReference) {
+            value = ((ParameterReference) value).get();
+            if (value == null) {
+                throw reclaimedParameter(parameterKey);
+            }
+            return value;
+        }
+        if (value instanceof LazyParameter) {
+            return ((LazyParameter) value).resolve();
+        }
+        return value != NULL ? value : null;
+    }
+
+    /**
+     * Same as {@link #getParameter(String)}, but returns null instead of throwing when the
+     * parameter is missing or was reclaimed.
+     *
+     * @param parameterKey
+     * @return
+     * @throws ORPExceptions if the parameter is deferred and couldn't be computed.
+     */
+    public Object optParameter(String parameterKey) throws ORPExceptions {
+        Object value = this.parameters.get(parameterKey);
+        if (value instanceof ParameterReference) {
+            return ((ParameterReference) value).get();
+        }
+        if (value instanceof LazyParameter) {
+            return ((LazyParameter) value).resolve();
+        }
+        return value != NULL ? value : null;
+    }
+
+    /* Primitives. Each falls back to a boxed parameter passed with the same key. */
+
+    /**
+     * @param parameterKey
+     * @return
+     * @throws ORPExceptions if it's missing, or isn't an int.
+     */
+    public int getInt(String parameterKey) throws ORPExceptions {
+        int index = this.primitives.indexOf(parameterKey);
+        if (index >= 0) {
+            return this.primitives.getInt(index);
+        }
+        return toNumber(parameterKey, getParameter(parameterKey)).intValue();
+    }
+
+    public int optInt(String parameterKey, int fallback) throws ORPExceptions {
+        int index = this.primitives.indexOf(parameterKey);
+        if (index >= 0) {
+            return this.primitives.getInt(index);
+        }
+        Object value = optParameter(parameterKey);
+        return value != null ? toNumber(parameterKey, value).intValue() : fallback;
+    }
+
+    /**
+     * @param parameterKey
+     * @return
+     * @throws ORPExceptions if it's missing, or isn't a long or an int.
+     */
+    public long getLong(String parameterKey) throws ORPExceptions {
+        int index = this.primitives.indexOf(parameterKey);
+        if (index >= 0) {
+            return this.primitives.getLong(index);
+        }
+        return toNumber(parameterKey, getParameter(parameterKey)).longValue();
+    }
+
+    public long optLong(String parameterKey, long fallback) throws ORPExceptions {
+        int index = this.primitives.indexOf(parameterKey);
+        if (index >= 0) {
+            return this.primitives.getLong(index);
+        }
+        Object value = optParameter(parameterKey);
+        return value != null ? toNumber(parameterKey, value).longValue() : fallback;
+    }
+
+    /**
+     * @param parameterKey
+     * @return
+     * @throws ORPExceptions if it's missing, or isn't a number.
+     */
+    public double getDouble(String parameterKey) throws ORPExceptions {
+        int index = this.primitives.indexOf(parameterKey);
+        if (index >= 0) {
+            return this.primitives.getDouble(index);
+        }
+        return toNumber(parameterKey, getParameter(parameterKey)).doubleValue();
+    }
+
+    public double optDouble(String parameterKey, double fallback) throws ORPExceptions {
+        int index = this.primitives.indexOf(parameterKey);
+        if (index >= 0) {
+            return this.primitives.getDouble(index);
+        }
+        Object value = optParameter(parameterKey);
+        return value != null ? toNumber(parameterKey, value).doubleValue() : fallback;
+    }
+
+    /**
+     * @param parameterKey
+     * @return
+     * @throws ORPExceptions if it's missing, or isn't a boolean.
+     */
+    public boolean getBoolean(String parameterKey) throws ORPExceptions {
+        int index = this.primitives.indexOf(parameterKey);
+        if (index >= 0) {
+            return this.primitives.getBoolean(index);
+        }
+        return toBoolean(parameterKey, getParameter(parameterKey));
+    }
+
+    public boolean optBoolean(String parameterKey, boolean fallback) throws ORPExceptions {
+        int index = this.primitives.indexOf(parameterKey);
+        if (index >= 0) {
+            return this.primitives.getBoolean(index);
+        }
+        Object value = optParameter(parameterKey);
+        return value != null ? toBoolean(parameterKey, value) : fallback;
+    }
+
+    private static Number toNumber(String parameterKey, Object value) throws ORPExceptions {
+        if (value instanceof Number) {
+            return (Number) value;
+        }
+        if (value instanceof Character) {
+            return (int) (Character) value;
+        }
+        throw new ORPExceptions("Parameter with key '" + parameterKey + "' is not a number");
+    }
+
+    private static boolean toBoolean(String parameterKey, Object value) throws ORPExceptions {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        throw new ORPExceptions("Parameter with key '" + parameterKey + "' is not a boolean");
+    }
+
+    /**
+     * @return the parameter as stored, possibly a {@link ParameterReference} or a {@link LazyParameter}.
+     */
+    Object getRawParameter(String parameterKey) {
+        return this.parameters.get(parameterKey);
+    }
+
+    public Set<String> getParameterKeys() {
+        if (this.primitives.isEmpty()) {
+            return Collections.unmodifiableSet(this.parameters.keySet());
+        }
+        Set<String> keys = new LinkedHashSet<>(this.parameters.keySet());
+        for (int i = 0; i < this.primitives.size(); i++) {
+            keys.add(this.primitives.keyAt(i));
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+
+    public int size() {
+        if (slots != null) {
+            return slots.length + primitiveSlots.length;
+        }
+        return this.parameters.size() + this.primitives.size();
+    }
+
+    /**
+     * @return a copy of the parameters of this handoff, without the ones already reclaimed, nor
+     * the deferred ones still being computed.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> copy = new LinkedHashMap<>(this.parameters.size() * 2);
+        for (Map.Entry<String, Object> parameter : this.parameters.entrySet()) {
+            Object value = parameter.getValue();
+            if (value instanceof ParameterReference) {
+                value = ((ParameterReference) value).get();
+                if (value == null) {
+                    continue;
+                }
+            } else if (value instanceof DeferredParameter && !((DeferredParameter) value).isDone()) {
+                continue;
+            } else if (value instanceof LazyParameter) {
+                value = ((LazyParameter) value).resolve();
+            }
+            copy.put(parameter.getKey(), value != NULL ? value : null);
+        }
+        for (int i = 0; i < this.primitives.size(); i++) {
+            copy.put(this.primitives.keyAt(i), this.primitives.getBoxed(i));
+        }
+        return copy;
+    }
+
+    /**
+     * @return every parameter of this handoff, slots or keyed ones alike. Reclaimed ones, and
+     * lazy ones not resolved yet, are null.
+     */
+    Collection<Object> values() {
+        if (slots != null) {
+            return Arrays.asList(slots);
+        }
+        Collection<Object> values = new ArrayList<>(this.parameters.size());
+        for (Object value : this.parameters.values()) {
+            if (value instanceof ParameterReference) {
+                value = ((ParameterReference) value).get();
+            } else if (value instanceof LazyParameter) {
+                value = null;
+            }
+            values.add(value != NULL ? value : null);
+        }
+        return values;
+    }
+
+    /**
+     * Clears the references of every {@link ReferenceStrength#SOFT} or {@link ReferenceStrength#WEAK}
+     * parameter and enqueues them, as the garbage collector would.
+     *
+     * @return how many parameters were released.
+     */
+    int releaseReferences() {
+        if (!hasReferences) {
+            return 0;
+        }
+        int released = 0;
+        for (Object value : this.parameters.values()) {
+            if (value instanceof ParameterReference) {
+                ParameterReference reference = (ParameterReference) value;
+                if (reference.get() != null) {
+                    reference.clear();
+                    reference.enqueue();
+                    released++;
+                }
+            }
+        }
+        return released;
+    }
+
+    /**
+     * @return true when this handoff only held soft or weak parameters and all of them were
+     * reclaimed, so there is nothing left to bind.
+     */
+    boolean isReclaimed() {
+        if (!hasReferences) {
+            return false;
+        }
+        for (Object value : this.parameters.values()) {
+            if (!(value instanceof ParameterReference) || ((ParameterReference) value).get() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static ORPExceptions missingParameter(String parameterKey) {
+        ORPMetrics metrics = ORPMetrics.get();
+        if (metrics != null) {
+            metrics.onMissingKey();
+        }
+        return new MissingParameterException(parameterKey);
+    }
+
+    static ORPExceptions reclaimedParameter(String parameterKey) {
+        ORPMetrics metrics = ORPMetrics.get();
+        if (metrics != null) {
+            metrics.onReclaimed();
+        }
+        return new ParameterReclaimedException(parameterKey);
+    }
+
+    /**
+     * Stops computing the deferred parameters, and loading the paged ones, of a handoff nobody is
+     * going to bind anymore.
+     */
+    void cancelDeferred() {
+        Collection<Object> values = slots != null ? Arrays.asList(slots) : this.parameters.values();
+        for (Object value : values) {
+            if (value instanceof DeferredParameter) {
+                ((DeferredParameter) value).cancel();
+            } else if (value instanceof PagedParameter) {
+                ((PagedParameter) value).close();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (slots != null) {
+            return "Handoff{token=" + token + ", slots=" + slots.length + '}';
+        }
+        return "Handoff{token=" + token + ", keys=" + this.parameters.keySet() + '}';
+    }
+}
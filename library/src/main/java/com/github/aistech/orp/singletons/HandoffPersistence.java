@@ -0,0 +1,48 @@
+package com.github.aistech.orp.singletons;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * A second tier for the {@link ORPSingleton} store, keeping copies of the handoffs somewhere that
+ * survives the process, so a destination recreated after process death can still bind its
+ * parameters. Install it with {@link ORPSingleton#setPersistence(HandoffPersistence)}.
+ * <p>
+ * See {@link com.github.aistech.orp.persistence.HandoffJournal} for the built-in implementation.
+ */
+public interface HandoffPersistence {
+
+    /**
+     * Called on the thread registering the handoff. Implementations should only capture what
+     * they need and write it asynchronously.
+     *
+     * @param handoff
+     */
+    void onRegistered(@NonNull Handoff handoff);
+
+    /**
+     * Called when the handoff was consumed, cleared or evicted from memory, so it's not needed anymore.
+     *
+     * @param token
+     */
+    void onRemoved(long token);
+
+    /**
+     * Called when one of the destinations sharing the handoff released it, while others still
+     * share it, or when the handoff released isn't in memory. Implementations should count the
+     * release asynchronously, and forget the handoff once the last destination released it.
+     *
+     * @param token
+     */
+    void onReleased(long token);
+
+    /**
+     * Called when a destination asks for a token that isn't in memory, usually because the
+     * process was restarted. Values should be decoded lazily, through {@link LazyParameter}s.
+     *
+     * @param token
+     * @return the persisted handoff, or null if there is none.
+     */
+    @Nullable
+    Handoff restore(long token);
+}
@@ -0,0 +1,20 @@
+package com.github.aistech.orp.singletons;
+
+import com.github.aistech.orp.exceptions.ORPExceptions;
+
+/**
+ * A parameter whose value is only produced the first time a binding asks for it, e.g. one
+ * restored from disk by a {@link HandoffPersistence}. {@link Handoff} resolves it transparently,
+ * so bindings never see the wrapper.
+ */
+public interface LazyParameter {
+
+    /**
+     * Called every time the parameter is looked up, so implementations must cache the value
+     * themselves. May be called from several threads at once.
+     *
+     * @return the value of the parameter, possibly null.
+     * @throws ORPExceptions if the value can't be produced.
+     */
+    Object resolve() throws ORPExceptions;
+}
@@ -1,11 +1,32 @@
 package com.github.aistech.orp.singletons;
 
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.os.SystemClock;
+
 import com.github.aistech.orp.activities.ORPActivity;
 import com.github.aistech.orp.exceptions.ORPExceptions;
+import com.github.aistech.orp.leaks.HandoffLeak;
+import com.github.aistech.orp.leaks.HandoffLeakDetector;
+import com.github.aistech.orp.metrics.ORPMetrics;
+import com.github.aistech.orp.tracing.ORPTracing;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * The All Might Singleton that will handle all your sins and misbehavior...no...just kidding,
@@ -13,69 +34,805 @@ import java.util.Map;
  * <p>
  * For your sins, well, may God have mercy on your soul.
  * <p>
+ * Every launch registers its own {@link Handoff} under a unique, monotonic token that travels
+ * in the Intent as {@link ORPActivity#HANDOFF_TOKEN_EXTRA}. They are held by an {@link ORPStore},
+ * a {@link ConcurrentHandoffStore} unless another one is installed with {@link #setStore}.
+ * <p>
+ * The store can be bounded with a {@link StorePolicy}. Eviction is incremental: every
+ * registration looks at a few of the oldest handoffs only, so there is never a full scan.
+ * <p>
+ * An optional {@link HandoffPersistence} tier keeps copies of the handoffs that survive
+ * process death, restored the first time a binding asks for them.
+ * <p>
+ * Register it with {@code Application#registerComponentCallbacks} to release the
+ * {@link ReferenceStrength#SOFT} parameters when the system is running low on memory.
+ * <p>
  * Created by Jonathan Nobre Ferreira on 07/12/16.
  */
 
-public final class ORPSingleton {
+public final class ORPSingleton implements ComponentCallbacks2 {
+
+    /**
+     * Never handed out, {@link ORPActivity} uses it when it wasn't started through ORP.
+     */
+    public static final long NO_TOKEN = 0;
 
-    private static ORPSingleton instance = null;
+    /**
+     * How many of the oldest handoffs each registration may look at for eviction.
+     */
+    private static final int EVICTION_STEPS = 4;
 
-    private Map<Integer, Map<String, Object>> parametersMap;
+    /**
+     * Seeded from the wall clock, with room for a million registrations per millisecond, so the
+     * tokens keep growing across process restarts and never collide with the tokens of handoffs
+     * restored by a {@link HandoffPersistence}.
+     */
+    private final AtomicLong lastToken = new AtomicLong(System.currentTimeMillis() << 20);
+    private volatile ORPStore handoffs = new ConcurrentHandoffStore();
+    /**
+     * Set under {@link #storeLock} by the first registration, after which the store can't be
+     * replaced anymore.
+     */
+    private volatile boolean storeInUse;
+    private final Object storeLock = new Object();
 
-    public synchronized static ORPSingleton getInstance() {
-        if (instance == null) {
-            instance = new ORPSingleton();
-        }
-        return instance;
+    private volatile StorePolicy policy = StorePolicy.UNBOUNDED;
+    /**
+     * Tokens of the handoffs, oldest first, only tracked while the policy is bounded. Tokens are
+     * monotonic, so this is also the order of their age.
+     */
+    private final ConcurrentLinkedQueue<Long> registrationOrder = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final AtomicLong liveBytes = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Receives the references of the soft and weak parameters once they are cleared.
+     */
+    private final ReferenceQueue<Object> referenceQueue = new ReferenceQueue<>();
+
+    private volatile HandoffPersistence persistence;
+
+    /**
+     * Lazily created by the class loader on the first {@link #getInstance()}, which makes the
+     * accessor itself lock free.
+     */
+    private static final class Holder {
+        static final ORPSingleton INSTANCE = new ORPSingleton();
+    }
+
+    public static ORPSingleton getInstance() {
+        return Holder.INSTANCE;
     }
 
     private ORPSingleton() {
-        this.parametersMap = Collections.synchronizedMap(new LinkedHashMap<Integer, Map<String, Object>>());
     }
 
     /**
-     * As the method name says..you should add the origin class, or, the source activity.
+     * Registers the parameters of a new launch. They are copied, so the given map can be
+     * changed or reused afterwards without affecting this launch.
+     *
+     * @param parameters
+     * @return the token the destination must use to recover the parameters.
+     */
+    public long register(Map<String, Object> parameters) {
+        return register(parameters, Collections.<String, ReferenceStrength>emptyMap());
+    }
+
+    /**
+     * Same as {@link #register(Map)}, holding some parameters through soft or weak references.
+     *
+     * @param parameters
+     * @param strengths  the strength of each parameter, the ones missing are held strongly.
+     * @return the token the destination must use to recover the parameters.
+     */
+    public long register(Map<String, Object> parameters, Map<String, ReferenceStrength> strengths) {
+        return register(parameters, strengths, null);
+    }
+
+    /**
+     * Same as {@link #register(Map, Map)}, with primitive parameters kept unboxed.
+     *
+     * @param parameters
+     * @param strengths
+     * @param primitives copied too, may be null.
+     * @return the token the destination must use to recover the parameters.
+     */
+    public long register(Map<String, Object> parameters, Map<String, ReferenceStrength> strengths,
+                         PrimitiveParameters primitives) {
+        ORPTracing.beginSection(ORPTracing.SECTION_REGISTER);
+        try {
+            PrimitiveParameters copy = primitives != null && !primitives.isEmpty() ? primitives.copy() : null;
+            return store(new Handoff(this.lastToken.incrementAndGet(), parameters, strengths, this.referenceQueue, copy));
+        } finally {
+            ORPTracing.endSection(ORPTracing.SECTION_REGISTER);
+        }
+    }
+
+    /**
+     * Same as {@link #register(Map, Map, PrimitiveParameters)}, for parameters shared by several
+     * destinations. They're registered once, under a single token, and held until every one of
+     * those destinations released them through {@link #clearCurrentActivityParameters(long)}.
+     *
+     * @param parameters
+     * @param strengths
+     * @param primitives
+     * @param consumers  how many destinations share the parameters.
+     * @return the token every destination must use to recover the parameters.
+     */
+    public long registerShared(Map<String, Object> parameters, Map<String, ReferenceStrength> strengths,
+                               PrimitiveParameters primitives, int consumers) {
+        if (consumers < 1) {
+            throw new IllegalArgumentException("consumers < 1: " + consumers);
+        }
+        ORPTracing.beginSection(ORPTracing.SECTION_REGISTER);
+        try {
+            PrimitiveParameters copy = primitives != null && !primitives.isEmpty() ? primitives.copy() : null;
+            Handoff handoff = new Handoff(this.lastToken.incrementAndGet(), parameters, strengths, this.referenceQueue, copy);
+            handoff.references = consumers;
+            return store(handoff);
+        } finally {
+            ORPTracing.endSection(ORPTracing.SECTION_REGISTER);
+        }
+    }
+
+    /**
+     * Issues a token without registering anything under it, for a launch whose destination runs in
+     * another process, where its parameters are {@link #adopt adopted}.
+     *
+     * @return a token never issued by this process before.
+     */
+    public long issueToken() {
+        return this.lastToken.incrementAndGet();
+    }
+
+    /**
+     * Registers parameters under a token issued by another process, for a destination launched
+     * from there, see {@link com.github.aistech.orp.sharedmemory.SharedMemory}. Tokens start from
+     * the time each process started, shifted by 20 bits, so they don't collide in practice.
+     *
+     * @param token
+     * @param parameters
+     * @return false if a handoff is already registered with this token, which is then kept, e.g.
+     * when the destination runs in the process that launched it, or is being recreated.
+     */
+    public boolean adopt(long token, Map<String, Object> parameters) {
+        return adopt(token, parameters, 1);
+    }
+
+    /**
+     * Same as {@link #adopt(long, Map)}, for parameters shared by several destinations of this
+     * process, held until every one of them released them.
      *
-     * @param originActivity
+     * @param token
      * @param parameters
+     * @param consumers  how many destinations share the parameters.
+     * @return false if a handoff is already registered with this token, which is then kept.
+     */
+    public boolean adopt(long token, Map<String, Object> parameters, int consumers) {
+        if (consumers < 1) {
+            throw new IllegalArgumentException("consumers < 1: " + consumers);
+        }
+        if (token == NO_TOKEN || findHandoff(token) != null) {
+            return false;
+        }
+        Handoff handoff = new Handoff(token, parameters);
+        handoff.references = consumers;
+        store(handoff);
+        return true;
+    }
+
+    /**
+     * Registers the parameters of a new launch made by a generated {@code _ORPBuilder}. The array
+     * is kept as is, so the builder must not reuse it afterwards.
+     *
+     * @param slots
+     * @return the token the destination must use to recover the parameters.
      */
-    public void addOriginActivity(ORPActivity originActivity, Map<String, Object> parameters) {
-        Integer hashCode = originActivity.hashCode();
-        Map<String, Object> recoveredParameters = this.parametersMap.get(hashCode);
-        if (recoveredParameters == null) {
-            recoveredParameters = new LinkedHashMap<>();
+    public long registerSlots(Object[] slots) {
+        return registerSlots(slots, null);
+    }
+
+    /**
+     * Same as {@link #registerSlots(Object[])}, with the primitive fields kept unboxed in their
+     * own slots. Neither array is copied.
+     *
+     * @param slots
+     * @param primitiveSlots may be null.
+     * @return the token the destination must use to recover the parameters.
+     */
+    public long registerSlots(Object[] slots, long[] primitiveSlots) {
+        ORPTracing.beginSection(ORPTracing.SECTION_REGISTER);
+        try {
+            return store(new Handoff(this.lastToken.incrementAndGet(), slots, primitiveSlots));
+        } finally {
+            ORPTracing.endSection(ORPTracing.SECTION_REGISTER);
+        }
+    }
+
+    private long store(Handoff handoff) {
+        purgeReclaimed();
+        long token = handoff.getToken();
+        HandoffPersistence persistence = this.persistence;
+        if (persistence != null) {
+            persistence.onRegistered(handoff);
         }
-        recoveredParameters.putAll(parameters);
-        this.parametersMap.put(hashCode, recoveredParameters);
+        HandoffLeakDetector leakDetector = HandoffLeakDetector.get();
+        if (leakDetector != null) {
+            leakDetector.onRegistered(handoff);
+        }
+        ORPStore handoffs = useStore();
+        StorePolicy policy = this.policy;
+        if (!policy.isBounded()) {
+            handoffs.register(handoff);
+            return token;
+        }
+
+        handoff.estimatedSize = policy.estimateSize(handoff);
+        this.liveBytes.addAndGet(handoff.estimatedSize);
+        handoffs.register(handoff);
+        this.registrationOrder.add(token);
+        evict(policy, EVICTION_STEPS);
+        return token;
+    }
+
+    /**
+     * Used by the generated bindings to read the parameters by their slot index.
+     *
+     * @param token
+     * @return the slots registered with this token, or null if the handoff doesn't exist or was
+     * registered with string keys.
+     */
+    public Object[] getSlots(long token) {
+        Handoff handoff = findHandoff(token);
+        return handoff != null ? handoff.getSlots() : null;
+    }
+
+    /**
+     * @param token
+     * @return the primitive slots registered with this token by a generated {@code _ORPBuilder},
+     * or null.
+     */
+    public long[] getPrimitiveSlots(long token) {
+        Handoff handoff = findHandoff(token);
+        return handoff != null ? handoff.getPrimitiveSlots() : null;
+    }
+
+    /**
+     * @param token
+     * @return the handoff registered with this token, or null if there is none, or it was already cleared.
+     */
+    public Handoff getHandoff(long token) {
+        return findHandoff(token);
+    }
+
+    /**
+     * Used by the generated bindings, which fetch the handoff once and read all their fields from it.
+     *
+     * @param token
+     * @return the handoff registered with this token, or an empty one if there is none, so the
+     * required parameters are still reported missing by their keys.
+     */
+    public Handoff getHandoffOrEmpty(long token) {
+        Handoff handoff = findHandoff(token);
+        return handoff != null ? handoff : Handoff.EMPTY;
+    }
+
+    private Handoff findHandoff(long token) {
+        Handoff handoff = this.handoffs.lookup(token);
+        if (handoff != null) {
+            return handoff;
+        }
+        HandoffPersistence persistence = this.persistence;
+        if (persistence == null || token == NO_TOKEN) {
+            return null;
+        }
+        handoff = persistence.restore(token);
+        if (handoff == null) {
+            return null;
+        }
+        StorePolicy policy = this.policy;
+        if (policy.isBounded()) {
+            handoff.estimatedSize = policy.estimateSize(handoff);
+        }
+        Handoff current = useStore().registerIfAbsent(handoff);
+        if (current != null) {
+            return current;
+        }
+        if (policy.isBounded()) {
+            this.liveBytes.addAndGet(handoff.estimatedSize);
+            this.registrationOrder.add(token);
+        }
+        return handoff;
     }
 
     /***
      * Try to guess what this method do ? Well, yes, it will get the object passed from the origin
-     * using the ORIGIN Activity hashCode, try to use the {#link {@link ORPActivity#getActivityCallerHashCode()}}
+     * using the handoff token, try to use the {#link {@link ORPActivity#getHandoffToken()}}
      * and the parameterKey that is associated with the object.
      *
-     * @param activityHashCode
+     * @param token
      * @param parameterKey
      * @return
      */
-    public Object getParametersForOriginActivity(Integer activityHashCode, String parameterKey) throws ORPExceptions {
-        System.out.println(parametersMap.toString());
+    public Object getParameter(long token, String parameterKey) throws ORPExceptions {
+        ORPTracing.beginSection(ORPTracing.SECTION_LOOKUP);
+        try {
+            Handoff handoff = findHandoff(token);
+            if (handoff == null) {
+                throw Handoff.missingParameter(parameterKey);
+            }
+            return handoff.getParameter(parameterKey);
+        } finally {
+            ORPTracing.endSection(ORPTracing.SECTION_LOOKUP);
+        }
+    }
+
+    /**
+     * Used by the generated bindings for the optional fields: same as {@link #getParameter}, but
+     * returns null instead of throwing when the parameter is missing, so nothing is allocated.
+     *
+     * @param token
+     * @param parameterKey
+     * @return the parameter, or null if it's missing, was reclaimed, or its handoff was cleared.
+     * @throws ORPExceptions if the parameter is deferred and couldn't be computed.
+     */
+    public Object optParameter(long token, String parameterKey) throws ORPExceptions {
+        ORPTracing.beginSection(ORPTracing.SECTION_LOOKUP);
+        try {
+            Handoff handoff = findHandoff(token);
+            return handoff != null ? handoff.optParameter(parameterKey) : null;
+        } finally {
+            ORPTracing.endSection(ORPTracing.SECTION_LOOKUP);
+        }
+    }
+
+    /* Primitives, used by the generated bindings for their primitive fields. */
+
+    public int getInt(long token, String parameterKey) throws ORPExceptions {
+        Handoff handoff = findHandoff(token);
+        if (handoff == null) {
+            throw Handoff.missingParameter(parameterKey);
+        }
+        return handoff.getInt(parameterKey);
+    }
+
+    public int optInt(long token, String parameterKey, int fallback) throws ORPExceptions {
+        Handoff handoff = findHandoff(token);
+        return handoff != null ? handoff.optInt(parameterKey, fallback) : fallback;
+    }
+
+    public long getLong(long token, String parameterKey) throws ORPExceptions {
+        Handoff handoff = findHandoff(token);
+        if (handoff == null) {
+            throw Handoff.missingParameter(parameterKey);
+        }
+        return handoff.getLong(parameterKey);
+    }
+
+    public long optLong(long token, String parameterKey, long fallback) throws ORPExceptions {
+        Handoff handoff = findHandoff(token);
+        return handoff != null ? handoff.optLong(parameterKey, fallback) : fallback;
+    }
+
+    public double getDouble(long token, String parameterKey) throws ORPExceptions {
+        Handoff handoff = findHandoff(token);
+        if (handoff == null) {
+            throw Handoff.missingParameter(parameterKey);
+        }
+        return handoff.getDouble(parameterKey);
+    }
+
+    public double optDouble(long token, String parameterKey, double fallback) throws ORPExceptions {
+        Handoff handoff = findHandoff(token);
+        return handoff != null ? handoff.optDouble(parameterKey, fallback) : fallback;
+    }
+
+    public boolean getBoolean(long token, String parameterKey) throws ORPExceptions {
+        Handoff handoff = findHandoff(token);
+        if (handoff == null) {
+            throw Handoff.missingParameter(parameterKey);
+        }
+        return handoff.getBoolean(parameterKey);
+    }
+
+    public boolean optBoolean(long token, String parameterKey, boolean fallback) throws ORPExceptions {
+        Handoff handoff = findHandoff(token);
+        return handoff != null ? handoff.optBoolean(parameterKey, fallback) : fallback;
+    }
+
+    /**
+     * Atomically releases and returns the handoff registered with this token, so each destination
+     * sharing it can only consume it once. It's removed when the last one does.
+     *
+     * @param token
+     * @return the handoff, or null if there was none.
+     */
+    public Handoff consume(long token) {
+        Handoff handoff = findHandoff(token);
+        if (handoff != null && handoff.release() && this.handoffs.remove(handoff)) {
+            onRemoved(handoff);
+            onCleared(handoff);
+        }
+        return handoff;
+    }
+
+    /**
+     * Will turn water into wine... How I wish, but this method will only release the
+     * parameters sent to the activity who received the token passed in the parameter. They're
+     * removed once every destination sharing them released them, which is right away unless they
+     * were registered by {@link #registerShared}.
+     *
+     * <p>
+     * Only the handoffs in memory are looked up. The {@link HandoffPersistence}, if any, counts
+     * the releases of the others itself, in the background.
+     *
+     * @param token
+     * @return true if nothing is held in memory for this token anymore, false if other
+     * destinations still share the parameters.
+     */
+    public boolean clearCurrentActivityParameters(long token) {
+        if (token == NO_TOKEN) return true;
+        ORPTracing.beginSection(ORPTracing.SECTION_CLEAR);
+        try {
+            Handoff handoff = this.handoffs.lookup(token);
+            if (handoff == null) {
+                // It may only be persisted, if it was never looked up since the process restarted.
+                onReleased(token);
+                return true;
+            }
+            if (!handoff.release()) {
+                onReleased(token);
+                return false;
+            }
+            if (this.handoffs.remove(handoff)) {
+                handoff.cancelDeferred();
+                onRemoved(handoff);
+                onCleared(handoff);
+            }
+            return true;
+        } finally {
+            ORPTracing.endSection(ORPTracing.SECTION_CLEAR);
+        }
+    }
+
+    /* Storage */
+
+    /**
+     * Holds the handoffs in another store. It can only be installed before the first handoff is
+     * registered, e.g. in {@code Application#onCreate()}:
+     * <pre>{@code
+     * ORPSingleton.getInstance().setStore(new OpenAddressingHandoffStore());
+     * }</pre>
+     *
+     * @param store
+     * @throws IllegalStateException if a handoff was already registered.
+     */
+    public void setStore(ORPStore store) {
+        if (store == null) {
+            throw new IllegalArgumentException("store == null");
+        }
+        synchronized (this.storeLock) {
+            if (this.handoffs == store) {
+                return;
+            }
+            if (this.storeInUse) {
+                throw new IllegalStateException("The store can't be replaced once handoffs were registered");
+            }
+            this.handoffs = store;
+        }
+    }
+
+    public ORPStore getStore() {
+        return handoffs;
+    }
+
+    /**
+     * Every registration goes through here, so no handoff can land in a store being replaced.
+     *
+     * @return the store to register the handoffs in.
+     */
+    private ORPStore useStore() {
+        if (!this.storeInUse) {
+            synchronized (this.storeLock) {
+                this.storeInUse = true;
+            }
+        }
+        return this.handoffs;
+    }
+
+    /* Persistence */
+
+    /**
+     * Persists every handoff registered from now on, so destinations recreated after process death
+     * can still bind them. Handoffs not found in memory are looked up there before giving up.
+     * <pre>{@code
+     * ORPSingleton.getInstance().setPersistence(
+     *         new HandoffJournal(new File(getFilesDir(), "orp.journal")));
+     * }</pre>
+     *
+     * @param persistence the persistence tier, or null to stop persisting.
+     */
+    public void setPersistence(HandoffPersistence persistence) {
+        this.persistence = persistence;
+    }
+
+    public HandoffPersistence getPersistence() {
+        return persistence;
+    }
+
+    /* Memory pressure */
+
+    @Override
+    public void onTrimMemory(int level) {
+        // UI_HIDDEN only means the app went to background, its destinations may still bind soon.
+        if (level >= TRIM_MEMORY_RUNNING_LOW && level != TRIM_MEMORY_UI_HIDDEN) {
+            releaseSoftParameters();
+        }
+        if (level >= TRIM_MEMORY_MODERATE) {
+            trim();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        releaseSoftParameters();
+        trim();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    /**
+     * Releases every parameter passed with a {@link ReferenceStrength#SOFT} or
+     * {@link ReferenceStrength#WEAK} strength, and removes the handoffs left with nothing to bind.
+     * Destinations binding them afterwards get a
+     * {@link com.github.aistech.orp.exceptions.ParameterReclaimedException}.
+     *
+     * @return how many parameters were released.
+     */
+    public int releaseSoftParameters() {
+        int released = 0;
+        for (Handoff handoff : this.handoffs.handoffs()) {
+            released += handoff.releaseReferences();
+        }
+        purgeReclaimed();
+        return released;
+    }
+
+    /**
+     * Drains the reference queue, removing the handoffs whose parameters were all reclaimed.
+     */
+    private void purgeReclaimed() {
+        Reference<?> reference;
+        while ((reference = this.referenceQueue.poll()) != null) {
+            long token = ((ParameterReference) reference).getToken();
+            Handoff handoff = this.handoffs.lookup(token);
+            if (handoff != null && handoff.isReclaimed() && this.handoffs.remove(handoff)) {
+                onRemoved(handoff);
+                onCleared(handoff);
+            }
+        }
+    }
 
-        Map<String, Object> parameters = this.parametersMap.get(activityHashCode);
-        if (parameters != null && parameters.containsKey(parameterKey)) {
-            return parameters.get(parameterKey);
+    /* Bounds */
+
+    /**
+     * Bounds the store from now on. Handoffs already held are evicted progressively, as new
+     * ones are registered, or at once by {@link #trim()}.
+     *
+     * @param policy
+     */
+    public void setPolicy(StorePolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("policy == null");
         }
-        throw new ORPExceptions("Parameter with key '" + parameterKey + "' not found");
+        if (policy.isBounded() && !this.policy.isBounded()) {
+            // The handoffs registered while unbounded weren't tracked. Tokens are monotonic, so
+            // adding them in token order keeps the queue sorted by age.
+            List<Long> tokens = new ArrayList<>();
+            for (Handoff handoff : this.handoffs.handoffs()) {
+                if (handoff.estimatedSize == 0) {
+                    // Unless a previous byte budget counted it already.
+                    handoff.estimatedSize = policy.estimateSize(handoff);
+                    this.liveBytes.addAndGet(handoff.estimatedSize);
+                }
+                tokens.add(handoff.getToken());
+            }
+            Collections.sort(tokens);
+            this.registrationOrder.addAll(tokens);
+        } else if (!policy.isBounded()) {
+            this.registrationOrder.clear();
+        }
+        this.policy = policy;
+    }
+
+    public StorePolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Evicts at once every handoff over the bounds of the current policy.
+     */
+    public void trim() {
+        evict(this.policy, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return how many handoffs were evicted by the {@link StorePolicy} since the process started.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return the estimated size of the parameters held, when the policy has a byte budget.
+     */
+    public long getLiveBytes() {
+        return liveBytes.get();
     }
 
     /**
-     * Will turn water into wine... How I wish, but this method will only remove all the
-     * parameters sent to the source activity who was the hashCode passed in the parameter.
+     * Looks at up to {@code steps} of the oldest handoffs, dropping the ones already removed and
+     * evicting while the store is over its bounds. Only one thread evicts at a time, the others
+     * just skip it, since the evicting thread will do their share.
+     */
+    private void evict(StorePolicy policy, int steps) {
+        if (!policy.isBounded() || !this.evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = SystemClock.elapsedRealtime();
+            for (int i = 0; i < steps; i++) {
+                Long token = this.registrationOrder.peek();
+                if (token == null) {
+                    return;
+                }
+                Handoff handoff = this.handoffs.lookup(token);
+                if (handoff == null) {
+                    // Consumed or cleared already.
+                    this.registrationOrder.poll();
+                    continue;
+                }
+                boolean overBounds = this.handoffs.size() > policy.maxEntries
+                        || this.liveBytes.get() > policy.maxBytes
+                        || policy.isExpired(handoff, now);
+                if (!overBounds) {
+                    return;
+                }
+                this.registrationOrder.poll();
+                if (this.handoffs.remove(handoff)) {
+                    handoff.cancelDeferred();
+                    onRemoved(handoff);
+                    this.evictionCount.incrementAndGet();
+                    ORPMetrics metrics = ORPMetrics.get();
+                    if (metrics != null) {
+                        metrics.onEvicted(handoff.size());
+                    }
+                }
+            }
+        } finally {
+            this.evictionLock.unlock();
+        }
+    }
+
+    private void onRemoved(Handoff handoff) {
+        if (handoff.estimatedSize != 0) {
+            this.liveBytes.addAndGet(-handoff.estimatedSize);
+        }
+        HandoffPersistence persistence = this.persistence;
+        if (persistence != null) {
+            persistence.onRemoved(handoff.getToken());
+        }
+        HandoffLeakDetector leakDetector = HandoffLeakDetector.get();
+        if (leakDetector != null) {
+            leakDetector.onRemoved(handoff.getToken());
+        }
+    }
+
+    private void onReleased(long token) {
+        HandoffPersistence persistence = this.persistence;
+        if (persistence != null) {
+            persistence.onReleased(token);
+        }
+    }
+
+    private void onCleared(Handoff handoff) {
+        ORPMetrics metrics = ORPMetrics.get();
+        if (metrics != null) {
+            metrics.onParametersCleared(handoff.size());
+        }
+    }
+
+    /**
+     * @return how many handoffs are currently waiting to be recovered or cleared.
+     */
+    public int getLiveEntryCount() {
+        return this.handoffs.size();
+    }
+
+    /**
+     * @return how many parameters, summing all the handoffs, are currently held.
+     */
+    public int getLiveParameterCount() {
+        int count = 0;
+        for (Handoff handoff : this.handoffs.handoffs()) {
+            count += handoff.size();
+        }
+        return count;
+    }
+
+    /* Debugging */
+
+    /**
+     * Same as {@link #dump(File, SizeEstimator)}, with the estimator of the current {@link StorePolicy}.
      *
-     * @param activityHashCode
+     * @param file
+     * @throws IOException
      */
-    public void clearCurrentActivityParameters(Integer activityHashCode) {
-        if (activityHashCode == null) return;
-        this.parametersMap.remove(activityHashCode);
+    public void dump(File file) throws IOException {
+        dump(file, this.policy.sizeEstimator);
+    }
+
+    /**
+     * Writes a snapshot of the handoffs held to a file, for offline analysis. It's plain text, one
+     * handoff per line, oldest first, with tab separated columns:
+     * <pre>
+     * token  ageMillis  keys  estimatedBytes  state  registeredAt
+     * </pre>
+     * The state and the registration site are only known while a {@link HandoffLeakDetector} is
+     * enabled, and are {@code -} otherwise. The state is {@code WAITING} or {@code CONSUMED}, or
+     * the {@link HandoffLeak.Kind} of a leak.
+     *
+     * @param file      overwritten.
+     * @param estimator used for the sizes, which are {@code -} when it's null.
+     * @throws IOException
+     */
+    public void dump(File file, SizeEstimator estimator) throws IOException {
+        List<Handoff> handoffs = new ArrayList<>(this.handoffs.handoffs());
+        Collections.sort(handoffs, new Comparator<Handoff>() {
+            @Override
+            public int compare(Handoff first, Handoff second) {
+                return first.getToken() < second.getToken() ? -1 : first.getToken() == second.getToken() ? 0 : 1;
+            }
+        });
+        HandoffLeakDetector leakDetector = HandoffLeakDetector.get();
+        long now = SystemClock.elapsedRealtime();
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            writer.write("# ORP handoffs, live=" + handoffs.size() + " liveBytes=" + getLiveBytes()
+                    + " evicted=" + getEvictionCount() + " uptimeMillis=" + now + "\n");
+            writer.write("# token\tageMillis\tkeys\testimatedBytes\tstate\tregisteredAt\n");
+            for (Handoff handoff : handoffs) {
+                HandoffLeakDetector.Tracked tracked = leakDetector != null ? leakDetector.getTracked(handoff.getToken()) : null;
+                String state = "-";
+                StackTraceElement frame = null;
+                if (tracked != null) {
+                    HandoffLeak.Kind leak = tracked.getLeak(now);
+                    state = leak != null ? leak.name() : tracked.isConsumed() ? "CONSUMED" : "WAITING";
+                    frame = tracked.getRegistrationFrame();
+                }
+                writer.write(handoff.getToken() + "\t" + (now - handoff.getCreatedAt()) + "\t" + handoff.size() + "\t"
+                        + (estimator != null ? String.valueOf(estimateSize(handoff, estimator)) : "-") + "\t"
+                        + state + "\t" + (frame != null ? frame : "-") + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static long estimateSize(Handoff handoff, SizeEstimator estimator) {
+        if (handoff.estimatedSize != 0) {
+            return handoff.estimatedSize;
+        }
+        long size = 0;
+        for (Object value : handoff.values()) {
+            if (value != null) {
+                size += estimator.estimateSize(value);
+            }
+        }
+        return size;
     }
 }
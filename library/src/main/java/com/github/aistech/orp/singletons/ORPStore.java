@@ -0,0 +1,66 @@
+package com.github.aistech.orp.singletons;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Collection;
+
+/**
+ * Where the {@link ORPSingleton} holds the handoffs waiting for their destinations, by token.
+ * It's only storage: persistence, eviction, metrics and the like stay in the singleton, on top
+ * of whichever store is installed with {@link ORPSingleton#setStore(ORPStore)}.
+ * <p>
+ * Every method may be called from any thread, concurrently, and lookups are on the path of every
+ * binding, so they shouldn't block.
+ * <p>
+ * Two stores are built in: the {@link ConcurrentHandoffStore}, used by default, and the
+ * {@link OpenAddressingHandoffStore}.
+ */
+public interface ORPStore {
+
+    /**
+     * Registers the handoff under its token, replacing the one already registered with it, if any.
+     *
+     * @param handoff
+     */
+    void register(@NonNull Handoff handoff);
+
+    /**
+     * Registers the handoff under its token, unless there's already one, e.g. when a handoff is
+     * restored while another thread restores it too.
+     *
+     * @param handoff
+     * @return the handoff already registered with this token, which is kept, or null if the given
+     * one was registered.
+     */
+    @Nullable
+    Handoff registerIfAbsent(@NonNull Handoff handoff);
+
+    /**
+     * @param token
+     * @return the handoff registered with this token, or null.
+     */
+    @Nullable
+    Handoff lookup(long token);
+
+    /**
+     * Removes the handoff once it's consumed, cleared, evicted or reclaimed, if it's still the
+     * one registered with its token.
+     *
+     * @param handoff
+     * @return true if it was removed by this call.
+     */
+    boolean remove(@NonNull Handoff handoff);
+
+    /**
+     * @return how many handoffs are registered.
+     */
+    int size();
+
+    /**
+     * @return the handoffs registered, which may or may not reflect the changes made while it's
+     * iterated, but never fails because of them.
+     */
+    @NonNull
+    Collection<Handoff> handoffs();
+}
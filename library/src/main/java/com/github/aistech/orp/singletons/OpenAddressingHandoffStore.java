@@ -0,0 +1,173 @@
+package com.github.aistech.orp.singletons;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An {@link ORPStore} keyed by the {@code long} tokens themselves, never boxed: the handoffs sit
+ * in a single array, probed linearly from the hash of their token, which they carry. Lookups
+ * take no lock and allocate nothing. Registrations and removals lock the store, which is fine
+ * for the few launches per second of an app.
+ * <p>
+ * Removed handoffs leave a marker behind, so the probes of the others still find them, until
+ * the table is rebuilt. It's rebuilt, without the markers, once half of it is used, and a lookup
+ * racing with it reads the table it started with.
+ */
+public final class OpenAddressingHandoffStore implements ORPStore {
+
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * Left in the slots of the removed handoffs. Its token is never registered.
+     */
+    private static final Handoff REMOVED = new Handoff(ORPSingleton.NO_TOKEN, Collections.<String, Object>emptyMap());
+
+    private volatile AtomicReferenceArray<Handoff> table = new AtomicReferenceArray<>(MIN_CAPACITY);
+    private volatile int size;
+    /**
+     * Slots holding a handoff or a removal marker, guarded by this.
+     */
+    private int used;
+
+    @Override
+    public void register(@NonNull Handoff handoff) {
+        insert(handoff, true);
+    }
+
+    @Override
+    public Handoff registerIfAbsent(@NonNull Handoff handoff) {
+        return insert(handoff, false);
+    }
+
+    @Override
+    public Handoff lookup(long token) {
+        AtomicReferenceArray<Handoff> table = this.table;
+        int mask = table.length() - 1;
+        for (int i = indexOf(token, mask); ; i = (i + 1) & mask) {
+            Handoff handoff = table.get(i);
+            if (handoff == null) {
+                return null;
+            }
+            if (handoff.getToken() == token && handoff != REMOVED) {
+                return handoff;
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean remove(@NonNull Handoff handoff) {
+        AtomicReferenceArray<Handoff> table = this.table;
+        int mask = table.length() - 1;
+        long token = handoff.getToken();
+        for (int i = indexOf(token, mask); ; i = (i + 1) & mask) {
+            Handoff current = table.get(i);
+            if (current == null) {
+                return false;
+            }
+            if (current == handoff) {
+                table.set(i, REMOVED);
+                this.size--;
+                return true;
+            }
+            if (current.getToken() == token && current != REMOVED) {
+                // Another handoff took its token.
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @NonNull
+    @Override
+    public Collection<Handoff> handoffs() {
+        AtomicReferenceArray<Handoff> table = this.table;
+        List<Handoff> handoffs = new ArrayList<>(this.size);
+        for (int i = 0; i < table.length(); i++) {
+            Handoff handoff = table.get(i);
+            if (handoff != null && handoff != REMOVED) {
+                handoffs.add(handoff);
+            }
+        }
+        return handoffs;
+    }
+
+    /**
+     * @param replace whether a handoff already registered with the same token is replaced.
+     * @return the handoff that was registered with the same token, if any.
+     */
+    private synchronized Handoff insert(Handoff handoff, boolean replace) {
+        if ((this.used + 1) * 2 > this.table.length()) {
+            rebuild();
+        }
+        AtomicReferenceArray<Handoff> table = this.table;
+        int mask = table.length() - 1;
+        long token = handoff.getToken();
+        int free = -1;
+        for (int i = indexOf(token, mask); ; i = (i + 1) & mask) {
+            Handoff current = table.get(i);
+            if (current == null) {
+                if (free < 0) {
+                    free = i;
+                    this.used++;
+                }
+                break;
+            }
+            if (current == REMOVED) {
+                if (free < 0) {
+                    free = i;
+                }
+            } else if (current.getToken() == token) {
+                if (replace) {
+                    table.set(i, handoff);
+                }
+                return current;
+            }
+        }
+        table.set(free, handoff);
+        this.size++;
+        return null;
+    }
+
+    /**
+     * Copies the handoffs to a new table, dropping the removal markers, sized for them to fill a
+     * quarter of it at most.
+     */
+    private void rebuild() {
+        int capacity = MIN_CAPACITY;
+        while (capacity < (this.size + 1) * 4) {
+            capacity <<= 1;
+        }
+        AtomicReferenceArray<Handoff> table = this.table;
+        AtomicReferenceArray<Handoff> rebuilt = new AtomicReferenceArray<>(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < table.length(); i++) {
+            Handoff handoff = table.get(i);
+            if (handoff == null || handoff == REMOVED) {
+                continue;
+            }
+            int j = indexOf(handoff.getToken(), mask);
+            while (rebuilt.get(j) != null) {
+                j = (j + 1) & mask;
+            }
+            rebuilt.set(j, handoff);
+        }
+        this.used = this.size;
+        this.table = rebuilt;
+    }
+
+    /**
+     * Tokens are consecutive, spread them over the table with a Fibonacci hash.
+     */
+    private static int indexOf(long token, int mask) {
+        return (int) ((token * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
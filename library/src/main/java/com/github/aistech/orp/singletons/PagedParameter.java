@@ -0,0 +1,302 @@
+package com.github.aistech.orp.singletons;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import com.github.aistech.orp.PageCursor;
+import com.github.aistech.orp.PageSource;
+import com.github.aistech.orp.exceptions.ORPExceptions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * The pages of a {@link PageSource} passed through
+ * {@link com.github.aistech.orp.builder.ORPBuilder#passingPages}, loaded in the background while
+ * the destination launches. It's the {@link PageCursor} the destination binds.
+ * <p>
+ * At most {@code prefetchPages} pages are loaded ahead: once that many wait to be taken, loading
+ * stops until the destination takes one, so a destination reading slowly never holds the whole
+ * dataset.
+ */
+public final class PagedParameter implements PageCursor<Object> {
+
+    private static final class MainThread {
+        static final Handler HANDLER = new Handler(Looper.getMainLooper());
+    }
+
+    private final PageSource<?> source;
+    private final int pageSize;
+    private final int prefetchPages;
+    private final Executor executor;
+
+    private final Runnable loader = new Runnable() {
+        @Override
+        public void run() {
+            loadNextPage();
+        }
+    };
+
+    // All guarded by this.
+    private final ArrayDeque<List<?>> pages = new ArrayDeque<>();
+    private final ArrayDeque<Callback<Object>> callbacks = new ArrayDeque<>();
+    private int offset;
+    private boolean loading;
+    private boolean loadedAll;
+    private ORPExceptions failure;
+    private boolean closed;
+
+    private PagedParameter(PageSource<?> source, int pageSize, int prefetchPages, Executor executor) {
+        this.source = source;
+        this.pageSize = pageSize;
+        this.prefetchPages = prefetchPages;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts loading the first pages right away.
+     *
+     * @param source
+     * @param pageSize      how many items a page holds.
+     * @param prefetchPages how many pages are loaded ahead of the destination, at most.
+     * @param executor      where the pages are loaded.
+     * @return
+     */
+    @NonNull
+    public static PagedParameter start(@NonNull PageSource<?> source, int pageSize, int prefetchPages,
+                                       @NonNull Executor executor) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        }
+        if (prefetchPages < 1) {
+            throw new IllegalArgumentException("prefetchPages must be positive: " + prefetchPages);
+        }
+        PagedParameter parameter = new PagedParameter(source, pageSize, prefetchPages, executor);
+        synchronized (parameter) {
+            parameter.scheduleLoad();
+        }
+        return parameter;
+    }
+
+    /**
+     * Pages the items of an iterator, which is only created once the first page is loaded, in
+     * the background.
+     *
+     * @param iteratorSupplier
+     * @return
+     */
+    @NonNull
+    public static PageSource<Object> fromIterator(@NonNull Callable<? extends Iterator<?>> iteratorSupplier) {
+        return new IteratorSource(iteratorSupplier);
+    }
+
+    @Override
+    public void nextPage(@NonNull Callback<Object> callback) {
+        List<Runnable> deliveries = new ArrayList<>(1);
+        synchronized (this) {
+            callbacks.add(callback);
+            drainCallbacks(deliveries);
+            scheduleLoad();
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            for (Runnable delivery : deliveries) {
+                delivery.run();
+            }
+        } else {
+            post(deliveries);
+        }
+    }
+
+    @NonNull
+    @Override
+    public synchronized List<Object> takePage() throws ORPExceptions {
+        while (true) {
+            if (!pages.isEmpty()) {
+                return takeLoadedPage();
+            }
+            if (failure != null) {
+                throw new ORPExceptions("Unable to take a page", failure);
+            }
+            if (closed) {
+                throw new ORPExceptions("The cursor was closed");
+            }
+            if (loadedAll) {
+                return Collections.emptyList();
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ORPExceptions("Interrupted while waiting for a page", e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean isExhausted() {
+        return loadedAll && pages.isEmpty();
+    }
+
+    @Override
+    public void close() {
+        List<Runnable> deliveries = new ArrayList<>(0);
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pages.clear();
+            drainCallbacks(deliveries);
+            notifyAll();
+        }
+        post(deliveries);
+    }
+
+    /**
+     * Loads another page, unless the window is full or there's nothing left to load.
+     */
+    private void scheduleLoad() {
+        if (loading || loadedAll || closed || failure != null || pages.size() >= prefetchPages) {
+            return;
+        }
+        loading = true;
+        executor.execute(loader);
+    }
+
+    private void loadNextPage() {
+        int offset;
+        synchronized (this) {
+            if (closed) {
+                loading = false;
+                return;
+            }
+            offset = this.offset;
+        }
+
+        List<?> page = null;
+        ORPExceptions error = null;
+        try {
+            page = source.loadPage(offset, pageSize);
+            if (page == null) {
+                error = new ORPExceptions("The page at " + offset + " is null");
+            }
+        } catch (Exception e) {
+            error = new ORPExceptions("Unable to load the page at " + offset, e);
+        }
+
+        List<Runnable> deliveries = new ArrayList<>(1);
+        synchronized (this) {
+            loading = false;
+            if (closed) {
+                return;
+            }
+            if (error != null) {
+                failure = error;
+            } else {
+                if (page.size() < pageSize) {
+                    loadedAll = true;
+                }
+                if (!page.isEmpty()) {
+                    pages.add(page);
+                    this.offset = offset + page.size();
+                }
+            }
+            drainCallbacks(deliveries);
+            scheduleLoad();
+            notifyAll();
+        }
+        post(deliveries);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> takeLoadedPage() {
+        List<Object> page = (List<Object>) pages.poll();
+        scheduleLoad();
+        return page;
+    }
+
+    /**
+     * Hands the loaded pages to the callbacks waiting for them, in order, then tells the ones
+     * left why there won't be any more.
+     *
+     * @param deliveries where the calls to make are added, once the lock is released.
+     */
+    private void drainCallbacks(List<Runnable> deliveries) {
+        while (!callbacks.isEmpty()) {
+            final Callback<Object> callback = callbacks.peek();
+            if (!pages.isEmpty()) {
+                final List<Object> page = takeLoadedPage();
+                deliveries.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onPage(page);
+                    }
+                });
+            } else if (failure != null || closed) {
+                final ORPExceptions error = failure != null
+                        ? new ORPExceptions("Unable to take a page", failure)
+                        : new ORPExceptions("The cursor was closed");
+                deliveries.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onFailed(error);
+                    }
+                });
+            } else if (loadedAll) {
+                deliveries.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onEnd();
+                    }
+                });
+            } else {
+                return;
+            }
+            callbacks.poll();
+        }
+    }
+
+    private static void post(List<Runnable> deliveries) {
+        for (Runnable delivery : deliveries) {
+            MainThread.HANDLER.post(delivery);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "PagedParameter{offset=" + offset + ", loaded=" + pages.size() + ", loadedAll=" + loadedAll + '}';
+    }
+
+    /**
+     * Never loads two pages at once, and each load happens after the previous one released the
+     * lock of its cursor, so the iterator is only ever used by one thread at a time.
+     */
+    private static final class IteratorSource implements PageSource<Object> {
+
+        private final Callable<? extends Iterator<?>> iteratorSupplier;
+        private Iterator<?> iterator;
+
+        IteratorSource(Callable<? extends Iterator<?>> iteratorSupplier) {
+            this.iteratorSupplier = iteratorSupplier;
+        }
+
+        @NonNull
+        @Override
+        public List<Object> loadPage(int offset, int count) throws Exception {
+            if (iterator == null) {
+                iterator = iteratorSupplier.call();
+            }
+            List<Object> page = new ArrayList<>(count);
+            while (page.size() < count && iterator.hasNext()) {
+                page.add(iterator.next());
+            }
+            return page;
+        }
+    }
+}
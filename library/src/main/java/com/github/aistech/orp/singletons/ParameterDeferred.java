@@ -0,0 +1,81 @@
+package com.github.aistech.orp.singletons;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import com.github.aistech.orp.Deferred;
+import com.github.aistech.orp.exceptions.ORPExceptions;
+
+/**
+ * The {@link Deferred} injected by the generated bindings.
+ *
+ * @param <T>
+ */
+public final class ParameterDeferred<T> extends ParameterLazy<T> implements Deferred<T> {
+
+    private static final class MainThread {
+        static final Handler HANDLER = new Handler(Looper.getMainLooper());
+    }
+
+    private ParameterDeferred(long token, String parameterKey, int slot) {
+        super(token, parameterKey, slot);
+    }
+
+    @NonNull
+    public static <T> Deferred<T> ofKey(long token, @NonNull String parameterKey) {
+        return new ParameterDeferred<>(token, parameterKey, NO_SLOT);
+    }
+
+    @NonNull
+    public static <T> Deferred<T> ofSlot(long token, int slot, @NonNull String parameterKey) {
+        return new ParameterDeferred<>(token, parameterKey, slot);
+    }
+
+    @Override
+    public boolean isReady() {
+        try {
+            Object value = peek();
+            return !(value instanceof DeferredParameter) || ((DeferredParameter) value).isDone();
+        } catch (ORPExceptions e) {
+            // Ready to fail.
+            return true;
+        }
+    }
+
+    @Override
+    public void whenReady(@NonNull final Callback<T> callback) {
+        final Runnable delivery = new Runnable() {
+            @Override
+            public void run() {
+                T value;
+                try {
+                    value = get();
+                } catch (ORPExceptions e) {
+                    callback.onFailed(e);
+                    return;
+                }
+                callback.onReady(value);
+            }
+        };
+
+        Object value;
+        try {
+            value = peek();
+        } catch (ORPExceptions e) {
+            value = null;
+        }
+        if (value instanceof DeferredParameter && !((DeferredParameter) value).isDone()) {
+            ((DeferredParameter) value).addListener(new Runnable() {
+                @Override
+                public void run() {
+                    MainThread.HANDLER.post(delivery);
+                }
+            });
+        } else if (Looper.myLooper() == Looper.getMainLooper()) {
+            delivery.run();
+        } else {
+            MainThread.HANDLER.post(delivery);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.aistech.orp.singletons;
+
+import android.support.annotation.NonNull;
+
+import com.github.aistech.orp.Lazy;
+import com.github.aistech.orp.exceptions.ORPExceptions;
+
+/**
+ * The {@link Lazy} injected by the generated bindings, resolving its parameter from
+ * {@link ORPSingleton} on the first {@link #get()}.
+ *
+ * @param <T>
+ */
+public class ParameterLazy<T> implements Lazy<T> {
+
+    private static final Object UNRESOLVED = new Object();
+    static final int NO_SLOT = -1;
+
+    final long token;
+    final String parameterKey;
+    final int slot;
+    private volatile Object value = UNRESOLVED;
+
+    ParameterLazy(long token, String parameterKey, int slot) {
+        this.token = token;
+        this.parameterKey = parameterKey;
+        this.slot = slot;
+    }
+
+    /**
+     * @param token
+     * @param parameterKey
+     * @param <T>
+     * @return a handle on a parameter passed through {@link com.github.aistech.orp.builder.ORPBuilder}.
+     */
+    @NonNull
+    public static <T> Lazy<T> ofKey(long token, @NonNull String parameterKey) {
+        return new ParameterLazy<>(token, parameterKey, NO_SLOT);
+    }
+
+    /**
+     * @param token
+     * @param slot
+     * @param parameterKey only used to describe the parameter when it's missing.
+     * @param <T>
+     * @return a handle on a parameter passed through a generated builder.
+     */
+    @NonNull
+    public static <T> Lazy<T> ofSlot(long token, int slot, @NonNull String parameterKey) {
+        return new ParameterLazy<>(token, parameterKey, slot);
+    }
+
+    @Override
+    public T get() throws ORPExceptions {
+        Object value = this.value;
+        if (value == UNRESOLVED) {
+            synchronized (this) {
+                value = this.value;
+                if (value == UNRESOLVED) {
+                    value = resolve();
+                    this.value = value;
+                }
+            }
+        }
+        @SuppressWarnings("unchecked")
+        T typedValue = (T) value;
+        return typedValue;
+    }
+
+    private Object resolve() throws ORPExceptions {
+        if (slot == NO_SLOT) {
+            return ORPSingleton.getInstance().getParameter(token, parameterKey);
+        }
+        Object value = peek();
+        if (value instanceof LazyParameter) {
+            return ((LazyParameter) value).resolve();
+        }
+        return value;
+    }
+
+    /**
+     * @return the parameter as stored in its handoff, without resolving it.
+     * @throws ORPExceptions if it's missing.
+     */
+    final Object peek() throws ORPExceptions {
+        Handoff handoff = ORPSingleton.getInstance().getHandoff(token);
+        if (slot != NO_SLOT) {
+            if (handoff == null || handoff.getSlots() == null) {
+                throw Handoff.missingParameter(parameterKey);
+            }
+            return handoff.getSlots()[slot];
+        }
+        if (handoff == null || !handoff.containsParameter(parameterKey)) {
+            throw Handoff.missingParameter(parameterKey);
+        }
+        return handoff.getRawParameter(parameterKey);
+    }
+
+    @Override
+    public String toString() {
+        Object value = this.value;
+        return "Lazy{" + parameterKey + "=" + (value != UNRESOLVED ? value : "<unresolved>") + '}';
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.aistech.orp.singletons;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+
+/**
+ * Holds a {@link ReferenceStrength#SOFT} or {@link ReferenceStrength#WEAK} parameter inside a
+ * {@link Handoff}, remembering the handoff token so {@link ORPSingleton} can find it again when
+ * the reference is enqueued.
+ */
+interface ParameterReference {
+
+    long getToken();
+
+    Object get();
+
+    void clear();
+
+    boolean enqueue();
+
+    final class Soft extends SoftReference<Object> implements ParameterReference {
+        private final long token;
+
+        Soft(long token, Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.token = token;
+        }
+
+        @Override
+        public long getToken() {
+            return token;
+        }
+    }
+
+    final class Weak extends WeakReference<Object> implements ParameterReference {
+        private final long token;
+
+        Weak(long token, Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.token = token;
+        }
+
+        @Override
+        public long getToken() {
+            return token;
+        }
+    }
+}
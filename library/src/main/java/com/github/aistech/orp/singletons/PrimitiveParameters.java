@@ -0,0 +1,182 @@
+package com.github.aistech.orp.singletons;
+
+import android.support.annotation.NonNull;
+
+import com.github.aistech.orp.exceptions.ORPExceptions;
+
+import java.util.Arrays;
+
+/**
+ * The primitive parameters of a launch, stored unboxed as the raw bits of each value, so passing
+ * ids and offsets doesn't allocate anything beyond these arrays.
+ * <p>
+ * Filled by {@link com.github.aistech.orp.builder.ORPBuilder#passingInt} and its siblings. Keys
+ * are looked up with a linear scan, which beats hashing for the handful of primitives a launch
+ * usually has.
+ */
+public final class PrimitiveParameters {
+
+    static final byte KIND_INT = 0;
+    static final byte KIND_LONG = 1;
+    static final byte KIND_DOUBLE = 2;
+    static final byte KIND_BOOLEAN = 3;
+
+    private static final String[] KIND_NAMES = {"an int", "a long", "a double", "a boolean"};
+
+    private String[] keys;
+    private byte[] kinds;
+    private long[] values;
+    private int size;
+
+    public PrimitiveParameters() {
+        this(4);
+    }
+
+    public PrimitiveParameters(int capacity) {
+        this.keys = new String[capacity];
+        this.kinds = new byte[capacity];
+        this.values = new long[capacity];
+    }
+
+    public void putInt(@NonNull String key, int value) {
+        put(key, KIND_INT, value);
+    }
+
+    public void putLong(@NonNull String key, long value) {
+        put(key, KIND_LONG, value);
+    }
+
+    public void putDouble(@NonNull String key, double value) {
+        put(key, KIND_DOUBLE, Double.doubleToRawLongBits(value));
+    }
+
+    public void putBoolean(@NonNull String key, boolean value) {
+        put(key, KIND_BOOLEAN, value ? 1 : 0);
+    }
+
+    public void remove(@NonNull String key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return;
+        }
+        size--;
+        System.arraycopy(keys, index + 1, keys, index, size - index);
+        System.arraycopy(kinds, index + 1, kinds, index, size - index);
+        System.arraycopy(values, index + 1, values, index, size - index);
+        keys[size] = null;
+    }
+
+    public boolean containsKey(@NonNull String key) {
+        return indexOf(key) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return a copy trimmed to its size, so this instance can keep being changed.
+     */
+    @NonNull
+    public PrimitiveParameters copy() {
+        PrimitiveParameters copy = new PrimitiveParameters(size);
+        System.arraycopy(keys, 0, copy.keys, 0, size);
+        System.arraycopy(kinds, 0, copy.kinds, 0, size);
+        System.arraycopy(values, 0, copy.values, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    private void put(String key, byte kind, long bits) {
+        int index = indexOf(key);
+        if (index < 0) {
+            if (size == keys.length) {
+                int capacity = Math.max(4, size * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                kinds = Arrays.copyOf(kinds, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            index = size++;
+            keys[index] = key;
+        }
+        kinds[index] = kind;
+        values[index] = bits;
+    }
+
+    int indexOf(String key) {
+        // Keys are usually the same string literals on both sides, try identity first.
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    String keyAt(int index) {
+        return keys[index];
+    }
+
+    int getInt(int index) {
+        checkKind(index, KIND_INT);
+        return (int) values[index];
+    }
+
+    /**
+     * Ints are widened.
+     */
+    long getLong(int index) {
+        if (kinds[index] != KIND_INT) {
+            checkKind(index, KIND_LONG);
+        }
+        return values[index];
+    }
+
+    /**
+     * Ints and longs are widened.
+     */
+    double getDouble(int index) {
+        if (kinds[index] == KIND_INT || kinds[index] == KIND_LONG) {
+            return values[index];
+        }
+        checkKind(index, KIND_DOUBLE);
+        return Double.longBitsToDouble(values[index]);
+    }
+
+    boolean getBoolean(int index) {
+        checkKind(index, KIND_BOOLEAN);
+        return values[index] != 0;
+    }
+
+    /**
+     * @return the value boxed, for the callers that need objects anyway, like persistence.
+     */
+    Object getBoxed(int index) {
+        switch (kinds[index]) {
+            case KIND_INT:
+                return (int) values[index];
+            case KIND_LONG:
+                return values[index];
+            case KIND_DOUBLE:
+                return Double.longBitsToDouble(values[index]);
+            default:
+                return values[index] != 0;
+        }
+    }
+
+    private void checkKind(int index, byte kind) {
+        if (kinds[index] != kind) {
+            throw new ORPExceptions("Parameter with key '" + keys[index] + "' is " + KIND_NAMES[kinds[index]]
+                    + ", not " + KIND_NAMES[kind]);
+        }
+    }
+}
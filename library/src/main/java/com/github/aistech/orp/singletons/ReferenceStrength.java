@@ -0,0 +1,26 @@
+package com.github.aistech.orp.singletons;
+
+/**
+ * How strongly {@link ORPSingleton} holds a parameter while it waits for its destination. Pass
+ * it to {@link com.github.aistech.orp.builder.ORPBuilder#passingObject(String, Object, ReferenceStrength)}.
+ */
+public enum ReferenceStrength {
+
+    /**
+     * Held until the destination is destroyed or the handoff is evicted. The default.
+     */
+    STRONG,
+
+    /**
+     * Held through a {@link java.lang.ref.SoftReference}: kept unless the VM runs low on memory,
+     * and released by {@link ORPSingleton#onTrimMemory(int)}. Meant for big objects that can be
+     * recreated, like decoded bitmaps.
+     */
+    SOFT,
+
+    /**
+     * Held through a {@link java.lang.ref.WeakReference}: kept only while something else, usually
+     * the origin activity, references it too.
+     */
+    WEAK
+}
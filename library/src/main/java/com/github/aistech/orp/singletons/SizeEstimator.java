@@ -0,0 +1,18 @@
+package com.github.aistech.orp.singletons;
+
+/**
+ * Estimates how much memory a parameter keeps alive, so {@link ORPSingleton} can hold the
+ * handed-off objects under a byte budget. See {@link StorePolicy.Builder#maxBytes(long, SizeEstimator)}.
+ * <p>
+ * It's called once per parameter when the handoff is registered, on the thread calling
+ * {@link com.github.aistech.orp.builder.ORPBuilder#build()}, so it should be cheap: a rough
+ * estimate like {@code bitmap.getByteCount()} or {@code list.size() * 64} is enough.
+ */
+public interface SizeEstimator {
+
+    /**
+     * @param value a parameter being registered, never null.
+     * @return the estimated size in bytes, zero or more.
+     */
+    long estimateSize(Object value);
+}
@@ -0,0 +1,122 @@
+package com.github.aistech.orp.singletons;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The bounds of the {@link ORPSingleton} store. Handoffs are normally removed when their
+ * destination is destroyed, but a built Intent that is never started, or a destination killed
+ * before {@code onDestroy}, would keep its parameters forever. A bounded store evicts the oldest
+ * handoffs as soon as it goes over any of the limits below.
+ * <p>
+ * Pick the limits generously: a handoff evicted while its destination is still alive can't be
+ * bound again, e.g. after a configuration change.
+ * <pre>{@code
+ * ORPSingleton.getInstance().setPolicy(new StorePolicy.Builder()
+ *         .maxEntries(64)
+ *         .maxAge(10, TimeUnit.MINUTES)
+ *         .build());
+ * }</pre>
+ */
+public final class StorePolicy {
+
+    /**
+     * The default policy, that never evicts anything.
+     */
+    public static final StorePolicy UNBOUNDED = new Builder().build();
+
+    final int maxEntries;
+    final long maxAgeMillis;
+    final long maxBytes;
+    final SizeEstimator sizeEstimator;
+
+    private StorePolicy(Builder builder) {
+        this.maxEntries = builder.maxEntries;
+        this.maxAgeMillis = builder.maxAgeMillis;
+        this.maxBytes = builder.maxBytes;
+        this.sizeEstimator = builder.sizeEstimator;
+    }
+
+    boolean isBounded() {
+        return maxEntries != Integer.MAX_VALUE || maxAgeMillis != Long.MAX_VALUE || sizeEstimator != null;
+    }
+
+    boolean isExpired(Handoff handoff, long now) {
+        return now - handoff.getCreatedAt() > maxAgeMillis;
+    }
+
+    long estimateSize(Handoff handoff) {
+        if (sizeEstimator == null) {
+            return 0;
+        }
+        long size = 0;
+        for (Object value : handoff.values()) {
+            if (value != null) {
+                size += sizeEstimator.estimateSize(value);
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "StorePolicy{" +
+                "maxEntries=" + maxEntries +
+                ", maxAgeMillis=" + maxAgeMillis +
+                ", maxBytes=" + maxBytes +
+                ", sizeEstimator=" + sizeEstimator +
+                '}';
+    }
+
+    public static final class Builder {
+        private int maxEntries = Integer.MAX_VALUE;
+        private long maxAgeMillis = Long.MAX_VALUE;
+        private long maxBytes = Long.MAX_VALUE;
+        private SizeEstimator sizeEstimator;
+
+        /**
+         * @param maxEntries how many handoffs can be held at once.
+         * @return
+         */
+        public Builder maxEntries(int maxEntries) {
+            if (maxEntries <= 0) {
+                throw new IllegalArgumentException("maxEntries must be positive, but was " + maxEntries);
+            }
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * @param maxAge   how long a handoff can be held after being registered.
+         * @param timeUnit
+         * @return
+         */
+        public Builder maxAge(long maxAge, TimeUnit timeUnit) {
+            if (maxAge <= 0) {
+                throw new IllegalArgumentException("maxAge must be positive, but was " + maxAge);
+            }
+            this.maxAgeMillis = timeUnit.toMillis(maxAge);
+            return this;
+        }
+
+        /**
+         * @param maxBytes      the budget for the estimated size of all the parameters held.
+         * @param sizeEstimator estimates the size of each parameter.
+         * @return
+         */
+        public Builder maxBytes(long maxBytes, SizeEstimator sizeEstimator) {
+            if (maxBytes <= 0) {
+                throw new IllegalArgumentException("maxBytes must be positive, but was " + maxBytes);
+            }
+            if (sizeEstimator == null) {
+                throw new IllegalArgumentException("sizeEstimator == null");
+            }
+            this.maxBytes = maxBytes;
+            this.sizeEstimator = sizeEstimator;
+            return this;
+        }
+
+        public StorePolicy build() {
+            return new StorePolicy(this);
+        }
+    }
+}
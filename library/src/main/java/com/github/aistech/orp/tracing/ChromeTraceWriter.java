@@ -0,0 +1,153 @@
+package com.github.aistech.orp.tracing;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * An {@link ORPTracer} that records the ORP sections in a fixed size ring buffer and writes
+ * them as Chrome trace events JSON, ready to be opened on {@code chrome://tracing} or
+ * <a href="https://ui.perfetto.dev">Perfetto</a>.
+ * <p>
+ * All the memory is allocated up front, so recording an event never allocates. When the
+ * buffer is full the oldest events are overwritten.
+ */
+public final class ChromeTraceWriter implements ORPTracer {
+
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    private final String[] names;
+    private final long[] timestamps;
+    private final long[] threadIds;
+    private final boolean[] begins;
+
+    private int next;
+    private boolean wrapped;
+
+    public ChromeTraceWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity how many events, begins and ends counted separately, are kept.
+     */
+    public ChromeTraceWriter(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive, but was " + capacity);
+        }
+        this.names = new String[capacity];
+        this.timestamps = new long[capacity];
+        this.threadIds = new long[capacity];
+        this.begins = new boolean[capacity];
+    }
+
+    @Override
+    public void beginSection(@NonNull String name) {
+        record(name, true);
+    }
+
+    @Override
+    public void endSection(@NonNull String name) {
+        record(name, false);
+    }
+
+    private synchronized void record(String name, boolean begin) {
+        names[next] = name;
+        timestamps[next] = System.nanoTime();
+        threadIds[next] = Thread.currentThread().getId();
+        begins[next] = begin;
+        if (++next == names.length) {
+            next = 0;
+            wrapped = true;
+        }
+    }
+
+    /**
+     * Drops every recorded event.
+     */
+    public synchronized void clear() {
+        next = 0;
+        wrapped = false;
+    }
+
+    /**
+     * Writes the recorded events, oldest first, to the given file, replacing its content.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void writeTo(@NonNull File file) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            writeTo(writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes the recorded events, oldest first, as a JSON object in the Chrome trace event
+     * format. The writer is flushed but not closed.
+     *
+     * @param writer
+     * @throws IOException
+     */
+    public synchronized void writeTo(@NonNull Writer writer) throws IOException {
+        int pid = Process.myPid();
+        int count = wrapped ? names.length : next;
+        int first = wrapped ? next : 0;
+
+        writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        for (int i = 0; i < count; i++) {
+            int index = (first + i) % names.length;
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write("\n{\"name\":\"");
+            writeEscaped(writer, names[index]);
+            writer.write("\",\"cat\":\"orp\",\"ph\":\"");
+            writer.write(begins[index] ? 'B' : 'E');
+            writer.write("\",\"ts\":");
+            // Chrome expects microseconds, keep the sub-microsecond part as a fraction. nanoTime()
+            // may be negative, so round down for the fraction to stay positive.
+            long nanos = timestamps[index];
+            long micros = nanos / 1000;
+            long remainder = nanos % 1000;
+            if (remainder < 0) {
+                micros--;
+                remainder += 1000;
+            }
+            writer.write(Long.toString(micros));
+            writer.write('.');
+            String fraction = Long.toString(remainder + 1000);
+            writer.write(fraction, 1, 3);
+            writer.write(",\"pid\":");
+            writer.write(Integer.toString(pid));
+            writer.write(",\"tid\":");
+            writer.write(Long.toString(threadIds[index]));
+            writer.write('}');
+        }
+        writer.write("\n]}\n");
+        writer.flush();
+    }
+
+    private static void writeEscaped(Writer writer, String value) throws IOException {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format("\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+    }
+}
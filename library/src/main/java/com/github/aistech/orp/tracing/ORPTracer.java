@@ -0,0 +1,24 @@
+package com.github.aistech.orp.tracing;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Receives the begin and end of every traced ORP section. Install one with
+ * {@link ORPTracing#install(ORPTracer)}; while none is installed the sections cost a single
+ * null check.
+ * <p>
+ * Sections are nested per thread and always closed in reverse order, even when the traced
+ * code throws. Implementations may be called from any thread.
+ */
+public interface ORPTracer {
+
+    /**
+     * @param name one of the section names declared in {@link ORPTracing}.
+     */
+    void beginSection(@NonNull String name);
+
+    /**
+     * @param name the same name passed to the matching {@link #beginSection(String)}.
+     */
+    void endSection(@NonNull String name);
+}
@@ -0,0 +1,50 @@
+package com.github.aistech.orp.tracing;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Entry point used by ORP to trace its hot paths. Every call site goes through the static
+ * helpers below, which do nothing but a volatile read when no {@link ORPTracer} is installed,
+ * and section names are constants so tracing never allocates on ORP's side.
+ */
+public final class ORPTracing {
+
+    public static final String SECTION_BIND = "ORP.bind";
+    public static final String SECTION_BUILD = "ORPBuilder.build";
+    public static final String SECTION_REGISTER = "ORPSingleton.register";
+    public static final String SECTION_LOOKUP = "ORPSingleton.getParameter";
+    public static final String SECTION_CLEAR = "ORPSingleton.clearCurrentActivityParameters";
+
+    private static volatile ORPTracer tracer;
+
+    private ORPTracing() {
+    }
+
+    /**
+     * @param tracer the tracer that will receive the ORP sections from now on, or null to
+     *               disable tracing again.
+     */
+    public static void install(@Nullable ORPTracer tracer) {
+        ORPTracing.tracer = tracer;
+    }
+
+    @Nullable
+    public static ORPTracer getTracer() {
+        return tracer;
+    }
+
+    public static void beginSection(@NonNull String name) {
+        ORPTracer tracer = ORPTracing.tracer;
+        if (tracer != null) {
+            tracer.beginSection(name);
+        }
+    }
+
+    public static void endSection(@NonNull String name) {
+        ORPTracer tracer = ORPTracing.tracer;
+        if (tracer != null) {
+            tracer.endSection(name);
+        }
+    }
+}
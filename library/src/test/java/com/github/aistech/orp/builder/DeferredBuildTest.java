@@ -0,0 +1,79 @@
+package com.github.aistech.orp.builder;
+
+import com.github.aistech.orp.activities.ORPActivity;
+import com.github.aistech.orp.singletons.LazyParameter;
+import com.github.aistech.orp.singletons.ORPSingleton;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+public class DeferredBuildTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final Callable<Integer> callable = new Callable<Integer>() {
+        @Override
+        public Integer call() {
+            return calls.incrementAndGet();
+        }
+    };
+
+    @Before
+    public void setUp() {
+        // Nothing runs before the build, so the calls can be counted right after it.
+        ORPBuilder.setDeferredExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+    }
+
+    @Test
+    public void everyBuildComputesItsOwnDeferredParameter() {
+        ORPBuilder builder = new ORPBuilder(null)
+                .withDestinationActivity(ORPActivity.class)
+                .passingDeferred("value", callable);
+        assertEquals(0, calls.get());
+
+        builder.build();
+        long first = Tokens.last();
+        builder.build();
+        long second = Tokens.last();
+        assertEquals(2, calls.get());
+
+        // Finishing the first destination cancels its parameter, not the one of the second.
+        ORPSingleton singleton = ORPSingleton.getInstance();
+        Object firstValue = singleton.getHandoff(first).getParameter("value");
+        singleton.clearCurrentActivityParameters(first);
+        Object secondValue = singleton.getHandoff(second).getParameter("value");
+        assertNotSame(firstValue, secondValue);
+        assertEquals(2, secondValue);
+        singleton.clearCurrentActivityParameters(second);
+    }
+
+    @Test
+    public void everyBuildWithSlotsComputesItsOwnDeferredSlot() {
+        Object[] slots = {ORPBuilder.defer(callable)};
+
+        ORPBuilder.buildWithSlots(null, ORPActivity.class, slots.clone());
+        long first = Tokens.last();
+        ORPBuilder.buildWithSlots(null, ORPActivity.class, slots.clone());
+        long second = Tokens.last();
+        assertEquals(2, calls.get());
+
+        ORPSingleton singleton = ORPSingleton.getInstance();
+        Object firstSlot = singleton.getSlots(first)[0];
+        Object secondSlot = singleton.getSlots(second)[0];
+        assertNotSame(firstSlot, secondSlot);
+        singleton.clearCurrentActivityParameters(first);
+        assertEquals(2, ((LazyParameter) secondSlot).resolve());
+        singleton.clearCurrentActivityParameters(second);
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.aistech.orp.builder;
+
+import com.github.aistech.orp.ORP;
+import com.github.aistech.orp.exceptions.MissingParameterException;
+import com.github.aistech.orp.singletons.Handoff;
+import com.github.aistech.orp.singletons.ORPSingleton;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * The generated builder, which passes the parameters by slot, and the {@link ORPBuilder}, which
+ * passes them by key, must agree on what a missing parameter does.
+ */
+public class RequiredParametersTest {
+
+    private final ORPSingleton singleton = ORPSingleton.getInstance();
+
+    @After
+    public void tearDown() {
+        for (Handoff handoff : new ArrayList<>(singleton.getStore().handoffs())) {
+            singleton.clearCurrentActivityParameters(handoff.getToken());
+        }
+    }
+
+    private static TestDestinationActivity bind(long token) {
+        TestDestinationActivity destination = new TestDestinationActivity();
+        destination.token = token;
+        ORP.bind(destination);
+        return destination;
+    }
+
+    @Test
+    public void slotsBindThePassedFields() {
+        new TestDestinationActivity_ORPBuilder(null)
+                .withTitle("title")
+                .withCount(3)
+                .build();
+
+        TestDestinationActivity destination = bind(Tokens.last());
+        assertEquals("title", destination.title);
+        assertNull(destination.subtitle);
+        assertEquals(3, destination.count);
+    }
+
+    @Test
+    public void slotsFailToBuildWithoutARequiredField() {
+        TestDestinationActivity_ORPBuilder builder = new TestDestinationActivity_ORPBuilder(null)
+                .withSubtitle("subtitle")
+                .withCount(3);
+        try {
+            builder.build();
+            fail();
+        } catch (MissingParameterException e) {
+            assertEquals("title", e.getParameterKey());
+        }
+    }
+
+    @Test
+    public void slotsFailToBuildWithoutARequiredPrimitive() {
+        TestDestinationActivity_ORPBuilder builder = new TestDestinationActivity_ORPBuilder(null)
+                .withTitle("title");
+        try {
+            builder.build();
+            fail();
+        } catch (MissingParameterException e) {
+            assertEquals("count", e.getParameterKey());
+        }
+    }
+
+    @Test
+    public void keysBindThePassedFields() {
+        new ORPBuilder(null)
+                .withDestinationActivity(TestDestinationActivity.class)
+                .passingObject("title", "title")
+                .passingInt("count", 3)
+                .build();
+
+        TestDestinationActivity destination = bind(Tokens.last());
+        assertEquals("title", destination.title);
+        assertNull(destination.subtitle);
+        assertEquals(3, destination.count);
+    }
+
+    @Test
+    public void keysFailToBindWithoutARequiredField() {
+        new ORPBuilder(null)
+                .withDestinationActivity(TestDestinationActivity.class)
+                .passingObject("subtitle", "subtitle")
+                .passingInt("count", 3)
+                .build();
+        try {
+            bind(Tokens.last());
+            fail();
+        } catch (MissingParameterException e) {
+            assertEquals("title", e.getParameterKey());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.aistech.orp.builder;
+
+import com.github.aistech.orp.activities.ORPActivity;
+import com.github.aistech.orp.annotations.DestinationExtraObject;
+
+/**
+ * A destination bound by the tests without being started, from the token they give it.
+ */
+public class TestDestinationActivity extends ORPActivity {
+
+    @DestinationExtraObject("title")
+    String title;
+
+    @DestinationExtraObject(value = "subtitle", required = false)
+    String subtitle;
+
+    @DestinationExtraObject("count")
+    int count;
+
+    long token;
+
+    @Override
+    public long getHandoffToken() {
+        return token;
+    }
+}
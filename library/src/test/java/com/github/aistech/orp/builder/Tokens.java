@@ -0,0 +1,24 @@
+package com.github.aistech.orp.builder;
+
+import com.github.aistech.orp.singletons.Handoff;
+import com.github.aistech.orp.singletons.ORPSingleton;
+
+/**
+ * The Intents of the unit tests don't keep their extras, so the tokens are found in the store.
+ */
+final class Tokens {
+
+    private Tokens() {
+    }
+
+    /**
+     * @return the token of the last handoff registered.
+     */
+    static long last() {
+        long token = ORPSingleton.NO_TOKEN;
+        for (Handoff handoff : ORPSingleton.getInstance().getStore().handoffs()) {
+            token = Math.max(token, handoff.getToken());
+        }
+        return token;
+    }
+}
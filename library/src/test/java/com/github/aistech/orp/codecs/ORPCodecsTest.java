@@ -0,0 +1,122 @@
+package com.github.aistech.orp.codecs;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ORPCodecsTest {
+
+    static final class Point {
+        final int x;
+        final String label;
+
+        Point(int x, String label) {
+            this.x = x;
+            this.label = label;
+        }
+    }
+
+    /**
+     * Written the way the processor generates them.
+     */
+    static final class PointCodec implements ParameterCodec<Point> {
+        @Override
+        public int sizeOf(@NonNull Point value) {
+            return 4 + ORPCodecs.sizeOfString(value.label);
+        }
+
+        @Override
+        public void encode(@NonNull Point value, @NonNull ByteBuffer buffer) {
+            buffer.putInt(value.x);
+            ORPCodecs.writeString(buffer, value.label);
+        }
+
+        @NonNull
+        @Override
+        public Point decode(@NonNull ByteBuffer buffer) {
+            return new Point(buffer.getInt(), ORPCodecs.readString(buffer));
+        }
+    }
+
+    static final class Uncoded {
+    }
+
+    @Test
+    public void roundTripsThroughARegisteredCodec() {
+        PointCodec codec = new PointCodec();
+        ORPCodecs.register(Point.class, codec);
+        assertSame(codec, ORPCodecs.getCodec(Point.class));
+
+        byte[] bytes = ORPCodecs.toBytes(new Point(-7, "héllo"));
+        assertEquals(codec.sizeOf(new Point(-7, "héllo")), bytes.length);
+        Point decoded = ORPCodecs.fromBytes(Point.class, bytes);
+        assertEquals(-7, decoded.x);
+        assertEquals("héllo", decoded.label);
+    }
+
+    @Test
+    public void typesWithoutCodec() {
+        assertNull(ORPCodecs.getCodec(Uncoded.class));
+        // Cached the second time.
+        assertNull(ORPCodecs.getCodec(Uncoded.class));
+        assertNull(ORPCodecs.getCodec(String.class));
+        assertNull(ORPCodecs.toBytes(new Uncoded()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromBytesWithoutCodec() {
+        ORPCodecs.fromBytes(Uncoded.class, new byte[0]);
+    }
+
+    @Test
+    public void stringsMatchTheirUtf8Encoding() throws Exception {
+        String[] values = {"", "ascii", "é", "€", "😀 emoji", "lone \uD800 surrogate"};
+        for (String value : values) {
+            ByteBuffer buffer = ByteBuffer.allocate(ORPCodecs.sizeOfString(value));
+            ORPCodecs.writeString(buffer, value);
+            assertEquals(value, 0, buffer.remaining());
+
+            byte[] expected = value.getBytes("UTF-8");
+            assertEquals(expected.length, buffer.getInt(0));
+            byte[] written = new byte[expected.length];
+            ((ByteBuffer) buffer.duplicate().position(4)).get(written);
+            assertArrayEquals(value, expected, written);
+
+            buffer.flip();
+            assertEquals(new String(expected, "UTF-8"), ORPCodecs.readString(buffer));
+        }
+    }
+
+    @Test
+    public void stringsFromDirectBuffers() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(ORPCodecs.sizeOfString("direct"));
+        ORPCodecs.writeString(buffer, "direct");
+        buffer.flip();
+        assertEquals("direct", ORPCodecs.readString(buffer));
+    }
+
+    @Test
+    public void nulls() {
+        PointCodec codec = new PointCodec();
+        ByteBuffer buffer = ByteBuffer.allocate(ORPCodecs.sizeOfString(null)
+                + ORPCodecs.sizeOfNullable(codec, null) + ORPCodecs.sizeOfNullable(codec, new Point(1, null)));
+        ORPCodecs.writeString(buffer, null);
+        ORPCodecs.writeNullable(buffer, codec, null);
+        ORPCodecs.writeNullable(buffer, codec, new Point(1, null));
+        assertEquals(0, buffer.remaining());
+
+        buffer.flip();
+        assertNull(ORPCodecs.readString(buffer));
+        assertNull(ORPCodecs.readNullable(buffer, codec));
+        Point point = ORPCodecs.readNullable(buffer, codec);
+        assertEquals(1, point.x);
+        assertNull(point.label);
+    }
+}
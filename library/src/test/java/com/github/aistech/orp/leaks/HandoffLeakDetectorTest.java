@@ -0,0 +1,74 @@
+package com.github.aistech.orp.leaks;
+
+import android.app.Activity;
+
+import com.github.aistech.orp.singletons.ORPSingleton;
+import com.github.aistech.orp.singletons.ReferenceStrength;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HandoffLeakDetectorTest {
+
+    private final ORPSingleton singleton = ORPSingleton.getInstance();
+    private HandoffLeakDetector detector;
+    private long token;
+    /**
+     * A destination still alive, reachable from the test itself.
+     */
+    private Activity destination;
+
+    @Before
+    public void setUp() {
+        detector = HandoffLeakDetector.enable(1, HandoffLeakDetector.DEFAULT_UNCONSUMED_MILLIS);
+        token = singleton.registerShared(Collections.<String, Object>singletonMap("key", "value"),
+                Collections.<String, ReferenceStrength>emptyMap(), null, 2);
+    }
+
+    @After
+    public void tearDown() {
+        while (!singleton.clearCurrentActivityParameters(token)) {
+            // Released by every destination sharing it.
+        }
+        HandoffLeakDetector.disable();
+    }
+
+    /**
+     * Creates a destination and drops it, returning once it was collected.
+     */
+    private void createCollectedDestination() {
+        WeakReference<Activity> reference = new WeakReference<>(new Activity());
+        detector.onDestinationCreated(token, reference.get());
+        for (int i = 0; i < 100 && reference.get() != null; i++) {
+            System.gc();
+        }
+        assertNull(reference.get());
+    }
+
+    @Test
+    public void sharedHandoffDoesNotLeakWhileADestinationLives() {
+        destination = new Activity();
+        detector.onDestinationCreated(token, destination);
+        createCollectedDestination();
+
+        HandoffLeakDetector.Tracked tracked = detector.getTracked(token);
+        assertTrue(tracked.isConsumed());
+        assertNull(tracked.getLeak(0));
+    }
+
+    @Test
+    public void sharedHandoffLeaksOnceEveryDestinationIsGone() {
+        createCollectedDestination();
+        createCollectedDestination();
+
+        assertEquals(HandoffLeak.Kind.OUTLIVED_DESTINATION, detector.getTracked(token).getLeak(0));
+    }
+}
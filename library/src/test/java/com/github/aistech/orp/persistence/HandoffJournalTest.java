@@ -0,0 +1,206 @@
+package com.github.aistech.orp.persistence;
+
+import com.github.aistech.orp.singletons.Handoff;
+import com.github.aistech.orp.singletons.ORPSingleton;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HandoffJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private HandoffJournal journal;
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(folder.getRoot(), "orp.journal");
+        journal = new HandoffJournal(file);
+    }
+
+    @After
+    public void tearDown() {
+        journal.close();
+    }
+
+    private HandoffJournal reopen() {
+        // Restoring waits for the writes queued before, which close() doesn't.
+        journal.restore(ORPSingleton.NO_TOKEN);
+        journal.close();
+        journal = new HandoffJournal(file);
+        return journal;
+    }
+
+    private static Handoff keyed(long token, Object... keysAndValues) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            parameters.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return Handoff.restore(token, parameters);
+    }
+
+    @Test
+    public void restoresKeyedParameters() {
+        journal.onRegistered(Handoff.restore(1, Collections.<String, Object>singletonMap("title", "hello"), 3));
+        journal.onRegistered(keyed(2, "count", 42, "missing", null, "thread", new Object()));
+
+        Handoff first = journal.restore(1);
+        assertNotNull(first);
+        assertEquals("hello", first.getParameter("title"));
+        assertEquals(3, first.getConsumerCount());
+
+        Handoff second = journal.restore(2);
+        assertEquals(42, second.getParameter("count"));
+        assertNull(second.getParameter("missing"));
+        // Neither Parcelable nor Serializable, so not persisted.
+        assertEquals(2, second.getParameterKeys().size());
+
+        assertNull(journal.restore(3));
+    }
+
+    @Test
+    public void restoresSlots() {
+        journal.onRegistered(Handoff.restoreSlots(7, new Object[]{"a", null, 5L}, new long[]{1, -2}));
+
+        Handoff handoff = journal.restore(7);
+        assertArrayEquals(new Object[]{"a", null, 5L}, handoff.getSlots());
+        assertArrayEquals(new long[]{1, -2}, handoff.getPrimitiveSlots());
+    }
+
+    @Test
+    public void forgetsRemovedHandoffs() {
+        journal.onRegistered(keyed(1, "key", "one"));
+        journal.onRegistered(keyed(2, "key", "two"));
+        journal.onRemoved(1);
+
+        assertNull(journal.restore(1));
+        assertEquals("two", journal.restore(2).getParameter("key"));
+    }
+
+    @Test
+    public void countsTheReleasesOfSharedHandoffs() {
+        journal.onRegistered(Handoff.restore(1, Collections.<String, Object>singletonMap("key", "one"), 3));
+        journal.onReleased(1);
+
+        assertEquals(2, journal.restore(1).getConsumerCount());
+        assertEquals(2, reopen().restore(1).getConsumerCount());
+
+        journal.onReleased(1);
+        journal.onReleased(1);
+        assertNull(journal.restore(1));
+    }
+
+    @Test
+    public void forgetsReleasedHandoffsThatWereNotShared() {
+        journal.onRegistered(keyed(1, "key", "one"));
+        journal.onRegistered(Handoff.restoreSlots(2, new Object[]{"a"}, new long[]{1}));
+        journal.onReleased(1);
+        journal.onReleased(2);
+        // Nothing to release anymore.
+        journal.onReleased(3);
+
+        assertNull(journal.restore(1));
+        assertNull(journal.restore(2));
+    }
+
+    @Test
+    public void survivesReopening() {
+        journal.onRegistered(keyed(1, "key", "one"));
+        journal.onRegistered(keyed(2, "key", "two"));
+        journal.onRemoved(2);
+
+        HandoffJournal reopened = reopen();
+        assertEquals("one", reopened.restore(1).getParameter("key"));
+        assertNull(reopened.restore(2));
+    }
+
+    @Test
+    public void compactsOnceMostRecordsAreRemoved() {
+        char[] chars = new char[2000];
+        Arrays.fill(chars, 'x');
+        String big = new String(chars);
+        for (long token = 1; token <= 200; token++) {
+            journal.onRegistered(keyed(token, "big", big));
+        }
+        for (long token = 1; token < 200; token++) {
+            journal.onRemoved(token);
+        }
+
+        assertEquals(big, journal.restore(200).getParameter("big"));
+        assertNull(journal.restore(100));
+        assertTrue("not compacted: " + file.length(), file.length() < 200 * 2000);
+
+        HandoffJournal reopened = reopen();
+        assertEquals(big, reopened.restore(200).getParameter("big"));
+        assertNull(reopened.restore(1));
+    }
+
+    @Test
+    public void startsOverFromAFileOfAnotherVersion() throws IOException {
+        journal.close();
+        // Bigger than the initial mapping, and not a multiple of 8.
+        byte[] garbage = new byte[100 * 1024 + 3];
+        Arrays.fill(garbage, (byte) 0x7F);
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            output.write(garbage);
+        } finally {
+            output.close();
+        }
+
+        journal = new HandoffJournal(file);
+        journal.onRegistered(keyed(1, "key", "one"));
+        assertEquals("one", journal.restore(1).getParameter("key"));
+        assertNull(journal.restore(0x7F7F7F7F7F7F7F7FL));
+    }
+
+    @Test
+    public void keepsGoingWhenAParameterFailsToEncode() {
+        final AtomicReference<Throwable> uncaught = new AtomicReference<>();
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread thread, Throwable throwable) {
+                uncaught.set(throwable);
+            }
+        });
+        try {
+            journal.onRegistered(keyed(1, "broken", new Unserializable()));
+            journal.onRegistered(keyed(2, "key", "two"));
+
+            assertNull(journal.restore(1));
+            assertEquals("two", journal.restore(2).getParameter("key"));
+            assertNull(uncaught.get());
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+    }
+
+    private static final class Unserializable implements Serializable {
+        private void writeObject(ObjectOutputStream output) {
+            throw new IllegalStateException("broken");
+        }
+    }
+}
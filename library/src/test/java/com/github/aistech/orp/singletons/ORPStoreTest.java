@@ -0,0 +1,118 @@
+package com.github.aistech.orp.singletons;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * What every {@link ORPStore} must do, run against both built in stores.
+ */
+@RunWith(Parameterized.class)
+public class ORPStoreTest {
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> stores() {
+        return Arrays.asList(new Object[][]{
+                {ConcurrentHandoffStore.class},
+                {OpenAddressingHandoffStore.class},
+        });
+    }
+
+    private final ORPStore store;
+
+    public ORPStoreTest(Class<? extends ORPStore> storeClass) throws Exception {
+        this.store = storeClass.newInstance();
+    }
+
+    static Handoff handoff(long token) {
+        return new Handoff(token, Collections.<String, Object>singletonMap("key", token));
+    }
+
+    @Test
+    public void looksUpTheRegisteredHandoffs() {
+        Handoff first = handoff(1);
+        Handoff second = handoff(2);
+        store.register(first);
+        store.register(second);
+
+        assertSame(first, store.lookup(1));
+        assertSame(second, store.lookup(2));
+        assertNull(store.lookup(3));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    public void registerReplacesTheHandoffWithTheSameToken() {
+        Handoff first = handoff(1);
+        Handoff second = handoff(1);
+        store.register(first);
+        store.register(second);
+
+        assertSame(second, store.lookup(1));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void registerIfAbsentKeepsTheHandoffWithTheSameToken() {
+        Handoff first = handoff(1);
+        Handoff second = handoff(1);
+
+        assertNull(store.registerIfAbsent(first));
+        assertSame(first, store.registerIfAbsent(second));
+        assertSame(first, store.lookup(1));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void removesTheHandoffOnce() {
+        Handoff handoff = handoff(1);
+        store.register(handoff);
+
+        assertTrue(store.remove(handoff));
+        assertFalse(store.remove(handoff));
+        assertNull(store.lookup(1));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void doesNotRemoveTheHandoffThatReplacedIt() {
+        Handoff replaced = handoff(1);
+        Handoff current = handoff(1);
+        store.register(replaced);
+        store.register(current);
+
+        assertFalse(store.remove(replaced));
+        assertSame(current, store.lookup(1));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void listsTheRegisteredHandoffs() {
+        Set<Handoff> registered = new HashSet<>();
+        for (long token = 1; token <= 100; token++) {
+            Handoff handoff = handoff(token);
+            store.register(handoff);
+            registered.add(handoff);
+        }
+        for (long token = 1; token <= 100; token += 2) {
+            Handoff handoff = store.lookup(token);
+            store.remove(handoff);
+            registered.remove(handoff);
+        }
+
+        assertEquals(registered, new HashSet<>(store.handoffs()));
+        assertEquals(50, store.size());
+    }
+}
@@ -0,0 +1,147 @@
+package com.github.aistech.orp.singletons;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.github.aistech.orp.singletons.ORPStoreTest.handoff;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class OpenAddressingHandoffStoreTest {
+
+    private final OpenAddressingHandoffStore store = new OpenAddressingHandoffStore();
+
+    @Test(expected = IllegalStateException.class)
+    public void cannotBeInstalledOnceHandoffsWereRegistered() {
+        ORPSingleton singleton = ORPSingleton.getInstance();
+        singleton.clearCurrentActivityParameters(
+                singleton.register(Collections.<String, Object>singletonMap("key", "value")));
+
+        singleton.setStore(store);
+    }
+
+    @Test
+    public void findsHandoffsProbedPastARemovedOne() {
+        // More handoffs than slots in a quarter of the table, so some of them collide.
+        List<Handoff> handoffs = new ArrayList<>();
+        for (long token = 1; token <= 7; token++) {
+            Handoff handoff = handoff(token);
+            store.register(handoff);
+            handoffs.add(handoff);
+        }
+        for (int i = 0; i < handoffs.size(); i += 2) {
+            assertTrue(store.remove(handoffs.get(i)));
+        }
+
+        for (int i = 0; i < handoffs.size(); i++) {
+            Handoff handoff = handoffs.get(i);
+            if (i % 2 == 0) {
+                assertNull(store.lookup(handoff.getToken()));
+            } else {
+                assertSame(handoff, store.lookup(handoff.getToken()));
+            }
+        }
+    }
+
+    @Test
+    public void reusesTheSlotsOfTheRemovedHandoffs() {
+        // Registering and removing the same token forever must neither grow the table nor lose it.
+        Handoff kept = handoff(Long.MAX_VALUE);
+        store.register(kept);
+        for (int i = 0; i < 10000; i++) {
+            Handoff handoff = handoff(42);
+            store.register(handoff);
+            assertSame(handoff, store.lookup(42));
+            assertTrue(store.remove(handoff));
+            assertNull(store.lookup(42));
+        }
+
+        assertEquals(1, store.size());
+        assertSame(kept, store.lookup(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void keepsEveryHandoffAcrossRebuilds() {
+        List<Handoff> handoffs = new ArrayList<>();
+        for (long token = 1; token <= 1000; token++) {
+            Handoff handoff = handoff(token);
+            store.register(handoff);
+            handoffs.add(handoff);
+            if (token % 3 == 0) {
+                assertTrue(store.remove(handoffs.get((int) token - 2)));
+            }
+        }
+
+        int size = 0;
+        for (int i = 0; i < handoffs.size(); i++) {
+            Handoff handoff = handoffs.get(i);
+            if ((i + 2) % 3 == 0) {
+                assertNull(store.lookup(handoff.getToken()));
+            } else {
+                assertSame(handoff, store.lookup(handoff.getToken()));
+                size++;
+            }
+        }
+        assertEquals(size, store.size());
+    }
+
+    @Test
+    public void lookupsRacingWithRebuildsFindTheirHandoffs() throws InterruptedException {
+        final List<Handoff> kept = new ArrayList<>();
+        for (long token = 1; token <= 64; token++) {
+            Handoff handoff = handoff(token);
+            store.register(handoff);
+            kept.add(handoff);
+        }
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<String> failure = new AtomicReference<>();
+        final int readers = 4;
+        final CountDownLatch finished = new CountDownLatch(readers);
+        for (int i = 0; i < readers; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (!done.get() && failure.get() == null) {
+                            for (Handoff handoff : kept) {
+                                if (store.lookup(handoff.getToken()) != handoff) {
+                                    failure.set("Lost the handoff " + handoff.getToken());
+                                }
+                            }
+                        }
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        // Each batch grows the table, and removing it leaves markers behind for the next rebuild.
+        for (int round = 0; round < 200 && failure.get() == null; round++) {
+            List<Handoff> batch = new ArrayList<>();
+            for (int i = 0; i < 256; i++) {
+                Handoff handoff = handoff(1000 + round * 256L + i);
+                store.register(handoff);
+                batch.add(handoff);
+            }
+            for (Handoff handoff : batch) {
+                store.remove(handoff);
+            }
+        }
+        done.set(true);
+
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        assertNull(failure.get());
+        assertEquals(kept.size(), store.size());
+    }
+}
@@ -0,0 +1,209 @@
+package com.github.aistech.orp.singletons;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StorePolicyTest {
+
+    private static final SizeEstimator BYTES = new SizeEstimator() {
+        @Override
+        public long estimateSize(Object value) {
+            return ((byte[]) value).length;
+        }
+    };
+
+    private final ORPSingleton singleton = ORPSingleton.getInstance();
+
+    @Before
+    public void setUp() {
+        clearAll();
+    }
+
+    @After
+    public void tearDown() {
+        clearAll();
+    }
+
+    private void clearAll() {
+        singleton.setPolicy(StorePolicy.UNBOUNDED);
+        for (Handoff handoff : new ArrayList<>(singleton.getStore().handoffs())) {
+            singleton.clearCurrentActivityParameters(handoff.getToken());
+        }
+        assertEquals(0, singleton.getLiveEntryCount());
+    }
+
+    private long register() {
+        return singleton.register(Collections.<String, Object>singletonMap("key", "value"));
+    }
+
+    @Test
+    public void unboundedNeverEvicts() {
+        for (int i = 0; i < 100; i++) {
+            register();
+        }
+        assertEquals(100, singleton.getLiveEntryCount());
+    }
+
+    @Test
+    public void maxEntriesEvictsTheOldest() {
+        singleton.setPolicy(new StorePolicy.Builder().maxEntries(3).build());
+        long evicted = singleton.getEvictionCount();
+        List<Long> tokens = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tokens.add(register());
+            assertTrue(singleton.getLiveEntryCount() <= 3);
+        }
+        assertEquals(7, singleton.getEvictionCount() - evicted);
+        for (int i = 0; i < 7; i++) {
+            assertNull(singleton.getHandoff(tokens.get(i)));
+        }
+        for (int i = 7; i < 10; i++) {
+            assertNotNull(singleton.getHandoff(tokens.get(i)));
+        }
+    }
+
+    @Test
+    public void clearedHandoffsAreNotEvicted() {
+        singleton.setPolicy(new StorePolicy.Builder().maxEntries(2).build());
+        long first = register();
+        long second = register();
+        assertTrue(singleton.clearCurrentActivityParameters(first));
+        long third = register();
+        // The first one was already gone, nothing to evict.
+        assertNotNull(singleton.getHandoff(second));
+        assertNotNull(singleton.getHandoff(third));
+    }
+
+    @Test
+    public void evictionIsIncremental() {
+        for (int i = 0; i < 20; i++) {
+            register();
+        }
+        singleton.setPolicy(new StorePolicy.Builder().maxEntries(1).build());
+        assertEquals(20, singleton.getLiveEntryCount());
+
+        // Each registration looks at a few of the oldest handoffs only.
+        register();
+        assertEquals(21 - 4, singleton.getLiveEntryCount());
+
+        singleton.trim();
+        assertEquals(1, singleton.getLiveEntryCount());
+    }
+
+    @Test
+    public void maxBytesKeepsTheEstimatedSizeUnderBudget() {
+        singleton.setPolicy(new StorePolicy.Builder().maxBytes(1000, BYTES).build());
+        for (int i = 0; i < 20; i++) {
+            singleton.register(Collections.<String, Object>singletonMap("bytes", new byte[300]));
+            assertTrue(singleton.getLiveBytes() <= 1000);
+        }
+        assertEquals(3, singleton.getLiveEntryCount());
+        assertEquals(900, singleton.getLiveBytes());
+
+        clearAll();
+        assertEquals(0, singleton.getLiveBytes());
+    }
+
+    @Test
+    public void boundingTheStoreCountsTheHandoffsAlreadyHeld() {
+        singleton.register(Collections.<String, Object>singletonMap("bytes", new byte[300]));
+        singleton.register(Collections.<String, Object>singletonMap("bytes", new byte[300]));
+        assertEquals(0, singleton.getLiveBytes());
+
+        singleton.setPolicy(new StorePolicy.Builder().maxBytes(1000, BYTES).build());
+        assertEquals(600, singleton.getLiveBytes());
+        // Counted once, even when the budget changes.
+        singleton.setPolicy(StorePolicy.UNBOUNDED);
+        singleton.setPolicy(new StorePolicy.Builder().maxBytes(1000, BYTES).build());
+        assertEquals(600, singleton.getLiveBytes());
+
+        clearAll();
+        assertEquals(0, singleton.getLiveBytes());
+    }
+
+    @Test
+    public void restoredHandoffsAreCounted() {
+        final long token = singleton.issueToken();
+        singleton.setPersistence(new HandoffPersistence() {
+            @Override
+            public void onRegistered(Handoff handoff) {
+            }
+
+            @Override
+            public void onRemoved(long token) {
+            }
+
+            @Override
+            public void onReleased(long token) {
+            }
+
+            @Override
+            public Handoff restore(long restoredToken) {
+                if (restoredToken != token) {
+                    return null;
+                }
+                return new Handoff(token, Collections.<String, Object>singletonMap("bytes", new byte[300]));
+            }
+        });
+        try {
+            singleton.setPolicy(new StorePolicy.Builder().maxBytes(1000, BYTES).build());
+            assertNotNull(singleton.getHandoff(token));
+            assertEquals(300, singleton.getLiveBytes());
+
+            singleton.clearCurrentActivityParameters(token);
+            assertEquals(0, singleton.getLiveBytes());
+        } finally {
+            singleton.setPersistence(null);
+        }
+    }
+
+    @Test
+    public void estimateSizeSumsTheParameters() {
+        StorePolicy policy = new StorePolicy.Builder().maxBytes(1000, new SizeEstimator() {
+            @Override
+            public long estimateSize(Object value) {
+                return ((String) value).length();
+            }
+        }).build();
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("a", "12345");
+        parameters.put("b", "123");
+        assertEquals(8, policy.estimateSize(new Handoff(42, parameters)));
+        assertEquals(0, StorePolicy.UNBOUNDED.estimateSize(new Handoff(42, parameters)));
+    }
+
+    @Test
+    public void expiry() {
+        StorePolicy policy = new StorePolicy.Builder().maxAge(10, TimeUnit.SECONDS).build();
+        Handoff handoff = new Handoff(42, Collections.<String, Object>emptyMap());
+        assertFalse(policy.isExpired(handoff, handoff.getCreatedAt() + 10000));
+        assertTrue(policy.isExpired(handoff, handoff.getCreatedAt() + 10001));
+        assertFalse(StorePolicy.UNBOUNDED.isExpired(handoff, handoff.getCreatedAt() + TimeUnit.DAYS.toMillis(365)));
+    }
+
+    @Test
+    public void boundedness() {
+        assertFalse(StorePolicy.UNBOUNDED.isBounded());
+        assertTrue(new StorePolicy.Builder().maxEntries(1).build().isBounded());
+        assertTrue(new StorePolicy.Builder().maxAge(1, TimeUnit.MINUTES).build().isBounded());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveLimits() {
+        new StorePolicy.Builder().maxEntries(0);
+    }
+}
@@ -0,0 +1,137 @@
+package com.github.aistech.orp.processor;
+
+import com.google.common.collect.ImmutableList;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+
+import java.util.Map;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+
+/**
+ * The {@code ORPIndex} listing every binding generated in a round, so they can be created at
+ * runtime without {@code Class.forName} and reflective constructors. It also registers the codecs
+ * generated in that round, if any.
+ */
+final class BindingIndex {
+    private static final ClassName ORP_INDEX = ClassName.get("com.github.aistech.orp", "ORPIndex");
+    private static final ClassName BINDING_FACTORY = ClassName.get("com.github.aistech.orp", "BindingFactory");
+    private static final ClassName UNBINDER = ClassName.get("com.github.aistech.orp", "Unbinder");
+    private static final ClassName NON_NULL = ClassName.get("android.support.annotation", "NonNull");
+    private static final ClassName NULLABLE = ClassName.get("android.support.annotation", "Nullable");
+    private static final ClassName CODECS = ClassName.get("com.github.aistech.orp.codecs", "ORPCodecs");
+
+    private static final TypeName CLASS_OF_ANY =
+            ParameterizedTypeName.get(ClassName.get(Class.class), WildcardTypeName.subtypeOf(Object.class));
+    private static final TypeName FACTORY_MAP =
+            ParameterizedTypeName.get(ClassName.get(Map.class), CLASS_OF_ANY, BINDING_FACTORY);
+    private static final TypeName FACTORY_HASH_MAP =
+            ParameterizedTypeName.get(ClassName.get("java.util", "HashMap"), CLASS_OF_ANY, BINDING_FACTORY);
+
+    private final ClassName indexClassName;
+    private final ImmutableList<BindingSet> bindings;
+    private final ImmutableList<CodecSet> codecs;
+
+    BindingIndex(ClassName indexClassName, ImmutableList<BindingSet> bindings, ImmutableList<CodecSet> codecs) {
+        this.indexClassName = indexClassName;
+        this.bindings = bindings;
+        this.codecs = codecs;
+    }
+
+    JavaFile brewJava() {
+        return JavaFile.builder(indexClassName.packageName(), createType())
+                .addFileComment("Generated code from ORP Compiler. Do not modify!")
+                .build();
+    }
+
+    private TypeSpec createType() {
+        ClassName factoryClassName = indexClassName.nestedClass("Factory");
+
+        // The index aggregates all of its types, each one of them is an originating element.
+        TypeSpec.Builder result = TypeSpec.classBuilder(indexClassName.simpleName());
+        for (BindingSet binding : bindings) {
+            result.addOriginatingElement(binding.getTargetElement());
+        }
+        for (CodecSet codec : codecs) {
+            result.addOriginatingElement(codec.getTypeElement());
+        }
+
+        CodeBlock.Builder registrations = CodeBlock.builder();
+        for (int i = 0; i < bindings.size(); i++) {
+            registrations.addStatement("FACTORIES.put($T.class, new $T($L))",
+                    rawType(bindings.get(i)), factoryClassName, i);
+        }
+        for (CodecSet codec : codecs) {
+            registrations.addStatement("$T.register($T.class, new $T())",
+                    CODECS, codec.getTypeName(), codec.getCodecClassName());
+        }
+
+        return result
+                .addModifiers(PUBLIC, FINAL)
+                .addSuperinterface(ORP_INDEX)
+                .addField(FieldSpec.builder(FACTORY_MAP, "FACTORIES", PRIVATE, STATIC, FINAL)
+                        .initializer("new $T($L)", FACTORY_HASH_MAP, bindings.size() * 2)
+                        .build())
+                .addStaticBlock(registrations.build())
+                .addMethod(MethodSpec.methodBuilder("getBindingFactory")
+                        .addAnnotation(Override.class)
+                        .addAnnotation(NULLABLE)
+                        .addModifiers(PUBLIC)
+                        .returns(BINDING_FACTORY)
+                        .addParameter(CLASS_OF_ANY, "targetClass")
+                        .addStatement("return FACTORIES.get(targetClass)")
+                        .build())
+                .addType(createFactoryType(factoryClassName))
+                .build();
+    }
+
+    /**
+     * A single factory class shared by all the bindings, dispatching on a switch instead of
+     * generating one anonymous class per binding.
+     */
+    private TypeSpec createFactoryType(ClassName factoryClassName) {
+        MethodSpec.Builder create = MethodSpec.methodBuilder("create")
+                .addAnnotation(Override.class)
+                .addAnnotation(NON_NULL)
+                .addModifiers(PUBLIC)
+                .returns(UNBINDER)
+                .addParameter(Object.class, "target")
+                .beginControlFlow("switch (id)");
+        for (int i = 0; i < bindings.size(); i++) {
+            BindingSet binding = bindings.get(i);
+            create.addStatement("case $L: return new $T(($T) target)",
+                    i, binding.getBindingClassName(), rawType(binding));
+        }
+        create.addStatement("default: throw new $T(id)", AssertionError.class)
+                .endControlFlow();
+
+        return TypeSpec.classBuilder(factoryClassName.simpleName())
+                .addModifiers(PRIVATE, STATIC, FINAL)
+                .addSuperinterface(BINDING_FACTORY)
+                .addField(int.class, "id", PRIVATE, FINAL)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addParameter(int.class, "id")
+                        .addStatement("this.id = id")
+                        .build())
+                .addMethod(create.build())
+                .build();
+    }
+
+    private static TypeName rawType(BindingSet binding) {
+        TypeName targetType = binding.getTargetTypeName();
+        if (targetType instanceof ParameterizedTypeName) {
+            return ((ParameterizedTypeName) targetType).rawType;
+        }
+        return targetType;
+    }
+}
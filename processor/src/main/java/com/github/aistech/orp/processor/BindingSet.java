@@ -1,19 +1,26 @@
 package com.github.aistech.orp.processor;
 
 import com.google.common.collect.ImmutableList;
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
@@ -21,6 +28,7 @@ import javax.lang.model.element.TypeElement;
 import static com.google.auto.common.MoreElements.getPackage;
 import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PROTECTED;
 import static javax.lang.model.element.Modifier.PUBLIC;
 
 /**
@@ -28,29 +36,90 @@ import static javax.lang.model.element.Modifier.PUBLIC;
  */
 final class BindingSet {
     private static final ClassName OBJECT = ClassName.get("java.lang", "Object");
-    private static final ClassName CONTEXT = ClassName.get("android.content", "Context");
     private static final ClassName UI_THREAD = ClassName.get("android.support.annotation", "UiThread");
     private static final ClassName CALL_SUPER = ClassName.get("android.support.annotation", "CallSuper");
     private static final ClassName UNBINDER = ClassName.get("com.github.aistech.orp", "Unbinder");
     private static final ClassName SINGLETON = ClassName.get("com.github.aistech.orp.singletons", "ORPSingleton");
-
+    private static final ClassName HANDOFF = ClassName.get("com.github.aistech.orp.singletons", "Handoff");
+    private static final ClassName ORP_BUILDER = ClassName.get("com.github.aistech.orp.builder", "ORPBuilder");
+    private static final ClassName ACTIVITY = ClassName.get("android.app", "Activity");
+    private static final ClassName INTENT = ClassName.get("android.content", "Intent");
+    private static final ClassName CALLABLE = ClassName.get("java.util.concurrent", "Callable");
+    private static final ClassName MISSING_PARAMETER =
+            ClassName.get("com.github.aistech.orp.exceptions", "MissingParameterException");
+
+    private final TypeElement targetElement;
     private final TypeName targetTypeName;
     private final ClassName bindingClassName;
+    private final ClassName builderClassName;
     private final boolean isFinal;
+    private final boolean isAbstract;
+    private final boolean isPublic;
     private final ImmutableList<Binding> bindings;
     private final BindingSet parentBinding;
     private final ClassName parentClassName;
 
-    private BindingSet(TypeName targetTypeName, ClassName bindingClassName, boolean isFinal,
+    private BindingSet(TypeElement targetElement, TypeName targetTypeName, ClassName bindingClassName,
+                       ClassName builderClassName, boolean isFinal, boolean isAbstract, boolean isPublic,
                        ImmutableList<Binding> bindings, ClassName parentClassName, BindingSet parentBinding) {
+        this.targetElement = targetElement;
         this.isFinal = isFinal;
+        this.isAbstract = isAbstract;
+        this.isPublic = isPublic;
         this.targetTypeName = targetTypeName;
         this.bindingClassName = bindingClassName;
+        this.builderClassName = builderClassName;
         this.bindings = bindings;
         this.parentBinding = parentBinding;
         this.parentClassName = parentClassName;
     }
 
+    /**
+     * The originating element of the generated files, which only depend on it and its superclasses.
+     */
+    TypeElement getTargetElement() {
+        return targetElement;
+    }
+
+    TypeName getTargetTypeName() {
+        return targetTypeName;
+    }
+
+    ClassName getBindingClassName() {
+        return bindingClassName;
+    }
+
+    /**
+     * The slots of this type's fields come right after the ones of its parent bindings, so a
+     * parent binding reads the same indexes whatever subclass it's bound for. Primitive fields are
+     * numbered apart, they go in the {@code long[]} of primitive slots.
+     */
+    private int getObjectSlotOffset() {
+        return parentBinding != null ? parentBinding.getObjectSlotCount() : 0;
+    }
+
+    private int getPrimitiveSlotOffset() {
+        return parentBinding != null ? parentBinding.getPrimitiveSlotCount() : 0;
+    }
+
+    int getObjectSlotCount() {
+        return getObjectSlotOffset() + bindings.size() - countPrimitiveBindings();
+    }
+
+    int getPrimitiveSlotCount() {
+        return getPrimitiveSlotOffset() + countPrimitiveBindings();
+    }
+
+    private int countPrimitiveBindings() {
+        int count = 0;
+        for (Binding binding : bindings) {
+            if (binding.getFieldBinding() != null && binding.getFieldBinding().isPrimitive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     JavaFile brewJava(int sdk) {
         return JavaFile.builder(bindingClassName.packageName(), createType(sdk))
                 .addFileComment("Generated code from ORP Compiler. Do not modify!")
@@ -59,6 +128,7 @@ final class BindingSet {
 
     private TypeSpec createType(int sdk) {
         TypeSpec.Builder result = TypeSpec.classBuilder(bindingClassName.simpleName())
+                .addOriginatingElement(targetElement)
                 .addModifiers(PUBLIC);
         if (isFinal) {
             result.addModifiers(FINAL);
@@ -66,9 +136,6 @@ final class BindingSet {
 
         if (parentBinding != null) {
             result.superclass(parentBinding.bindingClassName);
-        } else if (parentClassName != null) {
-            result.superclass(parentClassName);
-            result.addSuperinterface(UNBINDER);
         } else {
             result.addSuperinterface(UNBINDER);
         }
@@ -77,9 +144,9 @@ final class BindingSet {
             result.addField(targetTypeName, "target", PRIVATE);
         }
 
-        if (!constructorNeedsView()) {
-            // Add a delegating constructor with a target type + view signature for reflective use.
-            result.addMethod(createBindingViewDelegateConstructor(targetTypeName));
+        if (!fetchesHandoff()) {
+            // Subclasses hand the handoff they fetched to this one, so a bind fetches it only once.
+            result.addMethod(createBindingFetchConstructor(targetTypeName));
         }
         result.addMethod(createBindingConstructor(targetTypeName, sdk));
 
@@ -90,29 +157,36 @@ final class BindingSet {
         return result.build();
     }
 
-    private MethodSpec createBindingViewDelegateConstructor(TypeName targetType) {
+    /**
+     * The constructor used by {@code ORP.bind()}, fetching the handoff of the target.
+     */
+    private MethodSpec createBindingFetchConstructor(TypeName targetType) {
         return MethodSpec.constructorBuilder()
-                .addJavadoc("@deprecated Use {@link #$T($T, $T)} for direct creation.\n    "
-                                + "Only present for runtime invocation through {@code ButterKnife.bind()}.\n",
-                        bindingClassName, targetType, CONTEXT)
-                .addAnnotation(Deprecated.class)
                 .addAnnotation(UI_THREAD)
                 .addModifiers(PUBLIC)
                 .addParameter(targetType, "target")
+                .addStatement("this(target, $T.getInstance().getHandoffOrEmpty(target.getHandoffToken()))", SINGLETON)
                 .build();
     }
 
+    /**
+     * The constructor assigning the fields, from the handoff received from the fetch constructor
+     * of the binding created, unless it fetches it itself.
+     */
     private MethodSpec createBindingConstructor(TypeName targetType, int sdk) {
         MethodSpec.Builder constructor = MethodSpec.constructorBuilder()
                 .addAnnotation(UI_THREAD)
-                .addModifiers(PUBLIC);
+                .addParameter(targetType, "target");
 
-        constructor.addParameter(targetType, "target");
+        if (fetchesHandoff()) {
+            constructor.addModifiers(PUBLIC);
+        } else {
+            constructor.addModifiers(isFinal ? PRIVATE : PROTECTED);
+            constructor.addParameter(HANDOFF, "handoff");
+        }
 
         if (parentBinding != null) {
-            if (parentBinding.constructorNeedsView()) {
-                constructor.addStatement("super(target)");
-            }
+            constructor.addStatement("super(target, handoff)");
             constructor.addCode("\n");
         }
 
@@ -120,16 +194,32 @@ final class BindingSet {
             constructor.addStatement("this.target = target");
             constructor.addCode("\n");
 
-            constructor.addStatement("$T singleton = $T.getInstance()", SINGLETON, SINGLETON);
+            if (fetchesHandoff()) {
+                constructor.addStatement("$T handoff = $T.getInstance().getHandoffOrEmpty(target.getHandoffToken())",
+                        HANDOFF, SINGLETON);
+            }
+            constructor.addStatement("$T[] slots = handoff.getSlots()", OBJECT);
 
-            if (hasViewLocal()) {
-                // Local variable in which all views will be temporarily stored.
-                constructor.addStatement("$T object", OBJECT);
+            // Launched by the generated _ORPBuilder: read the slots by their compile-time index.
+            constructor.beginControlFlow("if (slots != null)");
+            if (countPrimitiveBindings() > 0) {
+                constructor.addStatement("long[] primitives = handoff.getPrimitiveSlots()");
             }
+            int objectSlot = getObjectSlotOffset();
+            int primitiveSlot = getPrimitiveSlotOffset();
             for (Binding binding : bindings) {
-                addViewBinding(constructor, binding);
+                if (binding.getFieldBinding() != null && binding.getFieldBinding().isPrimitive()) {
+                    addPrimitiveSlotBinding(constructor, binding, primitiveSlot++);
+                } else {
+                    addSlotBinding(constructor, binding, objectSlot++);
+                }
             }
-
+            // Launched by ORPBuilder: look the parameters up by their keys.
+            constructor.nextControlFlow("else");
+            for (Binding binding : bindings) {
+                addFieldBinding(constructor, binding);
+            }
+            constructor.endControlFlow();
         }
 
         return constructor.build();
@@ -151,8 +241,9 @@ final class BindingSet {
             result.addStatement("$N = null", hasFieldBindings() ? "this.target" : "target");
             result.addCode("\n");
             for (Binding binding : bindings) {
-                if (binding.getFieldBinding() != null) {
-                    result.addStatement("target.$L = null", binding.getFieldBinding().getValue());
+                // Primitives don't hold on to anything.
+                if (binding.getFieldBinding() != null && !binding.getFieldBinding().isPrimitive()) {
+                    result.addStatement("target.$L = null", binding.getName());
                 }
             }
         }
@@ -165,24 +256,241 @@ final class BindingSet {
     }
 
 
-    private void addViewBinding(MethodSpec.Builder result, Binding binding) {
-        List<MemberViewBinding> requiredBindings = binding.getRequiredBindings();
-        if (requiredBindings.isEmpty()) {
-            result.addStatement("object = ($L) singleton.getParametersForOriginActivity(target.hashCode(), $S)",
-                    binding.getFieldBinding().getRawType().toString(), binding.getName());
+    private void addFieldBinding(MethodSpec.Builder result, Binding binding) {
+        ExtraFieldBinding fieldBinding = binding.getFieldBinding();
+        if (fieldBinding != null && fieldBinding.isLazy()) {
+            result.addStatement("target.$L = $T.ofKey(target.getHandoffToken(), $S)", binding.getName(),
+                    fieldBinding.getHandleClassName(), binding.getValue());
+        } else if (fieldBinding != null && fieldBinding.isPrimitive()) {
+            addPrimitiveBinding(result, binding);
+        } else if (fieldBinding != null) {
+            // Optional fields use the lookup returning null, which never allocates an exception.
+            result.addStatement("target.$L = ($T) handoff.$L($S)", binding.getName(), fieldBinding.getRawType(),
+                    fieldBinding.isRequired() ? "getParameter" : "optParameter", binding.getValue());
+        }
+    }
+
+    /**
+     * Primitives are read through the unboxed accessors of the handoff, which also accept a boxed value passed
+     * with {@code ORPBuilder.passingObject}.
+     */
+    private void addPrimitiveBinding(MethodSpec.Builder result, Binding binding) {
+        ExtraFieldBinding fieldBinding = binding.getFieldBinding();
+        TypeName type = fieldBinding.getType();
+        String accessor = primitiveAccessor(type);
+        CodeBlock read;
+        if (fieldBinding.isRequired()) {
+            read = CodeBlock.of("handoff.get$L($S)", accessor, binding.getValue());
+        } else {
+            // A missing optional field keeps its initial value.
+            read = CodeBlock.of("handoff.opt$L($S, target.$L)", accessor, binding.getValue(), binding.getName());
         }
+        if (type.equals(TypeName.INT) || type.equals(TypeName.LONG) || type.equals(TypeName.DOUBLE)
+                || type.equals(TypeName.BOOLEAN)) {
+            result.addStatement("target.$L = $L", binding.getName(), read);
+        } else {
+            result.addStatement("target.$L = ($T) $L", binding.getName(), type, read);
+        }
+    }
 
-        addFieldBinding(result, binding);
+    private void addPrimitiveSlotBinding(MethodSpec.Builder result, Binding binding, int slot) {
+        TypeName type = binding.getFieldBinding().getType();
+        if (type.equals(TypeName.LONG)) {
+            result.addStatement("target.$L = primitives[$L]", binding.getName(), slot);
+        } else if (type.equals(TypeName.BOOLEAN)) {
+            result.addStatement("target.$L = primitives[$L] != 0", binding.getName(), slot);
+        } else if (type.equals(TypeName.DOUBLE)) {
+            result.addStatement("target.$L = $T.longBitsToDouble(primitives[$L])", binding.getName(), Double.class, slot);
+        } else if (type.equals(TypeName.FLOAT)) {
+            result.addStatement("target.$L = (float) $T.longBitsToDouble(primitives[$L])",
+                    binding.getName(), Double.class, slot);
+        } else {
+            result.addStatement("target.$L = ($T) primitives[$L]", binding.getName(), type, slot);
+        }
     }
 
-    private void addFieldBinding(MethodSpec.Builder result, Binding binding) {
+    /**
+     * @return the suffix of the {@code ORPSingleton} accessor reading a primitive field, smaller
+     * types are read through the wider one and narrowed.
+     */
+    private static String primitiveAccessor(TypeName type) {
+        if (type.equals(TypeName.BOOLEAN)) {
+            return "Boolean";
+        }
+        if (type.equals(TypeName.LONG)) {
+            return "Long";
+        }
+        if (type.equals(TypeName.DOUBLE) || type.equals(TypeName.FLOAT)) {
+            return "Double";
+        }
+        return "Int";
+    }
+
+    /**
+     * @return the bit of the {@code index}th required field in its word of the builder's mask.
+     */
+    private static String requiredBit(int index) {
+        return "0x" + Long.toHexString(1L << (index % 64)) + "L";
+    }
+
+    /**
+     * @return the value written in a primitive slot for the parameter {@code name} of the given type.
+     */
+    private static CodeBlock primitiveBits(TypeName type, String name) {
+        if (type.equals(TypeName.BOOLEAN)) {
+            return CodeBlock.of("$L ? 1 : 0", name);
+        }
+        if (type.equals(TypeName.DOUBLE) || type.equals(TypeName.FLOAT)) {
+            return CodeBlock.of("$T.doubleToRawLongBits($L)", Double.class, name);
+        }
+        return CodeBlock.of("$L", name);
+    }
+
+    private void addSlotBinding(MethodSpec.Builder result, Binding binding, int slot) {
         ExtraFieldBinding fieldBinding = binding.getFieldBinding();
-        if (fieldBinding != null) {
-            result.addStatement("$T.out.println(target.getActivityCallerHashCode())", System.class);
-            result.addStatement("target.$L = ($L) singleton.getParametersForOriginActivity(target.getActivityCallerHashCode(), $S)", fieldBinding.getValue(), fieldBinding.getRawType().toString(), fieldBinding.getValue());
+        if (fieldBinding != null && fieldBinding.isLazy()) {
+            result.addStatement("target.$L = $T.ofSlot(target.getHandoffToken(), $L, $S)", binding.getName(),
+                    fieldBinding.getHandleClassName(), slot, binding.getValue());
+        } else if (fieldBinding != null) {
+            result.addStatement("target.$L = ($T) slots[$L]", binding.getName(), fieldBinding.getRawType(), slot);
         }
     }
 
+    /**
+     * @return the type-safe builder writing straight into the slots read by this binding, or null
+     * if the target can't be launched because it's abstract.
+     */
+    JavaFile brewBuilderJava() {
+        if (isAbstract) {
+            return null;
+        }
+        return JavaFile.builder(builderClassName.packageName(), createBuilderType())
+                .addFileComment("Generated code from ORP Compiler. Do not modify!")
+                .build();
+    }
+
+    private TypeSpec createBuilderType() {
+        TypeSpec.Builder result = TypeSpec.classBuilder(builderClassName.simpleName())
+                .addJavadoc("Starts {@link $T}, passing each of its {@code @DestinationExtraObject} fields "
+                        + "through its own method.\n", parentClassName)
+                .addOriginatingElement(targetElement)
+                .addModifiers(FINAL);
+        if (isPublic) {
+            result.addModifiers(PUBLIC);
+        }
+
+        result.addField(ACTIVITY, "originActivity", PRIVATE, FINAL);
+        result.addField(FieldSpec.builder(ArrayTypeName.of(OBJECT), "slots", PRIVATE, FINAL)
+                .initializer("new $T[$L]", OBJECT, getObjectSlotCount())
+                .build());
+        boolean hasPrimitives = getPrimitiveSlotCount() > 0;
+        if (hasPrimitives) {
+            result.addField(FieldSpec.builder(long[].class, "primitives", PRIVATE, FINAL)
+                    .initializer("new long[$L]", getPrimitiveSlotCount())
+                    .build());
+        }
+
+        result.addMethod(MethodSpec.constructorBuilder()
+                .addModifiers(PUBLIC)
+                .addParameter(ACTIVITY, "originActivity")
+                .addStatement("this.originActivity = originActivity")
+                .build());
+
+        Set<String> methodNames = new LinkedHashSet<>();
+        List<BindingSet> hierarchy = new ArrayList<>();
+        for (BindingSet bindingSet = this; bindingSet != null; bindingSet = bindingSet.parentBinding) {
+            hierarchy.add(0, bindingSet);
+        }
+        int slot = 0;
+        int primitiveSlot = 0;
+        // The required fields passed so far, a bit each, checked by build().
+        List<Binding> requiredBindings = new ArrayList<>();
+        for (BindingSet bindingSet : hierarchy) {
+            for (Binding binding : bindingSet.bindings) {
+                String name = binding.getName();
+                CodeBlock markPassed = CodeBlock.of("");
+                if (binding.getFieldBinding().isRequired()) {
+                    markPassed = CodeBlock.builder()
+                            .addStatement("this.passed[$L] |= $L", requiredBindings.size() / 64,
+                                    requiredBit(requiredBindings.size()))
+                            .build();
+                    requiredBindings.add(binding);
+                }
+                String methodName = "with" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+                if (!methodNames.add(methodName)) {
+                    // A field hiding one of its superclass, keep both reachable.
+                    methodName = methodName + (slot + primitiveSlot);
+                    methodNames.add(methodName);
+                }
+                if (binding.getFieldBinding().isPrimitive()) {
+                    TypeName type = binding.getFieldBinding().getType();
+                    result.addMethod(MethodSpec.methodBuilder(methodName)
+                            .addModifiers(PUBLIC)
+                            .returns(builderClassName)
+                            .addParameter(type, name)
+                            .addStatement("this.primitives[$L] = $L", primitiveSlot, primitiveBits(type, name))
+                            .addCode(markPassed)
+                            .addStatement("return this")
+                            .build());
+                    primitiveSlot++;
+                    continue;
+                }
+                result.addMethod(MethodSpec.methodBuilder(methodName)
+                        .addModifiers(PUBLIC)
+                        .returns(builderClassName)
+                        .addParameter(binding.getFieldBinding().getParameterType(), name)
+                        .addStatement("this.slots[$L] = $L", slot, name)
+                        .addCode(markPassed)
+                        .addStatement("return this")
+                        .build());
+                if (binding.getFieldBinding().isLazy()) {
+                    // Only lazy and deferred fields can be bound before their parameter is computed.
+                    result.addMethod(MethodSpec.methodBuilder(methodName + "Deferred")
+                            .addModifiers(PUBLIC)
+                            .returns(builderClassName)
+                            .addParameter(ParameterizedTypeName.get(CALLABLE,
+                                    WildcardTypeName.subtypeOf(binding.getFieldBinding().getParameterType().box())), name)
+                            .addStatement("this.slots[$L] = $T.defer($L)", slot, ORP_BUILDER, name)
+                            .addCode(markPassed)
+                            .addStatement("return this")
+                            .build());
+                }
+                slot++;
+            }
+        }
+
+        MethodSpec.Builder build = MethodSpec.methodBuilder("build")
+                .addJavadoc("Every call registers its own copy of the parameters, so the builder can be reused.\n")
+                .addModifiers(PUBLIC)
+                .returns(INTENT);
+        if (!requiredBindings.isEmpty()) {
+            result.addField(FieldSpec.builder(long[].class, "passed", PRIVATE, FINAL)
+                    .initializer("new long[$L]", (requiredBindings.size() + 63) / 64)
+                    .build());
+            build.addJavadoc("\n@throws $T if a required field wasn't passed.\n", MISSING_PARAMETER);
+            // Fails at the origin, like the destination launched by keys would when binding it.
+            for (int i = 0; i < requiredBindings.size(); i++) {
+                build.beginControlFlow("if ((this.passed[$L] & $L) == 0)", i / 64, requiredBit(i))
+                        .addStatement("throw new $T($S)", MISSING_PARAMETER, requiredBindings.get(i).getValue())
+                        .endControlFlow();
+            }
+        }
+        if (hasPrimitives) {
+            build.addStatement("return $T.buildWithSlots(this.originActivity, $T.class, this.slots.clone(), "
+                    + "this.primitives.clone())", ORP_BUILDER, parentClassName);
+        } else {
+            build.addStatement("return $T.buildWithSlots(this.originActivity, $T.class, this.slots.clone())",
+                    ORP_BUILDER, parentClassName);
+        }
+        result.addMethod(build.build());
+        result.addMethod(MethodSpec.methodBuilder("start")
+                .addModifiers(PUBLIC)
+                .addStatement("this.originActivity.startActivity(build())")
+                .build());
+
+        return result.build();
+    }
+
     static String asHumanDescription(Collection<? extends MemberViewBinding> bindings) {
         Iterator<? extends MemberViewBinding> iterator = bindings.iterator();
         switch (bindings.size()) {
@@ -214,32 +522,23 @@ final class BindingSet {
     }
 
 
-    private boolean hasFieldBindings() {
-        for (Binding bindings : this.bindings) {
-            if (bindings.getFieldBinding() != null) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * True if the binding constructor fetches the handoff itself, which only a final binding
+     * without a parent can do. The others receive it from a separate constructor.
+     */
+    private boolean fetchesHandoff() {
+        return isFinal && parentBinding == null;
     }
 
-    private boolean hasViewLocal() {
+    private boolean hasFieldBindings() {
         for (Binding bindings : this.bindings) {
-            if (bindings.requiresLocal()) {
+            if (bindings.getFieldBinding() != null) {
                 return true;
             }
         }
         return false;
     }
 
-    /**
-     * True if this binding requires a view. Otherwise only a context is needed.
-     */
-    private boolean constructorNeedsView() {
-        return hasExtraFieldBindings() //
-                || parentBinding != null && parentBinding.constructorNeedsView();
-    }
-
     @Override
     public String toString() {
         return bindingClassName.toString();
@@ -256,26 +555,39 @@ final class BindingSet {
                 packageName.length() + 1).replace('.', '$');
         ClassName parentClassName = ClassName.get(packageName, className);
         ClassName bindingClassName = ClassName.get(packageName, className + "_ORPBinding");
+        ClassName builderClassName = ClassName.get(packageName, className + "_ORPBuilder");
 
-        boolean isFinal = enclosingElement.getModifiers().contains(Modifier.FINAL);
-        return new Builder(targetType, bindingClassName, parentClassName, isFinal);
+        Set<Modifier> modifiers = enclosingElement.getModifiers();
+        return new Builder(enclosingElement, targetType, bindingClassName, builderClassName, parentClassName,
+                modifiers.contains(Modifier.FINAL), modifiers.contains(Modifier.ABSTRACT),
+                modifiers.contains(Modifier.PUBLIC));
     }
 
     static final class Builder {
+        private final TypeElement targetElement;
         private final TypeName targetTypeName;
         private final ClassName bindingClassName;
+        private final ClassName builderClassName;
         private final ClassName parentClassName;
         private final boolean isFinal;
+        private final boolean isAbstract;
+        private final boolean isPublic;
 
         private BindingSet parentBinding;
 
         private final Map<String, Binding.Builder> viewIdMap = new LinkedHashMap<>();
 
-        private Builder(TypeName targetTypeName, ClassName bindingClassName, ClassName parentClassName, boolean isFinal) {
+        private Builder(TypeElement targetElement, TypeName targetTypeName, ClassName bindingClassName,
+                        ClassName builderClassName, ClassName parentClassName, boolean isFinal, boolean isAbstract,
+                        boolean isPublic) {
+            this.targetElement = targetElement;
             this.targetTypeName = targetTypeName;
             this.bindingClassName = bindingClassName;
+            this.builderClassName = builderClassName;
             this.parentClassName = parentClassName;
             this.isFinal = isFinal;
+            this.isAbstract = isAbstract;
+            this.isPublic = isPublic;
         }
 
         void addField(String name, String value, ExtraFieldBinding binding) {
@@ -300,7 +612,8 @@ final class BindingSet {
             for (Binding.Builder builder : viewIdMap.values()) {
                 viewBindings.add(builder.build());
             }
-            return new BindingSet(targetTypeName, bindingClassName, isFinal, viewBindings.build(), parentClassName, parentBinding);
+            return new BindingSet(targetElement, targetTypeName, bindingClassName, builderClassName, isFinal,
+                    isAbstract, isPublic, viewBindings.build(), parentClassName, parentBinding);
         }
     }
 }
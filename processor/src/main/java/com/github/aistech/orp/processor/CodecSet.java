@@ -0,0 +1,317 @@
+package com.github.aistech.orp.processor;
+
+import com.google.common.collect.ImmutableList;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.lang.model.element.TypeElement;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+
+/**
+ * The properties of a type encoded by its generated {@code ParameterCodec}, and how to read and
+ * write each one of them.
+ */
+final class CodecSet {
+    private static final ClassName PARAMETER_CODEC = ClassName.get("com.github.aistech.orp.codecs", "ParameterCodec");
+    private static final ClassName CODECS = ClassName.get("com.github.aistech.orp.codecs", "ORPCodecs");
+    private static final ClassName NON_NULL = ClassName.get("android.support.annotation", "NonNull");
+    private static final Set<String> RESERVED_NAMES = new LinkedHashSet<>(ImmutableList.of("value", "buffer", "size", "result"));
+
+    enum Kind {
+        PRIMITIVE, BOXED, STRING, ENUM, CODEC
+    }
+
+    /**
+     * A field of the encoded type.
+     */
+    static final class Property {
+        final String name;
+        final TypeName type;
+        final Kind kind;
+        /** The codec of the property's type, for {@link Kind#CODEC}. */
+        final ClassName codecClassName;
+        /** The getter to read it with, or null to read the field directly. */
+        final String getter;
+        /** The setter to write it with, or null to write the field directly, or through the constructor. */
+        String setter;
+        boolean inConstructor;
+
+        Property(String name, TypeName type, Kind kind, ClassName codecClassName, String getter) {
+            this.name = name;
+            this.type = type;
+            this.kind = kind;
+            this.codecClassName = codecClassName;
+            this.getter = getter;
+        }
+
+        String local() {
+            return RESERVED_NAMES.contains(name) ? name + "_" : name;
+        }
+
+        String constant() {
+            return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase() + "_CODEC";
+        }
+    }
+
+    private final TypeElement typeElement;
+    private final ClassName typeName;
+    private final ClassName codecClassName;
+    private final boolean isPublic;
+    private final ImmutableList<Property> properties;
+    private final ImmutableList<Property> constructorArguments;
+    private final boolean generated;
+
+    CodecSet(TypeElement typeElement, ClassName typeName, ClassName codecClassName, boolean isPublic,
+             ImmutableList<Property> properties, ImmutableList<Property> constructorArguments) {
+        this(typeElement, typeName, codecClassName, isPublic, properties, constructorArguments, true);
+    }
+
+    private CodecSet(TypeElement typeElement, ClassName typeName, ClassName codecClassName, boolean isPublic,
+                     ImmutableList<Property> properties, ImmutableList<Property> constructorArguments,
+                     boolean generated) {
+        this.typeElement = typeElement;
+        this.typeName = typeName;
+        this.codecClassName = codecClassName;
+        this.isPublic = isPublic;
+        this.properties = properties;
+        this.constructorArguments = constructorArguments;
+        this.generated = generated;
+    }
+
+    /**
+     * The codec of a type of another module, already generated when that module was compiled. It
+     * can be used by the codecs of this module, but isn't generated again.
+     */
+    static CodecSet compiled(TypeElement typeElement, ClassName codecClassName) {
+        return new CodecSet(typeElement, ClassName.get(typeElement), codecClassName, true,
+                ImmutableList.<Property>of(), ImmutableList.<Property>of(), false);
+    }
+
+    TypeElement getTypeElement() {
+        return typeElement;
+    }
+
+    ClassName getTypeName() {
+        return typeName;
+    }
+
+    ClassName getCodecClassName() {
+        return codecClassName;
+    }
+
+    boolean isGenerated() {
+        return generated;
+    }
+
+    JavaFile brewJava() {
+        return JavaFile.builder(codecClassName.packageName(), createType())
+                .addFileComment("Generated code from ORP Compiler. Do not modify!")
+                .build();
+    }
+
+    private TypeSpec createType() {
+        TypeSpec.Builder result = TypeSpec.classBuilder(codecClassName.simpleName())
+                .addOriginatingElement(typeElement)
+                .addModifiers(FINAL)
+                .addSuperinterface(ParameterizedTypeName.get(PARAMETER_CODEC, typeName));
+        if (isPublic) {
+            result.addModifiers(PUBLIC);
+        }
+
+        Set<String> constants = new LinkedHashSet<>();
+        for (Property property : properties) {
+            if (property.kind == Kind.CODEC && constants.add(property.constant())) {
+                result.addField(FieldSpec.builder(ParameterizedTypeName.get(PARAMETER_CODEC, property.type),
+                        property.constant(), PRIVATE, STATIC, FINAL)
+                        .initializer("new $T()", property.codecClassName)
+                        .build());
+            }
+        }
+
+        return result.addMethod(createSizeOfMethod())
+                .addMethod(createEncodeMethod())
+                .addMethod(createDecodeMethod())
+                .build();
+    }
+
+    private MethodSpec createSizeOfMethod() {
+        int fixedSize = 0;
+        CodeBlock.Builder variableSize = CodeBlock.builder();
+        for (Property property : properties) {
+            switch (property.kind) {
+                case PRIMITIVE:
+                    fixedSize += primitiveSize(property.type);
+                    break;
+                case BOXED:
+                    variableSize.addStatement("size += $L != null ? $L : 1",
+                            read(property), 1 + primitiveSize(property.type.unbox()));
+                    break;
+                case STRING:
+                    variableSize.addStatement("size += $T.sizeOfString($L)", CODECS, read(property));
+                    break;
+                case ENUM:
+                    variableSize.addStatement("$T $L = $L", property.type, property.local(), read(property));
+                    variableSize.addStatement("size += $T.sizeOfString($L != null ? $L.name() : null)",
+                            CODECS, property.local(), property.local());
+                    break;
+                case CODEC:
+                    variableSize.addStatement("size += $T.sizeOfNullable($L, $L)",
+                            CODECS, property.constant(), read(property));
+                    break;
+            }
+        }
+
+        return MethodSpec.methodBuilder("sizeOf")
+                .addAnnotation(Override.class)
+                .addModifiers(PUBLIC)
+                .returns(int.class)
+                .addParameter(typeName, "value")
+                .addStatement("int size = $L", fixedSize)
+                .addCode(variableSize.build())
+                .addStatement("return size")
+                .build();
+    }
+
+    private MethodSpec createEncodeMethod() {
+        MethodSpec.Builder result = MethodSpec.methodBuilder("encode")
+                .addAnnotation(Override.class)
+                .addModifiers(PUBLIC)
+                .addParameter(typeName, "value")
+                .addParameter(ByteBuffer.class, "buffer");
+
+        for (Property property : properties) {
+            switch (property.kind) {
+                case PRIMITIVE:
+                    result.addStatement("$L", put(property.type, read(property)));
+                    break;
+                case BOXED:
+                    result.addStatement("$T $L = $L", property.type, property.local(), read(property))
+                            .beginControlFlow("if ($L == null)", property.local())
+                            .addStatement("buffer.put((byte) 0)")
+                            .nextControlFlow("else")
+                            .addStatement("buffer.put((byte) 1)")
+                            .addStatement("$L", put(property.type.unbox(), CodeBlock.of("$L", property.local())))
+                            .endControlFlow();
+                    break;
+                case STRING:
+                    result.addStatement("$T.writeString(buffer, $L)", CODECS, read(property));
+                    break;
+                case ENUM:
+                    result.addStatement("$T $L = $L", property.type, property.local(), read(property))
+                            .addStatement("$T.writeString(buffer, $L != null ? $L.name() : null)",
+                                    CODECS, property.local(), property.local());
+                    break;
+                case CODEC:
+                    result.addStatement("$T.writeNullable(buffer, $L, $L)", CODECS, property.constant(), read(property));
+                    break;
+            }
+        }
+        return result.build();
+    }
+
+    private MethodSpec createDecodeMethod() {
+        MethodSpec.Builder result = MethodSpec.methodBuilder("decode")
+                .addAnnotation(Override.class)
+                .addAnnotation(NON_NULL)
+                .addModifiers(PUBLIC)
+                .returns(typeName)
+                .addParameter(ByteBuffer.class, "buffer");
+
+        for (Property property : properties) {
+            switch (property.kind) {
+                case PRIMITIVE:
+                    result.addStatement("$T $L = $L", property.type, property.local(), get(property.type));
+                    break;
+                case BOXED:
+                    result.addStatement("$T $L = buffer.get() != 0 ? $L : null",
+                            property.type, property.local(), get(property.type.unbox()));
+                    break;
+                case STRING:
+                    result.addStatement("$T $L = $T.readString(buffer)", property.type, property.local(), CODECS);
+                    break;
+                case ENUM:
+                    result.addStatement("$T $LName = $T.readString(buffer)", String.class, property.name, CODECS)
+                            .addStatement("$T $L = $LName != null ? $T.valueOf($LName) : null", property.type,
+                                    property.local(), property.name, property.type, property.name);
+                    break;
+                case CODEC:
+                    result.addStatement("$T $L = $T.readNullable(buffer, $L)",
+                            property.type, property.local(), CODECS, property.constant());
+                    break;
+            }
+        }
+
+        CodeBlock.Builder arguments = CodeBlock.builder();
+        for (int i = 0; i < constructorArguments.size(); i++) {
+            arguments.add(i == 0 ? "$L" : ", $L", constructorArguments.get(i).local());
+        }
+        result.addStatement("$T result = new $T($L)", typeName, typeName, arguments.build());
+        for (Property property : properties) {
+            if (property.inConstructor) {
+                continue;
+            }
+            if (property.setter != null) {
+                result.addStatement("result.$L($L)", property.setter, property.local());
+            } else {
+                result.addStatement("result.$L = $L", property.name, property.local());
+            }
+        }
+        return result.addStatement("return result").build();
+    }
+
+    private static CodeBlock read(Property property) {
+        if (property.getter != null) {
+            return CodeBlock.of("value.$L()", property.getter);
+        }
+        return CodeBlock.of("value.$L", property.name);
+    }
+
+    private static CodeBlock put(TypeName type, CodeBlock value) {
+        if (type.equals(TypeName.BOOLEAN)) {
+            return CodeBlock.of("buffer.put((byte) ($L ? 1 : 0))", value);
+        }
+        return CodeBlock.of("buffer.$L($L)", accessor("put", type), value);
+    }
+
+    private static CodeBlock get(TypeName type) {
+        if (type.equals(TypeName.BOOLEAN)) {
+            return CodeBlock.of("buffer.get() != 0");
+        }
+        return CodeBlock.of("buffer.$L()", accessor("get", type));
+    }
+
+    private static String accessor(String prefix, TypeName type) {
+        if (type.equals(TypeName.BYTE)) {
+            return prefix;
+        }
+        String name = type.toString();
+        return prefix + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static int primitiveSize(TypeName type) {
+        if (type.equals(TypeName.BOOLEAN) || type.equals(TypeName.BYTE)) {
+            return 1;
+        }
+        if (type.equals(TypeName.SHORT) || type.equals(TypeName.CHAR)) {
+            return 2;
+        }
+        if (type.equals(TypeName.INT) || type.equals(TypeName.FLOAT)) {
+            return 4;
+        }
+        return 8;
+    }
+}
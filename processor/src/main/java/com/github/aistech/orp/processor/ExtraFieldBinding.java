@@ -1,5 +1,6 @@
 package com.github.aistech.orp.processor;
 
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
@@ -7,21 +8,72 @@ import com.squareup.javapoet.TypeName;
 final class ExtraFieldBinding implements MemberViewBinding {
   private final String value;
   private final TypeName type;
+  private final TypeName parameterType;
+  private final ClassName handleClassName;
+  private final boolean required;
 
-  ExtraFieldBinding(String value, TypeName type) {
+  ExtraFieldBinding(String value, TypeName type, boolean required) {
+    this(value, type, type, null, required);
+  }
+
+  /**
+   * @param parameterType   the type of the parameter passed for this field, which is the type of
+   *                        the field itself unless it's a {@code Lazy<T>} or a {@code Deferred<T>}.
+   * @param handleClassName the class creating the handle bound to a {@code Lazy<T>} or a
+   *                        {@code Deferred<T>} field, null for the other fields.
+   */
+  ExtraFieldBinding(String value, TypeName type, TypeName parameterType, ClassName handleClassName,
+                    boolean required) {
     this.value = value;
     this.type = type;
+    this.parameterType = parameterType;
+    this.handleClassName = handleClassName;
+    this.required = required;
   }
 
   String getValue() {
     return value;
   }
 
-  ClassName getRawType() {
+  TypeName getType() {
+    return type;
+  }
+
+  TypeName getParameterType() {
+    return parameterType;
+  }
+
+  boolean isLazy() {
+    return handleClassName != null;
+  }
+
+  ClassName getHandleClassName() {
+    return handleClassName;
+  }
+
+  boolean isRequired() {
+    return required;
+  }
+
+  /**
+   * True for the fields passed unboxed, in the {@code long[]} of primitive slots.
+   */
+  boolean isPrimitive() {
+    return type.isPrimitive();
+  }
+
+  TypeName getRawType() {
+    return getRawType(type);
+  }
+
+  private static TypeName getRawType(TypeName type) {
     if (type instanceof ParameterizedTypeName) {
       return ((ParameterizedTypeName) type).rawType; // List<String> -> return List;
     }
-    return (ClassName) type;
+    if (type instanceof ArrayTypeName) {
+      return ArrayTypeName.of(getRawType(((ArrayTypeName) type).componentType)); // List<String>[] -> List[]
+    }
+    return type;
   }
 
   @Override public String getDescription() {
@@ -2,6 +2,8 @@ package com.github.aistech.orp.processor;
 
 import com.github.aistech.orp.annotations.DestinationExtraObject;
 import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableList;
+import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.TypeName;
 
@@ -10,12 +12,18 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.lang.annotation.Annotation;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.Filer;
@@ -26,15 +34,24 @@ import javax.lang.model.SourceVersion;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
 import javax.tools.Diagnostic.Kind;
 
+import static com.google.auto.common.MoreElements.getPackage;
 import static javax.lang.model.element.ElementKind.CLASS;
+import static javax.lang.model.element.Modifier.ABSTRACT;
+import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.PRIVATE;
 import static javax.lang.model.element.Modifier.STATIC;
 
@@ -42,10 +59,35 @@ import static javax.lang.model.element.Modifier.STATIC;
 public final class ORPProcessor extends AbstractProcessor {
     // TODO remove when http://b.android.com/187527 is released.
     private static final String OPTION_SDK_INT = "com.github.aistech.orp.minSdk";
+    private static final String OPTION_INDEX = "com.github.aistech.orp.index";
+    private static final String OPTION_CODECS = "com.github.aistech.orp.codecs";
+    private static final String GRADLE_ISOLATING = "org.gradle.annotation.processing.isolating";
+    private static final String GRADLE_AGGREGATING = "org.gradle.annotation.processing.aggregating";
     private static final String NULLABLE_ANNOTATION_NAME = "Nullable";
+    private static final String LAZY_TYPE = "com.github.aistech.orp.Lazy";
+    private static final String DEFERRED_TYPE = "com.github.aistech.orp.Deferred";
+    private static final ClassName PARAMETER_LAZY = ClassName.get("com.github.aistech.orp.singletons", "ParameterLazy");
+    private static final ClassName PARAMETER_DEFERRED =
+            ClassName.get("com.github.aistech.orp.singletons", "ParameterDeferred");
 
     private Filer filer;
+    private Types typeUtils;
+    private Elements elementUtils;
     private int sdk = 1;
+    private ClassName indexClassName;
+    private boolean indexWritten;
+    private boolean generateCodecs;
+
+    /**
+     * Every type looked at for a codec, across rounds, mapped to null when it can't have one.
+     */
+    private final Map<TypeElement, CodecSet> codecs = new LinkedHashMap<>();
+    private final Set<TypeElement> parsingCodecs = new LinkedHashSet<>();
+    /**
+     * The top level types compiled along with this processor, across rounds. Only they get a
+     * codec, the types of the other modules get theirs when those modules are compiled.
+     */
+    private final Set<TypeElement> compiledTypes = new HashSet<>();
 
     @Override
     public synchronized void init(ProcessingEnvironment env) {
@@ -63,12 +105,36 @@ public final class ORPProcessor extends AbstractProcessor {
             }
         }
 
+        String index = env.getOptions().get(OPTION_INDEX);
+        if (index != null) {
+            int lastDot = index.lastIndexOf('.');
+            if (lastDot <= 0 || lastDot == index.length() - 1) {
+                env.getMessager()
+                        .printMessage(Kind.ERROR, "The " + OPTION_INDEX + " option must be a fully qualified "
+                                + "class name, but was '" + index + "'.");
+            } else {
+                indexClassName = ClassName.get(index.substring(0, lastDot), index.substring(lastDot + 1));
+            }
+        }
+
+        generateCodecs = Boolean.parseBoolean(env.getOptions().get(OPTION_CODECS));
+
         filer = env.getFiler();
+        typeUtils = env.getTypeUtils();
+        elementUtils = env.getElementUtils();
     }
 
     @Override
     public Set<String> getSupportedOptions() {
-        return Collections.singleton(OPTION_SDK_INT);
+        Set<String> options = new LinkedHashSet<>();
+        options.add(OPTION_SDK_INT);
+        options.add(OPTION_INDEX);
+        options.add(OPTION_CODECS);
+        // Registered as dynamic for Gradle. Each binding and builder only depends on its target
+        // and the target's superclasses, but the index and the codecs gather many types into one
+        // file, or generate files for types that aren't annotated at all.
+        options.add(indexClassName != null || generateCodecs ? GRADLE_AGGREGATING : GRADLE_ISOLATING);
+        return options;
     }
 
     @Override
@@ -90,63 +156,424 @@ public final class ORPProcessor extends AbstractProcessor {
 
     @Override
     public boolean process(Set<? extends TypeElement> elements, RoundEnvironment env) {
+        compiledTypes.addAll(ElementFilter.typesIn(env.getRootElements()));
         Map<TypeElement, BindingSet> bindingMap = findAndParseTargets(env);
 
+        SourceBatch batch = new SourceBatch();
         for (Map.Entry<TypeElement, BindingSet> entry : bindingMap.entrySet()) {
             TypeElement typeElement = entry.getKey();
-            BindingSet binding = entry.getValue();
+            final BindingSet binding = entry.getValue();
 
-            JavaFile javaFile = binding.brewJava(sdk);
-            try {
-                javaFile.writeTo(filer);
-            } catch (IOException e) {
-                error(typeElement, "Unable to write binding for type %s: %s", typeElement, e.getMessage());
+            batch.add(typeElement, "binding for type " + typeElement, new Callable<JavaFile>() {
+                @Override
+                public JavaFile call() {
+                    return binding.brewJava(sdk);
+                }
+            });
+            batch.add(typeElement, "builder for type " + typeElement, new Callable<JavaFile>() {
+                @Override
+                public JavaFile call() {
+                    return binding.brewBuilderJava();
+                }
+            });
+        }
+
+        List<CodecSet> newCodecs = generateCodecs ? findCodecs(env) : Collections.<CodecSet>emptyList();
+        for (final CodecSet codec : newCodecs) {
+            batch.add(codec.getTypeElement(), "codec for type " + codec.getTypeName(), new Callable<JavaFile>() {
+                @Override
+                public JavaFile call() {
+                    return codec.brewJava();
+                }
+            });
+        }
+        batch.writeTo(filer, processingEnv.getMessager());
+
+        if (indexClassName != null && !bindingMap.isEmpty()) {
+            writeIndex(bindingMap, newCodecs);
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes the {@code ORPIndex} with every binding and codec of this round whose target can be
+     * referenced from the index package. The others are still found at runtime through reflection.
+     */
+    private void writeIndex(Map<TypeElement, BindingSet> bindingMap, List<CodecSet> newCodecs) {
+        if (indexWritten) {
+            printMessage(Kind.WARNING, null, "Bindings generated after the first round are not listed in %s "
+                    + "and will be loaded through reflection.", new Object[]{indexClassName});
+            return;
+        }
+
+        ImmutableList.Builder<BindingSet> indexed = ImmutableList.builder();
+        for (Map.Entry<TypeElement, BindingSet> entry : bindingMap.entrySet()) {
+            if (isAccessibleFromIndex(entry.getKey())) {
+                indexed.add(entry.getValue());
+            }
+        }
+
+        ImmutableList.Builder<CodecSet> indexedCodecs = ImmutableList.builder();
+        for (Map.Entry<TypeElement, CodecSet> entry : codecs.entrySet()) {
+            if (newCodecs.contains(entry.getValue()) && isAccessibleFromIndex(entry.getKey())) {
+                indexedCodecs.add(entry.getValue());
             }
         }
 
+        try {
+            new BindingIndex(indexClassName, indexed.build(), indexedCodecs.build()).brewJava().writeTo(filer);
+        } catch (IOException e) {
+            printMessage(Kind.ERROR, null, "Unable to write binding index %s: %s",
+                    new Object[]{indexClassName, e.getMessage()});
+        }
+        indexWritten = true;
+    }
+
+    private boolean isAccessibleFromIndex(TypeElement typeElement) {
+        Element element = typeElement;
+        while (element != null && element.getKind() != ElementKind.PACKAGE) {
+            if (!element.getModifiers().contains(Modifier.PUBLIC)) {
+                return getPackage(element).getQualifiedName().contentEquals(indexClassName.packageName());
+            }
+            element = element.getEnclosingElement();
+        }
         return true;
     }
 
     private Map<TypeElement, BindingSet> findAndParseTargets(RoundEnvironment env) {
         Map<TypeElement, BindingSet.Builder> builderMap = new LinkedHashMap<>();
-        Set<TypeElement> erasedTargetNames = new LinkedHashSet<>();
 
         // Process each @DestinationExtraObject element.
         for (Element element : env.getElementsAnnotatedWith(DestinationExtraObject.class)) {
             try {
-                parseBindView(element, builderMap, erasedTargetNames);
+                parseBindView(element, builderMap);
             } catch (Exception e) {
                 logParsingError(element, DestinationExtraObject.class, e);
             }
         }
 
-        // Associate superclass binders with their subclass binders. This is a queue-based tree walk
-        // which starts at the roots (superclasses) and walks to the leafs (subclasses).
-        Deque<Map.Entry<TypeElement, BindingSet.Builder>> entries =
-                new ArrayDeque<>(builderMap.entrySet());
+        // Superclass bindings that aren't part of this round, because the superclass didn't change
+        // in an incremental build or comes from a library, already exist. Their fields are still
+        // read from the superclass elements, to lay out the slots of their subclasses.
+        Map<TypeElement, TypeElement> parentTypes = new HashMap<>();
+        Set<TypeElement> roundTargets = new LinkedHashSet<>(builderMap.keySet());
+        for (TypeElement type : roundTargets) {
+            TypeElement parentType = findParentType(type, parentTypes);
+            while (parentType != null && !builderMap.containsKey(parentType)) {
+                for (VariableElement field : ElementFilter.fieldsIn(parentType.getEnclosedElements())) {
+                    if (field.getAnnotation(DestinationExtraObject.class) != null) {
+                        parseBindView(field, builderMap);
+                    }
+                }
+                parentType = findParentType(parentType, parentTypes);
+            }
+        }
+
+        // Build each binding once, after its parent's: a depth-first walk up the hierarchy from
+        // every type, stopping at the first parent already built.
         Map<TypeElement, BindingSet> bindingMap = new LinkedHashMap<>();
-        while (!entries.isEmpty()) {
-            Map.Entry<TypeElement, BindingSet.Builder> entry = entries.removeFirst();
+        Deque<TypeElement> pending = new ArrayDeque<>();
+        for (TypeElement type : builderMap.keySet()) {
+            for (TypeElement current = type; current != null && !bindingMap.containsKey(current);
+                 current = findParentType(current, parentTypes)) {
+                pending.push(current);
+            }
+            while (!pending.isEmpty()) {
+                TypeElement current = pending.pop();
+                BindingSet.Builder builder = builderMap.get(current);
+                if (builder == null) {
+                    // Its fields failed to parse, and the errors are reported already.
+                    continue;
+                }
+                TypeElement parentType = findParentType(current, parentTypes);
+                if (parentType != null) {
+                    builder.setParent(bindingMap.get(parentType));
+                }
+                bindingMap.put(current, builder.build());
+            }
+        }
 
-            TypeElement type = entry.getKey();
-            BindingSet.Builder builder = entry.getValue();
+        // Only write the bindings of this round's types.
+        bindingMap.keySet().retainAll(roundTargets);
+        return bindingMap;
+    }
 
-            TypeElement parentType = findParentType(type, erasedTargetNames);
-            if (parentType == null) {
-                bindingMap.put(type, builder.build());
-            } else {
-                BindingSet parentBinding = bindingMap.get(parentType);
-                if (parentBinding != null) {
-                    builder.setParent(parentBinding);
-                    bindingMap.put(type, builder.build());
+    /**
+     * Looks for a codec for the declared type of each {@code @DestinationExtraObject} field.
+     *
+     * @return the codecs found in this round only.
+     */
+    private List<CodecSet> findCodecs(RoundEnvironment env) {
+        Set<TypeElement> known = new LinkedHashSet<>(codecs.keySet());
+        for (Element element : env.getElementsAnnotatedWith(DestinationExtraObject.class)) {
+            TypeMirror type = getElementType(element);
+            if (isLazy(type)) {
+                type = getLazyParameterType(type);
+            }
+            if (type != null && type.getKind() == TypeKind.DECLARED && ((DeclaredType) type).getTypeArguments().isEmpty()) {
+                findCodec((TypeElement) ((DeclaredType) type).asElement());
+            }
+        }
+
+        List<CodecSet> newCodecs = new ArrayList<>();
+        for (Map.Entry<TypeElement, CodecSet> entry : codecs.entrySet()) {
+            if (entry.getValue() != null && entry.getValue().isGenerated() && !known.contains(entry.getKey())) {
+                newCodecs.add(entry.getValue());
+            }
+        }
+        return newCodecs;
+    }
+
+    private CodecSet findCodec(TypeElement type) {
+        if (codecs.containsKey(type)) {
+            return codecs.get(type);
+        }
+        if (!parsingCodecs.add(type)) {
+            // Recursive types would need a codec for an unbounded depth, leave them to Serializable.
+            return null;
+        }
+        CodecSet codec;
+        try {
+            codec = parseCodec(type);
+        } finally {
+            parsingCodecs.remove(type);
+        }
+        codecs.put(type, codec);
+        return codec;
+    }
+
+    private CodecSet parseCodec(TypeElement type) {
+        String qualifiedName = type.getQualifiedName().toString();
+        if (qualifiedName.startsWith("android.") || qualifiedName.startsWith("java.")) {
+            return null;
+        }
+        if (!compiledTypes.contains(getTopLevelType(type))) {
+            return findCompiledCodec(type);
+        }
+        if (type.getKind() != CLASS || type.getModifiers().contains(ABSTRACT)
+                || !type.getTypeParameters().isEmpty()) {
+            return codecNote(type, "only concrete, non generic classes are supported");
+        }
+        boolean isPublic = true;
+        for (Element element = type; element.getKind() != ElementKind.PACKAGE; element = element.getEnclosingElement()) {
+            boolean isNested = element.getEnclosingElement().getKind() != ElementKind.PACKAGE;
+            if (!(element instanceof TypeElement) || element.getModifiers().contains(PRIVATE)
+                    || isNested && !element.getModifiers().contains(STATIC)) {
+                return codecNote(type, "the class must be reachable from its package, and static if nested");
+            }
+            isPublic &= element.getModifiers().contains(Modifier.PUBLIC);
+        }
+        String packageName = getPackage(type).getQualifiedName().toString();
+
+        // Fields of the whole hierarchy, up to the framework classes.
+        Map<String, VariableElement> fields = new LinkedHashMap<>();
+        for (TypeElement current = type; current != null; current = superclassOf(current)) {
+            String name = current.getQualifiedName().toString();
+            if (name.startsWith("android.") || name.startsWith("java.")) {
+                break;
+            }
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                    continue;
+                }
+                if (fields.put(field.getSimpleName().toString(), field) != null) {
+                    return codecNote(type, "field '" + field.getSimpleName() + "' is shadowed");
+                }
+            }
+        }
+
+        List<ExecutableElement> methods = ElementFilter.methodsIn(elementUtils.getAllMembers(type));
+        Map<String, CodecSet.Property> properties = new LinkedHashMap<>();
+        for (VariableElement field : fields.values()) {
+            String name = field.getSimpleName().toString();
+            TypeMirror fieldType = field.asType();
+            CodecSet.Kind kind;
+            ClassName codecClassName = null;
+            if (fieldType.getKind().isPrimitive()) {
+                kind = CodecSet.Kind.PRIMITIVE;
+            } else if (fieldType.getKind() == TypeKind.DECLARED
+                    && ((DeclaredType) fieldType).getTypeArguments().isEmpty()) {
+                TypeElement fieldTypeElement = (TypeElement) ((DeclaredType) fieldType).asElement();
+                if (fieldTypeElement.getQualifiedName().contentEquals("java.lang.String")) {
+                    kind = CodecSet.Kind.STRING;
+                } else if (isBoxed(fieldType)) {
+                    kind = CodecSet.Kind.BOXED;
+                } else if (fieldTypeElement.getKind() == ElementKind.ENUM) {
+                    kind = CodecSet.Kind.ENUM;
                 } else {
-                    // Has a superclass binding but we haven't built it yet. Re-enqueue for later.
-                    entries.addLast(entry);
+                    CodecSet fieldCodec = findCodec(fieldTypeElement);
+                    if (fieldCodec == null) {
+                        return codecNote(type, "field '" + name + "' has no codec");
+                    }
+                    kind = CodecSet.Kind.CODEC;
+                    codecClassName = fieldCodec.getCodecClassName();
+                }
+            } else {
+                return codecNote(type, "field '" + name + "' has an unsupported type");
+            }
+
+            String getter = null;
+            if (!isAccessible(field, packageName)) {
+                ExecutableElement method = findAccessor(methods, packageName, getterNames(name, fieldType), null, fieldType);
+                if (method == null) {
+                    return codecNote(type, "field '" + name + "' is private and has no getter");
                 }
+                getter = method.getSimpleName().toString();
             }
+            properties.put(name, new CodecSet.Property(name, TypeName.get(fieldType), kind, codecClassName, getter));
         }
 
-        return bindingMap;
+        // The constructor taking the most properties, as long as the others can be set afterwards.
+        List<ExecutableElement> constructors = new ArrayList<>();
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (isAccessible(constructor, packageName)) {
+                constructors.add(constructor);
+            }
+        }
+        Collections.sort(constructors, new Comparator<ExecutableElement>() {
+            @Override
+            public int compare(ExecutableElement first, ExecutableElement second) {
+                return second.getParameters().size() - first.getParameters().size();
+            }
+        });
+        for (ExecutableElement constructor : constructors) {
+            ImmutableList<CodecSet.Property> arguments = matchConstructor(constructor, fields, properties);
+            if (arguments != null && assignSetters(fields, properties, arguments, methods, packageName)) {
+                return new CodecSet(type, ClassName.get(type), getCodecClassName(type), isPublic,
+                        ImmutableList.copyOf(properties.values()), arguments);
+            }
+        }
+        return codecNote(type, "no constructor can set every field, directly or along with setters");
+    }
+
+    /**
+     * Generating the codec of a type from another module here would define the same class again
+     * in each module using it, which fails once they're packaged together. That module generates
+     * it, if it enables codecs, so it's only used from there.
+     */
+    private CodecSet findCompiledCodec(TypeElement type) {
+        ClassName codecClassName = getCodecClassName(type);
+        TypeElement codec = elementUtils.getTypeElement(codecClassName.packageName() + "." + codecClassName.simpleName());
+        if (codec == null || !codec.getModifiers().contains(Modifier.PUBLIC)) {
+            return codecNote(type, "it's compiled in another module, which has no public codec for it");
+        }
+        return CodecSet.compiled(type, codecClassName);
+    }
+
+    private static ClassName getCodecClassName(TypeElement type) {
+        String packageName = getPackage(type).getQualifiedName().toString();
+        String simpleName = type.getQualifiedName().toString()
+                .substring(packageName.isEmpty() ? 0 : packageName.length() + 1)
+                .replace('.', '$');
+        return ClassName.get(packageName, simpleName + "_ORPCodec");
+    }
+
+    private static TypeElement getTopLevelType(TypeElement type) {
+        Element element = type;
+        while (element.getEnclosingElement().getKind() != ElementKind.PACKAGE) {
+            element = element.getEnclosingElement();
+        }
+        return (TypeElement) element;
+    }
+
+    private ImmutableList<CodecSet.Property> matchConstructor(ExecutableElement constructor,
+                                                             Map<String, VariableElement> fields,
+                                                             Map<String, CodecSet.Property> properties) {
+        ImmutableList.Builder<CodecSet.Property> arguments = ImmutableList.builder();
+        for (VariableElement parameter : constructor.getParameters()) {
+            String name = parameter.getSimpleName().toString();
+            VariableElement field = fields.get(name);
+            if (field == null || !typeUtils.isSameType(field.asType(), parameter.asType())) {
+                return null;
+            }
+            arguments.add(properties.get(name));
+        }
+        return arguments.build();
+    }
+
+    private boolean assignSetters(Map<String, VariableElement> fields, Map<String, CodecSet.Property> properties,
+                                  ImmutableList<CodecSet.Property> arguments, List<ExecutableElement> methods,
+                                  String packageName) {
+        for (CodecSet.Property property : properties.values()) {
+            property.inConstructor = arguments.contains(property);
+            property.setter = null;
+            if (property.inConstructor) {
+                continue;
+            }
+            VariableElement field = fields.get(property.name);
+            if (isAccessible(field, packageName) && !field.getModifiers().contains(FINAL)) {
+                continue;
+            }
+            ExecutableElement setter = findAccessor(methods, packageName,
+                    ImmutableList.of("set" + capitalize(property.name)), field.asType(), null);
+            if (setter == null) {
+                return false;
+            }
+            property.setter = setter.getSimpleName().toString();
+        }
+        return true;
+    }
+
+    private ExecutableElement findAccessor(List<ExecutableElement> methods, String packageName, List<String> names,
+                                           TypeMirror parameterType, TypeMirror returnType) {
+        for (ExecutableElement method : methods) {
+            if (!names.contains(method.getSimpleName().toString()) || method.getModifiers().contains(STATIC)
+                    || !isAccessible(method, packageName)) {
+                continue;
+            }
+            List<? extends VariableElement> parameters = method.getParameters();
+            if (parameterType != null && parameters.size() == 1
+                    && typeUtils.isSameType(parameters.get(0).asType(), parameterType)) {
+                return method;
+            }
+            if (returnType != null && parameters.isEmpty() && typeUtils.isSameType(method.getReturnType(), returnType)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private static List<String> getterNames(String name, TypeMirror type) {
+        if (type.getKind() == TypeKind.BOOLEAN) {
+            return ImmutableList.of("is" + capitalize(name), "get" + capitalize(name));
+        }
+        return ImmutableList.of("get" + capitalize(name));
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private boolean isBoxed(TypeMirror type) {
+        try {
+            typeUtils.unboxedType(type);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Whether a codec generated in the given package can use the member directly.
+     */
+    private static boolean isAccessible(Element member, String packageName) {
+        Set<Modifier> modifiers = member.getModifiers();
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        return !modifiers.contains(PRIVATE) && getPackage(member).getQualifiedName().contentEquals(packageName);
+    }
+
+    private static TypeElement superclassOf(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        return superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+    }
+
+    private CodecSet codecNote(TypeElement type, String reason) {
+        printMessage(Kind.NOTE, type, "No codec generated for %s: %s.", new Object[]{type.getQualifiedName(), reason});
+        return null;
     }
 
     private void logParsingError(Element element, Class<? extends Annotation> annotation,
@@ -208,8 +635,7 @@ public final class ORPProcessor extends AbstractProcessor {
         return false;
     }
 
-    private void parseBindView(Element element, Map<TypeElement, BindingSet.Builder> builderMap,
-                               Set<TypeElement> erasedTargetNames) {
+    private void parseBindView(Element element, Map<TypeElement, BindingSet.Builder> builderMap) {
         TypeElement parentElement = (TypeElement) element.getEnclosingElement();
 
         // Start by verifying common generated code restrictions.
@@ -228,21 +654,79 @@ public final class ORPProcessor extends AbstractProcessor {
         }
 
         // Assemble information on the field.
-        String value = element.getAnnotation(DestinationExtraObject.class).value();
+        DestinationExtraObject annotation = element.getAnnotation(DestinationExtraObject.class);
+        String value = annotation.value();
+        boolean required = annotation.required() && !hasAnnotationWithName(element, NULLABLE_ANNOTATION_NAME);
 
         BindingSet.Builder builder = getOrCreateBindingBuilder(builderMap, parentElement);
 
         String name = element.getSimpleName().toString();
-        TypeName type = TypeName.get(getElementType(element));
+        TypeMirror elementType = getElementType(element);
+        TypeName type = TypeName.get(elementType);
 
         if ("".equals(value)) {
             value = name;
         }
 
-        builder.addField(name, value, new ExtraFieldBinding(value, type));
+        if (isLazy(elementType)) {
+            TypeMirror parameterType = getLazyParameterType(elementType);
+            if (parameterType == null) {
+                error(element, "@%s Lazy and Deferred fields must declare the type of their parameter. (%s.%s)",
+                        DestinationExtraObject.class.getSimpleName(), parentElement.getQualifiedName(),
+                        element.getSimpleName());
+                return;
+            }
+            ClassName handleClassName = isDeferred(elementType) ? PARAMETER_DEFERRED : PARAMETER_LAZY;
+            builder.addField(name, value,
+                    new ExtraFieldBinding(value, type, TypeName.get(parameterType), handleClassName, required));
+        } else {
+            builder.addField(name, value, new ExtraFieldBinding(value, type, required));
+        }
+    }
+
+    /**
+     * @return true for a {@code Lazy<T>}, and for a {@code Deferred<T>}, which is a {@code Lazy<T>} too.
+     */
+    private static boolean isLazy(TypeMirror type) {
+        return isDeclaredType(type, LAZY_TYPE) || isDeclaredType(type, DEFERRED_TYPE);
+    }
+
+    private static boolean isDeferred(TypeMirror type) {
+        return isDeclaredType(type, DEFERRED_TYPE);
+    }
+
+    private static boolean isDeclaredType(TypeMirror type, String qualifiedName) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(qualifiedName);
+    }
+
+    /**
+     * @return T for a {@code Lazy<T>} or {@code Lazy<? extends T>}, or null for a raw {@code Lazy}.
+     * Same for {@code Deferred}.
+     */
+    private static TypeMirror getLazyParameterType(TypeMirror lazyType) {
+        List<? extends TypeMirror> arguments = ((DeclaredType) lazyType).getTypeArguments();
+        if (arguments.isEmpty()) {
+            return null;
+        }
+        TypeMirror argument = arguments.get(0);
+        if (argument.getKind() == TypeKind.WILDCARD) {
+            argument = ((WildcardType) argument).getExtendsBound();
+        }
+        if (argument != null && argument.getKind() == TypeKind.TYPEVAR) {
+            argument = ((TypeVariable) argument).getUpperBound();
+        }
+        return argument;
+    }
 
-        // Add the type-erased version to the valid binding targets set.
-        erasedTargetNames.add(parentElement);
+    private static boolean hasAnnotationWithName(Element element, String simpleName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            String annotationName = mirror.getAnnotationType().asElement().getSimpleName().toString();
+            if (simpleName.equals(annotationName)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private TypeMirror getElementType(Element element) {
@@ -265,20 +749,37 @@ public final class ORPProcessor extends AbstractProcessor {
     }
 
     /**
-     * Finds the parent binder type in the supplied set, if any.
+     * Finds the closest superclass with {@code @DestinationExtraObject} fields of its own, if any.
+     * It's looked up from the elements alone, which holds whether or not the superclass is part of
+     * the current round.
+     *
+     * @param parentTypes the parents found so far, including null ones, so each class of a deep
+     *                    hierarchy is only looked at once.
      */
-    private TypeElement findParentType(TypeElement typeElement, Set<TypeElement> parents) {
-        TypeMirror type;
-        while (true) {
-            type = typeElement.getSuperclass();
-            if (type.getKind() == TypeKind.NONE) {
-                return null;
+    private TypeElement findParentType(TypeElement typeElement, Map<TypeElement, TypeElement> parentTypes) {
+        if (parentTypes.containsKey(typeElement)) {
+            return parentTypes.get(typeElement);
+        }
+        TypeElement parentType = superclassOf(typeElement);
+        if (parentType != null) {
+            String qualifiedName = parentType.getQualifiedName().toString();
+            if (qualifiedName.startsWith("android.") || qualifiedName.startsWith("java.")) {
+                parentType = null;
+            } else if (!hasBindings(parentType)) {
+                parentType = findParentType(parentType, parentTypes);
             }
-            typeElement = (TypeElement) ((DeclaredType) type).asElement();
-            if (parents.contains(typeElement)) {
-                return typeElement;
+        }
+        parentTypes.put(typeElement, parentType);
+        return parentType;
+    }
+
+    private static boolean hasBindings(TypeElement typeElement) {
+        for (VariableElement field : ElementFilter.fieldsIn(typeElement.getEnclosedElements())) {
+            if (field.getAnnotation(DestinationExtraObject.class) != null) {
+                return true;
             }
         }
+        return false;
     }
 
     @Override
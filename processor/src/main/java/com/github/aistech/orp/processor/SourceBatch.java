@@ -0,0 +1,163 @@
+package com.github.aistech.orp.processor;
+
+import com.squareup.javapoet.JavaFile;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.Element;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+/**
+ * The files generated in a round. They're brewed and rendered on several threads when there are
+ * many of them, then written one after the other, since the {@link Filer} isn't thread-safe.
+ * <p>
+ * Brewing only reads what was collected from the elements beforehand, never the elements
+ * themselves, which javac doesn't allow to be used from other threads.
+ */
+final class SourceBatch {
+    /**
+     * Below this many files, starting threads costs more than it saves.
+     */
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    private final List<Element> elements = new ArrayList<>();
+    private final List<String> descriptions = new ArrayList<>();
+    private final List<Callable<JavaFile>> brews = new ArrayList<>();
+
+    /**
+     * @param element     where errors writing the file are reported.
+     * @param description
+     * @param brew        returns the file, or null if there's none to write.
+     */
+    void add(Element element, String description, Callable<JavaFile> brew) {
+        elements.add(element);
+        descriptions.add(description);
+        brews.add(brew);
+    }
+
+    void writeTo(Filer filer, Messager messager) {
+        List<Rendered> rendered = render();
+        for (int i = 0; i < rendered.size(); i++) {
+            Rendered file = rendered.get(i);
+            if (file == null) {
+                continue;
+            }
+            try {
+                file.writeTo(filer);
+            } catch (IOException e) {
+                messager.printMessage(Kind.ERROR,
+                        "Unable to write " + descriptions.get(i) + ": " + e.getMessage(), elements.get(i));
+            }
+        }
+    }
+
+    private List<Rendered> render() {
+        List<Callable<Rendered>> tasks = new ArrayList<>(brews.size());
+        for (final Callable<JavaFile> brew : brews) {
+            tasks.add(new Callable<Rendered>() {
+                @Override
+                public Rendered call() throws Exception {
+                    JavaFile javaFile = brew.call();
+                    return javaFile != null ? new Rendered(javaFile) : null;
+                }
+            });
+        }
+
+        int threads = Math.min(Runtime.getRuntime().availableProcessors(), tasks.size() / PARALLEL_THRESHOLD);
+        List<Rendered> rendered = new ArrayList<>(tasks.size());
+        if (threads <= 1) {
+            for (Callable<Rendered> task : tasks) {
+                rendered.add(call(task));
+            }
+            return rendered;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int count;
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ORP-processor-" + ++count);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            for (Future<Rendered> future : executor.invokeAll(tasks)) {
+                rendered.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating sources", e);
+        } catch (ExecutionException e) {
+            throw propagate(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return rendered;
+    }
+
+    private static Rendered call(Callable<Rendered> task) {
+        try {
+            return task.call();
+        } catch (Exception e) {
+            throw propagate(e);
+        }
+    }
+
+    private static RuntimeException propagate(Throwable throwable) {
+        if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+        if (throwable instanceof RuntimeException) {
+            return (RuntimeException) throwable;
+        }
+        return new IllegalStateException(throwable);
+    }
+
+    /**
+     * A file rendered to its source, ready to be written.
+     */
+    private static final class Rendered {
+        private final String name;
+        private final Element[] originatingElements;
+        private final String source;
+
+        Rendered(JavaFile javaFile) {
+            String packageName = javaFile.packageName;
+            this.name = packageName.isEmpty() ? javaFile.typeSpec.name : packageName + "." + javaFile.typeSpec.name;
+            this.originatingElements = javaFile.typeSpec.originatingElements.toArray(new Element[0]);
+            this.source = javaFile.toString();
+        }
+
+        /**
+         * Same as {@link JavaFile#writeTo(Filer)}, with the source already rendered.
+         */
+        void writeTo(Filer filer) throws IOException {
+            JavaFileObject file = filer.createSourceFile(name, originatingElements);
+            try {
+                Writer writer = file.openWriter();
+                try {
+                    writer.write(source);
+                } finally {
+                    writer.close();
+                }
+            } catch (IOException e) {
+                file.delete();
+                throw e;
+            }
+        }
+    }
+}
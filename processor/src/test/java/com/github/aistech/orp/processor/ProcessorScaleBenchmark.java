@@ -0,0 +1,366 @@
+package com.github.aistech.orp.processor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Runs {@link ORPProcessor} over thousands of generated activities, in deep hierarchies, and
+ * reports how long the processor took and how much heap the compilation peaked at.
+ * <p>
+ * Sources are compiled with {@code -proc:only} and kept in memory, so the numbers are those of
+ * parsing, processing and writing the generated files, without the disk or bytecode generation.
+ * <pre>
+ * ./gradlew :processor:scaleBenchmark -Pargs="--activities 4000 --depth 10 --index"
+ * </pre>
+ */
+public final class ProcessorScaleBenchmark {
+
+    private static final int PACKAGES = 20;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String[] FIELD_TYPES = {
+            "String", "int", "java.util.List<String>", "synthetic.Model", "long", "Double"
+    };
+    /**
+     * The types the generated files reference. Empty declarations are enough with -proc:only,
+     * where method bodies aren't attributed, and they keep javac from spending its time on errors.
+     */
+    private static final String[] RUNTIME_TYPES = {
+            "class android.app.Activity",
+            "class android.content.Intent",
+            "@interface android.support.annotation.CallSuper",
+            "@interface android.support.annotation.NonNull",
+            "@interface android.support.annotation.Nullable",
+            "@interface android.support.annotation.UiThread",
+            "interface com.github.aistech.orp.BindingFactory",
+            "interface com.github.aistech.orp.ORPIndex",
+            "interface com.github.aistech.orp.Unbinder",
+            "class com.github.aistech.orp.builder.ORPBuilder",
+            "class com.github.aistech.orp.codecs.ORPCodecs",
+            "interface com.github.aistech.orp.codecs.ParameterCodec<T>",
+            "class com.github.aistech.orp.singletons.ORPSingleton",
+    };
+
+    private int activities = 2000;
+    private int depth = 6;
+    private int fields = 4;
+    private int runs = 5;
+    private boolean index;
+    private boolean codecs;
+
+    public static void main(String[] args) throws IOException {
+        ProcessorScaleBenchmark benchmark = new ProcessorScaleBenchmark();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--activities".equals(arg)) {
+                benchmark.activities = Integer.parseInt(args[++i]);
+            } else if ("--depth".equals(arg)) {
+                benchmark.depth = Integer.parseInt(args[++i]);
+            } else if ("--fields".equals(arg)) {
+                benchmark.fields = Integer.parseInt(args[++i]);
+            } else if ("--runs".equals(arg)) {
+                benchmark.runs = Integer.parseInt(args[++i]);
+            } else if ("--index".equals(arg)) {
+                benchmark.index = true;
+            } else if ("--codecs".equals(arg)) {
+                benchmark.codecs = true;
+            } else {
+                throw new IllegalArgumentException("Unknown argument " + arg + ", expected --activities <n>, "
+                        + "--depth <n>, --fields <n>, --runs <n>, --index or --codecs");
+            }
+        }
+        benchmark.run();
+    }
+
+    private void run() throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No system Java compiler, run this on a JDK");
+        }
+        List<JavaFileObject> sources = generateSources();
+        System.out.println(String.format(Locale.US, "%d activities, hierarchies %d deep, %d fields each, index %s, "
+                + "codecs %s", activities, depth, fields, index, codecs));
+
+        // The first run warms the compiler and the processor up, and isn't reported.
+        long[] processorNanos = new long[runs];
+        long[] totalNanos = new long[runs];
+        long[] peakBytes = new long[runs];
+        for (int run = -1; run < runs; run++) {
+            Result result = compile(compiler, sources);
+            if (run < 0) {
+                continue;
+            }
+            processorNanos[run] = result.processorNanos;
+            totalNanos[run] = result.totalNanos;
+            peakBytes[run] = result.peakBytes;
+            System.out.println(String.format(Locale.US, "run %d: processor %d ms, compilation %d ms, "
+                            + "peak heap %d MB, %d files generated", run + 1, result.processorNanos / 1000000,
+                    result.totalNanos / 1000000, result.peakBytes >> 20, result.generatedFiles));
+        }
+        System.out.println(String.format(Locale.US, "median: processor %d ms, compilation %d ms, peak heap %d MB",
+                median(processorNanos) / 1000000, median(totalNanos) / 1000000, median(peakBytes) >> 20));
+    }
+
+    private Result compile(JavaCompiler compiler, List<JavaFileObject> sources) throws IOException {
+        List<String> options = new ArrayList<>(Arrays.asList("-proc:only", "-nowarn",
+                "-classpath", System.getProperty("java.class.path")));
+        if (index) {
+            options.add("-Acom.github.aistech.orp.index=synthetic.SyntheticIndex");
+        }
+        if (codecs) {
+            options.add("-Acom.github.aistech.orp.codecs=true");
+        }
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(diagnostics, Locale.US, null);
+        MemoryFileManager fileManager = new MemoryFileManager(standardFileManager);
+        TimedProcessor processor = new TimedProcessor(new ORPProcessor());
+
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+
+        long start = System.nanoTime();
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, sources);
+        task.setProcessors(Collections.singletonList(processor));
+        task.call();
+        long totalNanos = System.nanoTime() - start;
+
+        long peakBytes = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakBytes += pool.getPeakUsage().getUsed();
+        }
+        fileManager.close();
+
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                throw new IllegalStateException("Processing failed: " + diagnostic);
+            }
+        }
+        return new Result(processor.nanos, totalNanos, peakBytes, fileManager.generatedFiles.get());
+    }
+
+    /**
+     * Activities come in chains of {@link #depth} classes, each one extending the previous one and
+     * adding its own fields, spread over a few packages.
+     */
+    private List<JavaFileObject> generateSources() {
+        List<JavaFileObject> sources = new ArrayList<>();
+        for (String declaration : RUNTIME_TYPES) {
+            String kind = declaration.substring(0, declaration.indexOf(' '));
+            String type = declaration.substring(kind.length() + 1);
+            String qualifiedName = type.contains("<") ? type.substring(0, type.indexOf('<')) : type;
+            int lastDot = qualifiedName.lastIndexOf('.');
+            sources.add(new SourceFile(qualifiedName, "package " + qualifiedName.substring(0, lastDot) + ";\n"
+                    + "public " + kind + " " + type.substring(lastDot + 1) + " {}\n"));
+        }
+        // The bindings read the handoff they are given, so it needs the members they call.
+        sources.add(new SourceFile("com.github.aistech.orp.singletons.Handoff", ""
+                + "package com.github.aistech.orp.singletons;\n"
+                + "public final class Handoff {\n"
+                + "    public static final Handoff EMPTY = new Handoff();\n"
+                + "    public Object[] getSlots() { return null; }\n"
+                + "    public long[] getPrimitiveSlots() { return null; }\n"
+                + "    public boolean containsParameter(String key) { return false; }\n"
+                + "    public Object getParameter(String key) { return null; }\n"
+                + "    public Object optParameter(String key) { return null; }\n"
+                + "    public int getInt(String key) { return 0; }\n"
+                + "    public int optInt(String key, int fallback) { return fallback; }\n"
+                + "    public long getLong(String key) { return 0; }\n"
+                + "    public long optLong(String key, long fallback) { return fallback; }\n"
+                + "    public double getDouble(String key) { return 0; }\n"
+                + "    public double optDouble(String key, double fallback) { return fallback; }\n"
+                + "    public boolean getBoolean(String key) { return false; }\n"
+                + "    public boolean optBoolean(String key, boolean fallback) { return fallback; }\n"
+                + "}\n"));
+        // The builders check their required fields before building.
+        sources.add(new SourceFile("com.github.aistech.orp.exceptions.MissingParameterException", ""
+                + "package com.github.aistech.orp.exceptions;\n"
+                + "public class MissingParameterException extends RuntimeException {\n"
+                + "    public MissingParameterException(String parameterKey) {}\n"
+                + "}\n"));
+        sources.add(new SourceFile("synthetic.SyntheticActivity", ""
+                + "package synthetic;\n"
+                + "public class SyntheticActivity {\n"
+                + "    public long getHandoffToken() { return 0; }\n"
+                + "}\n"));
+        sources.add(new SourceFile("synthetic.Model", ""
+                + "package synthetic;\n"
+                + "public class Model {\n"
+                + "    public long id;\n"
+                + "    public String name;\n"
+                + "}\n"));
+
+        String parent = null;
+        for (int i = 0; i < activities; i++) {
+            String packageName = "synthetic.p" + i % PACKAGES;
+            String simpleName = "Activity" + i;
+            StringBuilder source = new StringBuilder()
+                    .append("package ").append(packageName).append(";\n")
+                    .append("import com.github.aistech.orp.annotations.DestinationExtraObject;\n")
+                    .append("public class ").append(simpleName).append(" extends ")
+                    .append(i % depth == 0 ? "synthetic.SyntheticActivity" : parent).append(" {\n");
+            for (int field = 0; field < fields; field++) {
+                source.append("    @DestinationExtraObject(\"").append(simpleName).append('.').append(field)
+                        .append("\") ").append(FIELD_TYPES[(i + field) % FIELD_TYPES.length])
+                        .append(" field").append(i).append('_').append(field).append(";\n");
+            }
+            source.append("}\n");
+            parent = packageName + "." + simpleName;
+            sources.add(new SourceFile(parent, source.toString()));
+        }
+        return sources;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static final class Result {
+        final long processorNanos;
+        final long totalNanos;
+        final long peakBytes;
+        final int generatedFiles;
+
+        Result(long processorNanos, long totalNanos, long peakBytes, int generatedFiles) {
+            this.processorNanos = processorNanos;
+            this.totalNanos = totalNanos;
+            this.peakBytes = peakBytes;
+            this.generatedFiles = generatedFiles;
+        }
+    }
+
+    private static final class SourceFile extends SimpleJavaFileObject {
+        private final String source;
+
+        SourceFile(String qualifiedName, String source) {
+            super(URI.create("string:///" + qualifiedName.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    /**
+     * Keeps the generated files in memory, where javac reads them back in the following round.
+     */
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+        final AtomicInteger generatedFiles = new AtomicInteger();
+
+        MemoryFileManager(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling) {
+            generatedFiles.incrementAndGet();
+            return new SimpleJavaFileObject(URI.create("memory:///" + className.replace('.', '/') + kind.extension),
+                    kind) {
+                private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+                @Override
+                public OutputStream openOutputStream() {
+                    return bytes;
+                }
+
+                @Override
+                public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                    return new String(bytes.toByteArray(), UTF_8);
+                }
+            };
+        }
+    }
+
+    /**
+     * Measures the time spent in the processor itself, across all rounds.
+     */
+    private static final class TimedProcessor implements Processor {
+        private final Processor delegate;
+        long nanos;
+
+        TimedProcessor(Processor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Set<String> getSupportedOptions() {
+            return delegate.getSupportedOptions();
+        }
+
+        @Override
+        public Set<String> getSupportedAnnotationTypes() {
+            return delegate.getSupportedAnnotationTypes();
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return delegate.getSupportedSourceVersion();
+        }
+
+        @Override
+        public void init(ProcessingEnvironment processingEnv) {
+            long start = System.nanoTime();
+            delegate.init(processingEnv);
+            nanos += System.nanoTime() - start;
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            long start = System.nanoTime();
+            try {
+                return delegate.process(annotations, roundEnv);
+            } finally {
+                nanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public Iterable<? extends Completion> getCompletions(Element element, AnnotationMirror annotation,
+                                                             ExecutableElement member, String userText) {
+            return delegate.getCompletions(element, annotation, member, userText);
+        }
+    }
+}